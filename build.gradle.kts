@@ -1,4 +1,5 @@
 import net.ltgt.gradle.errorprone.errorprone
+import org.checkerframework.gradle.plugin.CheckerFrameworkTaskExtension
 import org.gradle.api.tasks.testing.logging.TestExceptionFormat
 import org.gradle.external.javadoc.StandardJavadocDocletOptions
 import org.gradle.process.CommandLineArgumentProvider
@@ -28,6 +29,9 @@ plugins {
 
   // Publishing to Maven Central
   alias(libs.plugins.com.vanniktech.maven.publish)
+
+  // JMH benchmarks in src/jmh/java; defines target "jmh"
+  alias(libs.plugins.me.champeau.jmh)
 }
 
 repositories {
@@ -229,6 +233,52 @@ checkerFramework {
     )
 }
 
+// Benchmarks
+
+// Run the benchmarks with `./gradlew jmh`.  To run only some of them, pass a regular expression
+// that matches the benchmark names, as in:
+//   ./gradlew jmh -PjmhIncludes='SignaturesBenchmark.is.*'
+// Results are written to build/results/jmh/results.json, and printed, in JMH's JSON format.
+jmh {
+  jmhVersion = libs.versions.jmh.get()
+  val jmhIncludesProperty = project.findProperty("jmhIncludes")
+  if (jmhIncludesProperty != null) {
+    includes = listOf(jmhIncludesProperty.toString())
+  }
+  // Overrides the @Threads annotations, to measure how a benchmark scales with threads.
+  val jmhThreadsProperty = project.findProperty("jmhThreads")
+  if (jmhThreadsProperty != null) {
+    threads = jmhThreadsProperty.toString().toInt()
+  }
+  fork = 1
+  warmupIterations = 3
+  iterations = 5
+  resultFormat = "JSON"
+  resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
+
+tasks.named("jmh") {
+  // A local variable, so that the task action does not capture the script object.
+  val jmhResultsFile = jmh.resultsFile
+  doLast { println(jmhResultsFile.get().asFile.readText()) }
+}
+
+// The benchmarks are not part of the library, and JMH generates code from them that does not
+// satisfy the linters, so neither is held to the standards of the main code.
+tasks.named<JavaCompile>("compileJmhJava") {
+  extensions.configure<CheckerFrameworkTaskExtension> { skipCheckerFramework = true }
+}
+
+tasks.named<JavaCompile>("jmhCompileGeneratedClasses") {
+  extensions.configure<CheckerFrameworkTaskExtension> { skipCheckerFramework = true }
+  options.errorprone.isEnabled = false
+  options.compilerArgs.remove("-Werror")
+}
+
+tasks.named("pmdJmh") {
+  enabled = false
+}
+
 // Javadoc
 
 // Javadoc generates a CSS import of a font that is not distributed alongside
@@ -0,0 +1,146 @@
+package org.plumelib.reflection;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the bulk conversions between internal forms and binary names, such as {@link
+ * Signatures#internalFormToBinaryName(byte[], int, int)}. The input is the internal forms of a
+ * {@link NameCorpus}, concatenated and repeated to {@link #SIZE} bytes.
+ *
+ * <p>Each invocation converts every byte twice, to binary names and back, so the input is the same
+ * for every invocation. An operation is the conversion of one byte, so a score in operations per
+ * nanosecond is a throughput in GB/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BulkConversionBenchmark {
+
+  /** The number of bytes of input. */
+  static final int SIZE = 1 << 16;
+
+  /** The input, in a heap array. */
+  private final byte[] array = new byte[SIZE];
+
+  /** The input, in a direct buffer. */
+  private final ByteBuffer direct = ByteBuffer.allocateDirect(SIZE);
+
+  /** The input, as Strings, one per internal form. */
+  private String[] strings = new String[0];
+
+  /** Creates a new BulkConversionBenchmark. */
+  public BulkConversionBenchmark() {}
+
+  /** Builds the inputs. */
+  @Setup
+  public void setup() {
+    String[] internalForms = new NameCorpus().internalForms;
+    List<String> names = new ArrayList<>();
+    int size = 0;
+    while (size < SIZE) {
+      for (String name : internalForms) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, SIZE - size);
+        System.arraycopy(bytes, 0, array, size, length);
+        names.add(name.substring(0, length));
+        size += length;
+        if (size == SIZE) {
+          break;
+        }
+      }
+    }
+    direct.put(0, array);
+    strings = names.toArray(new String[0]);
+  }
+
+  /**
+   * Benchmarks the bulk conversions of a {@code byte[]}.
+   *
+   * @return the index of the first invalid byte
+   */
+  @Benchmark
+  @OperationsPerInvocation(2 * SIZE)
+  public int bulkArray() {
+    return Signatures.internalFormToBinaryName(array, 0, SIZE)
+        + Signatures.binaryNameToInternalForm(array, 0, SIZE);
+  }
+
+  /**
+   * Benchmarks the bulk conversions of a direct {@code ByteBuffer}.
+   *
+   * @return the index of the first invalid byte
+   */
+  @Benchmark
+  @OperationsPerInvocation(2 * SIZE)
+  public int bulkDirectBuffer() {
+    return Signatures.internalFormToBinaryName(direct, 0, SIZE)
+        + Signatures.binaryNameToInternalForm(direct, 0, SIZE);
+  }
+
+  /**
+   * Benchmarks a conversion of a {@code byte[]} one byte at a time, for comparison.
+   *
+   * @return the index of the first invalid byte
+   */
+  @Benchmark
+  @OperationsPerInvocation(2 * SIZE)
+  public int byteAtATime() {
+    return flipOneAtATime(array, (byte) '/') + flipOneAtATime(array, (byte) '.');
+  }
+
+  /**
+   * Replaces a separator by the other one, and finds the first byte that is not in a name, one
+   * byte at a time.
+   *
+   * @param bytes the bytes to convert
+   * @param from the separator to replace
+   * @return the index of the first byte that cannot occur in a name, or -1
+   */
+  private static int flipOneAtATime(byte[] bytes, byte from) {
+    int firstInvalid = -1;
+    for (int i = 0; i < bytes.length; i++) {
+      byte b = bytes[i];
+      if (b == from) {
+        bytes[i] = (byte) (b ^ 1);
+      }
+      boolean valid =
+          (b >= 'a' && b <= 'z')
+              || (b >= 'A' && b <= '[')
+              || (b >= '.' && b <= '9')
+              || b == '_'
+              || b == '$'
+              || b == ';';
+      if (firstInvalid == -1 && !valid) {
+        firstInvalid = i;
+      }
+    }
+    return firstInvalid;
+  }
+
+  /**
+   * Benchmarks {@code String.replace}, which the String conversions such as {@link
+   * Signatures#internalFormToBinaryName(String)} use, on the same names as Strings.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  @OperationsPerInvocation(2 * SIZE)
+  public void stringReplace(Blackhole bh) {
+    for (String s : strings) {
+      bh.consume(s.replace('/', '.').replace('.', '/'));
+    }
+  }
+}
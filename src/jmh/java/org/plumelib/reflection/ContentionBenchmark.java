@@ -0,0 +1,152 @@
+package org.plumelib.reflection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks of lookups that many threads perform at once, all using the same caches. A score is
+ * the total number of lookups per microsecond, over all threads. Comparing the scores for
+ * different numbers of threads shows whether the caches contend.
+ *
+ * <p>To measure scaling, run these benchmarks with different numbers of threads; see
+ * README-developers.md.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(64)
+public class ContentionBenchmark {
+
+  /** The names. */
+  private final NameCorpus corpus = new NameCorpus();
+
+  /** Method signatures that methodForName resolves. */
+  private String[] methodNames = new String[0];
+
+  /** A class with private fields. */
+  @SuppressWarnings({"UnusedVariable", "FieldCanBeFinal"}) // read reflectively
+  private static class Base {
+    /** A private field. */
+    private int secret = 42;
+
+    /** Another private field. */
+    private String name = "base";
+  }
+
+  /** A subclass, so that getPrivateField searches the superclass. */
+  private static class Derived extends Base {}
+
+  /** Objects whose private fields are read. */
+  private final Object[] withFields = {new Base(), new Derived()};
+
+  /** The names of the fields that are read. */
+  private final String[] fieldNames = {"secret", "name"};
+
+  /** Creates a new ContentionBenchmark. */
+  public ContentionBenchmark() {}
+
+  /**
+   * The position of one thread in the inputs. Each thread starts at a random position, so that the
+   * threads do not all look up the same name at the same moment.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    /** The index of the next input. */
+    private int next;
+
+    /** Creates a new Cursor. */
+    public Cursor() {}
+
+    /** Chooses a random starting position. */
+    @Setup
+    public void setup() {
+      next = ThreadLocalRandom.current().nextInt(1 << 16);
+    }
+
+    /**
+     * Returns the index of the next input and advances.
+     *
+     * @param length the number of inputs
+     * @return an index in [0, length)
+     */
+    int next(int length) {
+      int result = next % length;
+      next = result + 1;
+      return result;
+    }
+  }
+
+  /**
+   * Builds the inputs.
+   *
+   * @throws NoSuchFieldException if a field is missing
+   */
+  @Setup
+  public void setup() throws NoSuchFieldException {
+    List<String> resolvable = new ArrayList<>();
+    for (String name : corpus.methodNames) {
+      try {
+        ReflectionP.methodForName(name);
+        resolvable.add(name);
+      } catch (ClassNotFoundException | NoSuchMethodException e) {
+        // Omit a signature that methodForName cannot resolve.
+      }
+    }
+    methodNames = resolvable.toArray(new String[0]);
+    for (Object o : withFields) {
+      for (String fieldName : fieldNames) {
+        ReflectionP.getPrivateField(o, fieldName);
+      }
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#classForName}.
+   *
+   * @param cursor the position of this thread in the inputs
+   * @return the class
+   * @throws ClassNotFoundException never
+   */
+  @Benchmark
+  public Class<?> classForName(Cursor cursor) throws ClassNotFoundException {
+    String[] names = corpus.classGetNames;
+    return ReflectionP.classForName(names[cursor.next(names.length)]);
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#methodForName(String)}.
+   *
+   * @param cursor the position of this thread in the inputs
+   * @return the method
+   * @throws ClassNotFoundException never
+   * @throws NoSuchMethodException never
+   */
+  @Benchmark
+  public Object methodForName(Cursor cursor) throws ClassNotFoundException, NoSuchMethodException {
+    return ReflectionP.methodForName(methodNames[cursor.next(methodNames.length)]);
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#getPrivateField}.
+   *
+   * @param cursor the position of this thread in the inputs
+   * @return the value of the field
+   * @throws NoSuchFieldException never
+   */
+  @Benchmark
+  public Object getPrivateField(Cursor cursor) throws NoSuchFieldException {
+    int i = cursor.next(withFields.length * fieldNames.length);
+    return ReflectionP.getPrivateField(
+        withFields[i / fieldNames.length], fieldNames[i % fieldNames.length]);
+  }
+}
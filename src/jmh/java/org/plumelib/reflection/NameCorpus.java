@@ -0,0 +1,163 @@
+package org.plumelib.reflection;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Type names and method signatures of a fixed set of JDK classes, in each of the formats that
+ * {@link Signatures} handles. The corpus mixes top-level, nested, array, and primitive types in
+ * roughly the proportions that occur in real code, and it is the same in every run.
+ */
+final class NameCorpus {
+
+  /** The classes from which the corpus is built. */
+  private static final List<Class<?>> CLASSES =
+      Arrays.asList(
+          int.class,
+          long.class,
+          boolean.class,
+          double.class,
+          Object.class,
+          String.class,
+          Integer.class,
+          Thread.State.class,
+          Character.UnicodeBlock.class,
+          java.util.ArrayList.class,
+          java.util.HashMap.class,
+          java.util.Map.Entry.class,
+          java.util.AbstractMap.SimpleImmutableEntry.class,
+          java.util.concurrent.ConcurrentHashMap.class,
+          java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock.class,
+          java.util.function.BiFunction.class,
+          java.util.stream.Collectors.class,
+          java.io.ObjectInputStream.GetField.class,
+          java.nio.channels.FileChannel.MapMode.class,
+          java.time.format.DateTimeFormatter.class,
+          int[].class,
+          byte[][].class,
+          String[].class,
+          Object[][].class,
+          java.util.Map.Entry[].class);
+
+  /** Names in the format of {@link Class#getName}. */
+  final String[] classGetNames;
+
+  /** Binary names, with "[]" for arrays. */
+  final String[] fqBinaryNames;
+
+  /** Binary names of non-array, non-primitive classes. */
+  final String[] binaryNames;
+
+  /** Fully-qualified names of non-array, non-primitive classes. */
+  final String[] fullyQualifiedNames;
+
+  /** Field descriptors. */
+  final String[] fieldDescriptors;
+
+  /** Internal forms of non-array, non-primitive classes. */
+  final String[] internalForms;
+
+  /** Package names. */
+  final String[] packageNames;
+
+  /** Simple names, as returned by {@link Class#getSimpleName}. */
+  final String[] simpleNames;
+
+  /** Class file names, relative to a classpath directory. */
+  final String[] classfilenames;
+
+  /** Names of primitive types. */
+  final String[] primitiveNames;
+
+  /** Argument lists of methods, in Java format, such as "(int, java.lang.String[])". */
+  final String[] javaArglists;
+
+  /** Argument lists of methods, in JVM format, such as "(I[Ljava/lang/String;)". */
+  final String[] jvmArglists;
+
+  /** Method descriptors. */
+  final String[] methodDescriptors;
+
+  /** Method signatures in the format of {@link ReflectionP#methodForName(String)}. */
+  final String[] methodNames;
+
+  /** Strings that are not names in any format. */
+  final String[] nonNames;
+
+  /** Creates the corpus. */
+  NameCorpus() {
+    List<String> classGetNameList = new ArrayList<>();
+    List<String> fqBinaryNameList = new ArrayList<>();
+    List<String> binaryNameList = new ArrayList<>();
+    List<String> fullyQualifiedNameList = new ArrayList<>();
+    List<String> fieldDescriptorList = new ArrayList<>();
+    List<String> internalFormList = new ArrayList<>();
+    Set<String> packageNameSet = new LinkedHashSet<>();
+    List<String> simpleNameList = new ArrayList<>();
+    List<String> primitiveNameList = new ArrayList<>();
+    List<String> javaArglistList = new ArrayList<>();
+    List<String> jvmArglistList = new ArrayList<>();
+    List<String> methodDescriptorList = new ArrayList<>();
+    List<String> methodNameList = new ArrayList<>();
+
+    for (Class<?> c : CLASSES) {
+      classGetNameList.add(c.getName());
+      fqBinaryNameList.add(c.getTypeName());
+      fieldDescriptorList.add(c.descriptorString());
+      simpleNameList.add(c.getSimpleName());
+      if (c.isPrimitive()) {
+        primitiveNameList.add(c.getName());
+        continue;
+      }
+      if (c.isArray()) {
+        continue;
+      }
+      binaryNameList.add(c.getName());
+      fullyQualifiedNameList.add(c.getCanonicalName());
+      internalFormList.add(c.getName().replace('.', '/'));
+      packageNameSet.add(c.getPackageName());
+      for (Method m : c.getDeclaredMethods()) {
+        if (!Modifier.isPublic(m.getModifiers())) {
+          continue;
+        }
+        StringJoiner javaArglist = new StringJoiner(", ", "(", ")");
+        StringJoiner jvmArglist = new StringJoiner("", "(", ")");
+        for (Class<?> p : m.getParameterTypes()) {
+          javaArglist.add(p.getTypeName());
+          jvmArglist.add(p.descriptorString());
+        }
+        javaArglistList.add(javaArglist.toString());
+        jvmArglistList.add(jvmArglist.toString());
+        methodDescriptorList.add(
+            MethodType.methodType(m.getReturnType(), m.getParameterTypes()).descriptorString());
+        methodNameList.add(c.getName() + "." + m.getName() + javaArglist);
+      }
+    }
+
+    classGetNames = classGetNameList.toArray(new String[0]);
+    fqBinaryNames = fqBinaryNameList.toArray(new String[0]);
+    binaryNames = binaryNameList.toArray(new String[0]);
+    fullyQualifiedNames = fullyQualifiedNameList.toArray(new String[0]);
+    fieldDescriptors = fieldDescriptorList.toArray(new String[0]);
+    internalForms = internalFormList.toArray(new String[0]);
+    packageNames = packageNameSet.toArray(new String[0]);
+    simpleNames = simpleNameList.toArray(new String[0]);
+    classfilenames = internalFormList.stream().map(s -> s + ".class").toArray(String[]::new);
+    primitiveNames = primitiveNameList.toArray(new String[0]);
+    javaArglists = javaArglistList.toArray(new String[0]);
+    jvmArglists = jvmArglistList.toArray(new String[0]);
+    methodDescriptors = methodDescriptorList.toArray(new String[0]);
+    methodNames = methodNameList.toArray(new String[0]);
+    nonNames =
+        new String[] {
+          "", "1abc", "java..lang", "java.lang.String;", "[[", "Ljava/lang/String", "a b", "int[",
+        };
+  }
+}
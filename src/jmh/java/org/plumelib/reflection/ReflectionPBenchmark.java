@@ -0,0 +1,209 @@
+package org.plumelib.reflection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the lookups of {@link ReflectionP}. Most benchmarks make one pass over names from
+ * a {@link NameCorpus}, so a score is the time for one pass.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ReflectionPBenchmark {
+
+  /** The names. */
+  private final NameCorpus corpus = new NameCorpus();
+
+  /** Fully-qualified names of nested classes, which classForName finds only on a retry. */
+  private String[] nestedNames = new String[0];
+
+  /** Names of classes that do not exist. */
+  private final String[] missingNames = {
+    "com.example.Missing", "com.example.service.internal.Missing.Inner", "Missing",
+  };
+
+  /** Method signatures that methodForName resolves. */
+  private String[] methodNames = new String[0];
+
+  /** Pairs of classes, for isSubtype: elements 2i and 2i+1 are a pair. */
+  private final Class<?>[] classPairs = {
+    Integer.class, Number.class,
+    Number.class, Integer.class,
+    java.util.ArrayList.class, Iterable.class,
+    java.util.concurrent.ConcurrentHashMap.class, java.util.Map.class,
+    java.util.LinkedHashMap.class, java.io.Serializable.class,
+    Integer.class, Long.class,
+    java.util.ArrayList.class, java.util.LinkedList.class,
+    String.class, StringBuilder.class,
+  };
+
+  /**
+   * Pairs of classes, one of which is a subtype of the other, for leastUpperBound: elements 2i and
+   * 2i+1 are a pair.
+   */
+  private final Class<?>[] relatedPairs = {
+    Integer.class, Number.class,
+    java.util.List.class, java.util.ArrayList.class,
+    Object.class, String.class,
+    RuntimeException.class, Exception.class,
+  };
+
+  /** Values of different classes, for leastUpperBound. */
+  private final Object[] values = {new Object(), "a", 1, 2L};
+
+  /** A class with a private field. */
+  @SuppressWarnings({"UnusedVariable", "FieldCanBeFinal"}) // read reflectively
+  private static class Base {
+    /** A private field. */
+    private int secret = 42;
+  }
+
+  /** A subclass, so that getPrivateField searches the superclass. */
+  private static class Derived extends Base {}
+
+  /** An object whose private field is read. */
+  private final Object withField = new Derived();
+
+  /** Creates a new ReflectionPBenchmark. */
+  public ReflectionPBenchmark() {}
+
+  /**
+   * Builds the inputs.
+   *
+   * @throws ClassNotFoundException if a corpus class cannot be found
+   */
+  @Setup
+  public void setup() throws ClassNotFoundException {
+    List<String> nested = new ArrayList<>();
+    for (String name : corpus.fullyQualifiedNames) {
+      if (ReflectionP.classForName(name).getEnclosingClass() != null) {
+        nested.add(name);
+      }
+    }
+    nestedNames = nested.toArray(new String[0]);
+
+    List<String> resolvable = new ArrayList<>();
+    for (String name : corpus.methodNames) {
+      try {
+        ReflectionP.methodForName(name);
+        resolvable.add(name);
+      } catch (ClassNotFoundException | NoSuchMethodException e) {
+        // Omit a signature that methodForName cannot resolve.
+      }
+    }
+    methodNames = resolvable.toArray(new String[0]);
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#classForName} for names that {@link Class#forName} finds.
+   *
+   * @param bh consumes the results
+   * @throws ClassNotFoundException never
+   */
+  @Benchmark
+  public void classForNameHit(Blackhole bh) throws ClassNotFoundException {
+    for (String s : corpus.classGetNames) {
+      bh.consume(ReflectionP.classForName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#classForName} for fully-qualified names of nested classes, which
+   * it finds only after replacing a "." by "$".
+   *
+   * @param bh consumes the results
+   * @throws ClassNotFoundException never
+   */
+  @Benchmark
+  public void classForNameNested(Blackhole bh) throws ClassNotFoundException {
+    for (String s : nestedNames) {
+      bh.consume(ReflectionP.classForName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#classForName} for classes that do not exist.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void classForNameMiss(Blackhole bh) {
+    for (String s : missingNames) {
+      try {
+        bh.consume(ReflectionP.classForName(s));
+      } catch (ClassNotFoundException e) {
+        bh.consume(e);
+      }
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#methodForName(String)}.
+   *
+   * @param bh consumes the results
+   * @throws ClassNotFoundException never
+   * @throws NoSuchMethodException never
+   */
+  @Benchmark
+  public void methodForName(Blackhole bh) throws ClassNotFoundException, NoSuchMethodException {
+    for (String s : methodNames) {
+      bh.consume(ReflectionP.methodForName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#isSubtype}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isSubtype(Blackhole bh) {
+    for (int i = 0; i < classPairs.length; i += 2) {
+      bh.consume(ReflectionP.isSubtype(classPairs[i], classPairs[i + 1]));
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#getPrivateField}, for a field of a superclass.
+   *
+   * @return the value of the field
+   * @throws NoSuchFieldException never
+   */
+  @Benchmark
+  public Object getPrivateField() throws NoSuchFieldException {
+    return ReflectionP.getPrivateField(withField, "secret");
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#leastUpperBound(Class, Class)}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  @SuppressWarnings({"unchecked", "rawtypes"}) // the pairs are of different classes
+  public void leastUpperBoundOfClasses(Blackhole bh) {
+    for (int i = 0; i < relatedPairs.length; i += 2) {
+      bh.consume(ReflectionP.leastUpperBound((Class) relatedPairs[i], (Class) relatedPairs[i + 1]));
+    }
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#leastUpperBound(Object[])}.
+   *
+   * @return the least upper bound
+   */
+  @Benchmark
+  public Object leastUpperBoundOfValues() {
+    return ReflectionP.leastUpperBound(values);
+  }
+}
@@ -0,0 +1,563 @@
+package org.plumelib.reflection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the predicates and conversions of {@link Signatures}. Each benchmark applies one
+ * method to every applicable name of a {@link NameCorpus}, so a score is the time for one pass over
+ * the corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SignaturesBenchmark {
+
+  /** The names. */
+  private final NameCorpus corpus = new NameCorpus();
+
+  /** Every string in the corpus, plus non-names; the input to each predicate. */
+  private String[] mixed = new String[0];
+
+  /** The method descriptors, plus field descriptors and non-names. */
+  private String[] descriptors = new String[0];
+
+  /** For each binary name, its package. */
+  private String[] packageParts = new String[0];
+
+  /** For each binary name, the part after its package. */
+  private String[] classParts = new String[0];
+
+  /** Creates a new SignaturesBenchmark. */
+  public SignaturesBenchmark() {}
+
+  /** Builds the inputs. */
+  @Setup
+  public void setup() {
+    List<String> all = new ArrayList<>();
+    for (String[] names :
+        Arrays.asList(
+            corpus.classGetNames,
+            corpus.fqBinaryNames,
+            corpus.fullyQualifiedNames,
+            corpus.fieldDescriptors,
+            corpus.internalForms,
+            corpus.packageNames,
+            corpus.simpleNames,
+            corpus.nonNames)) {
+      all.addAll(Arrays.asList(names));
+    }
+    mixed = all.toArray(new String[0]);
+    List<String> allDescriptors = new ArrayList<>();
+    allDescriptors.addAll(Arrays.asList(corpus.methodDescriptors));
+    allDescriptors.addAll(Arrays.asList(corpus.fieldDescriptors));
+    allDescriptors.addAll(Arrays.asList(corpus.nonNames));
+    descriptors = allDescriptors.toArray(new String[0]);
+    packageParts = new String[corpus.binaryNames.length];
+    classParts = new String[corpus.binaryNames.length];
+    for (int i = 0; i < corpus.binaryNames.length; i++) {
+      String name = corpus.binaryNames[i];
+      int dot = name.lastIndexOf('.');
+      packageParts[i] = name.substring(0, dot);
+      classParts[i] = name.substring(dot + 1);
+    }
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Predicates
+  //
+
+  /**
+   * Benchmarks {@link Signatures#isArrayWithoutPackage}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isArrayWithoutPackage(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isArrayWithoutPackage(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isBinaryName(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isBinaryNameOrPrimitiveType}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isBinaryNameOrPrimitiveType(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isBinaryNameOrPrimitiveType(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isClassGetName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isClassGetName(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isClassGetName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isClassGetSimpleName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isClassGetSimpleName(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isClassGetSimpleName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isDotSeparatedIdentifiers}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isDotSeparatedIdentifiers(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isDotSeparatedIdentifiers(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isDotSeparatedIdentifiersOrPrimitiveType}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isDotSeparatedIdentifiersOrPrimitiveType(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isDotSeparatedIdentifiersOrPrimitiveType(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isFieldDescriptor}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isFieldDescriptor(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isFieldDescriptor(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isFieldDescriptorWithoutPackage}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isFieldDescriptorWithoutPackage(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isFieldDescriptorWithoutPackage(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isFieldDescriptorForPrimitive}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isFieldDescriptorForPrimitive(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isFieldDescriptorForPrimitive(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isMethodDescriptor}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isMethodDescriptor(Blackhole bh) {
+    for (String s : descriptors) {
+      bh.consume(Signatures.isMethodDescriptor(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isFqBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isFqBinaryName(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isFqBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isFullyQualifiedName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isFullyQualifiedName(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isFullyQualifiedName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isIdentifier}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isIdentifier(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isIdentifier(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isIdentifierOrPrimitiveType}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isIdentifierOrPrimitiveType(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isIdentifierOrPrimitiveType(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isInternalForm}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isInternalForm(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isInternalForm(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#isPrimitiveType}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void isPrimitiveType(Blackhole bh) {
+    for (String s : mixed) {
+      bh.consume(Signatures.isPrimitiveType(s));
+    }
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Conversions
+  //
+
+  /**
+   * Benchmarks {@link Signatures#getArrayElementType}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void getArrayElementType(Blackhole bh) {
+    for (String s : corpus.fqBinaryNames) {
+      bh.consume(Signatures.getArrayElementType(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#classfilenameToBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void classfilenameToBinaryName(Blackhole bh) {
+    for (String s : corpus.classfilenames) {
+      bh.consume(Signatures.classfilenameToBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#classfilenameToBaseName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void classfilenameToBaseName(Blackhole bh) {
+    for (String s : corpus.classfilenames) {
+      bh.consume(Signatures.classfilenameToBaseName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#addPackage}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void addPackage(Blackhole bh) {
+    for (int i = 0; i < classParts.length; i++) {
+      bh.consume(Signatures.addPackage(packageParts[i], classParts[i]));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures.ClassnameAndDimensions#parseFqBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void parseFqBinaryName(Blackhole bh) {
+    for (String s : corpus.fqBinaryNames) {
+      bh.consume(Signatures.ClassnameAndDimensions.parseFqBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#binaryNameToFieldDescriptor}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void binaryNameToFieldDescriptor(Blackhole bh) {
+    for (String s : corpus.fqBinaryNames) {
+      bh.consume(Signatures.binaryNameToFieldDescriptor(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#primitiveTypeNameToFieldDescriptor}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void primitiveTypeNameToFieldDescriptor(Blackhole bh) {
+    for (String s : corpus.primitiveNames) {
+      bh.consume(Signatures.primitiveTypeNameToFieldDescriptor(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#binaryNameToClassGetName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void binaryNameToClassGetName(Blackhole bh) {
+    for (String s : corpus.fqBinaryNames) {
+      bh.consume(Signatures.binaryNameToClassGetName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#binaryNameToFullyQualified}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void binaryNameToFullyQualified(Blackhole bh) {
+    for (String s : corpus.binaryNames) {
+      bh.consume(Signatures.binaryNameToFullyQualified(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#fieldDescriptorToClassGetName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void fieldDescriptorToClassGetName(Blackhole bh) {
+    for (String s : corpus.fieldDescriptors) {
+      bh.consume(Signatures.fieldDescriptorToClassGetName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#fieldDescriptorToBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void fieldDescriptorToBinaryName(Blackhole bh) {
+    for (String s : corpus.fieldDescriptors) {
+      bh.consume(Signatures.fieldDescriptorToBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#classGetNameToBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void classGetNameToBinaryName(Blackhole bh) {
+    for (String s : corpus.classGetNames) {
+      bh.consume(Signatures.classGetNameToBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#fieldDescriptorToFullyQualified}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void fieldDescriptorToFullyQualified(Blackhole bh) {
+    for (String s : corpus.fieldDescriptors) {
+      bh.consume(Signatures.fieldDescriptorToFullyQualified(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#internalFormToClassGetName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void internalFormToClassGetName(Blackhole bh) {
+    for (String s : corpus.internalForms) {
+      bh.consume(Signatures.internalFormToClassGetName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#internalFormToBinaryName}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void internalFormToBinaryName(Blackhole bh) {
+    for (String s : corpus.internalForms) {
+      bh.consume(Signatures.internalFormToBinaryName(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#binaryNameToInternalForm}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void binaryNameToInternalForm(Blackhole bh) {
+    for (String s : corpus.binaryNames) {
+      bh.consume(Signatures.binaryNameToInternalForm(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#internalFormToDotSeparatedIdentifiers}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void internalFormToDotSeparatedIdentifiers(Blackhole bh) {
+    for (String s : corpus.internalForms) {
+      bh.consume(Signatures.internalFormToDotSeparatedIdentifiers(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#internalFormToFullyQualified}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void internalFormToFullyQualified(Blackhole bh) {
+    for (String s : corpus.internalForms) {
+      bh.consume(Signatures.internalFormToFullyQualified(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#splitJavaArglist}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void splitJavaArglist(Blackhole bh) {
+    for (String s : corpus.javaArglists) {
+      bh.consume(Signatures.splitJavaArglist(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#arglistToJvm}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void arglistToJvm(Blackhole bh) {
+    for (String s : corpus.javaArglists) {
+      bh.consume(Signatures.arglistToJvm(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#splitJvmArglist}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void splitJvmArglist(Blackhole bh) {
+    for (String s : corpus.jvmArglists) {
+      bh.consume(Signatures.splitJvmArglist(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#arglistFromJvm}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void arglistFromJvm(Blackhole bh) {
+    for (String s : corpus.jvmArglists) {
+      bh.consume(Signatures.arglistFromJvm(s));
+    }
+  }
+
+  /**
+   * Benchmarks {@link Signatures#methodDescriptorToReturnType}.
+   *
+   * @param bh consumes the results
+   */
+  @Benchmark
+  public void methodDescriptorToReturnType(Blackhole bh) {
+    for (String s : corpus.methodDescriptors) {
+      bh.consume(Signatures.methodDescriptorToReturnType(s));
+    }
+  }
+}
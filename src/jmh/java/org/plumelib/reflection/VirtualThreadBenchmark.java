@@ -0,0 +1,167 @@
+package org.plumelib.reflection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of lookups performed by many short tasks, as in a server that handles each request
+ * in its own task. Each invocation runs one task per input on an executor and waits for them all,
+ * so a score is the time to run one batch of tasks.
+ *
+ * <p>The "virtual" executor creates a virtual thread per task. Virtual threads require Java 21;
+ * on an earlier JVM, the benchmarks with that executor fail and the others still run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+  /** The kind of executor: "platform" for a pool of 64 threads, or "virtual". */
+  @Param({"platform", "virtual"})
+  public String executorKind = "platform";
+
+  /** The names. */
+  private final NameCorpus corpus = new NameCorpus();
+
+  /** Tasks that each look up one class. */
+  private final List<Callable<Object>> classTasks = new ArrayList<>();
+
+  /** Tasks that each look up one method. */
+  private final List<Callable<Object>> methodTasks = new ArrayList<>();
+
+  /** Tasks that each read one private field. */
+  private final List<Callable<Object>> fieldTasks = new ArrayList<>();
+
+  /** A class with a private field. */
+  @SuppressWarnings({"UnusedVariable", "FieldCanBeFinal"}) // read reflectively
+  private static class Holder {
+    /** A private field. */
+    private int secret = 42;
+  }
+
+  /** The executor that runs the tasks. */
+  private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  /** Creates a new VirtualThreadBenchmark. */
+  public VirtualThreadBenchmark() {}
+
+  /** Creates the executor and the tasks. */
+  @Setup
+  public void setup() {
+    executor.shutdown();
+    executor = newExecutor(executorKind);
+    for (String name : corpus.classGetNames) {
+      classTasks.add(() -> ReflectionP.classForName(name));
+    }
+    for (String name : corpus.methodNames) {
+      methodTasks.add(
+          () -> {
+            try {
+              return ReflectionP.methodForName(name);
+            } catch (NoSuchMethodException e) {
+              return e;
+            }
+          });
+    }
+    Object holder = new Holder();
+    for (int i = 0; i < corpus.methodNames.length; i++) {
+      fieldTasks.add(() -> ReflectionP.getPrivateField(holder, "secret"));
+    }
+  }
+
+  /** Shuts down the executor. */
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Returns a new executor of the given kind.
+   *
+   * @param kind "platform" or "virtual"
+   * @return a new executor
+   */
+  static ExecutorService newExecutor(String kind) {
+    switch (kind) {
+      case "platform":
+        return Executors.newFixedThreadPool(64);
+      case "virtual":
+        try {
+          // Called reflectively, because the benchmarks are compiled for Java 17.
+          return (ExecutorService)
+              Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+          throw new UnsupportedOperationException("Virtual threads require Java 21", e);
+        } catch (ReflectiveOperationException e) {
+          throw new Error(e);
+        }
+      default:
+        throw new IllegalArgumentException(kind);
+    }
+  }
+
+  /**
+   * Runs the given tasks and waits for them to finish.
+   *
+   * @param tasks the tasks
+   * @return the result of the last task
+   * @throws InterruptedException if interrupted while waiting
+   * @throws ExecutionException if a task fails
+   */
+  private Object runAll(List<Callable<Object>> tasks)
+      throws InterruptedException, ExecutionException {
+    Object result = null;
+    for (Future<Object> future : executor.invokeAll(tasks)) {
+      result = future.get();
+    }
+    return result;
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#classForName}, one task per name.
+   *
+   * @return the result of one task
+   * @throws Exception if a task fails
+   */
+  @Benchmark
+  public Object classForName() throws Exception {
+    return runAll(classTasks);
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#methodForName(String)}, one task per signature.
+   *
+   * @return the result of one task
+   * @throws Exception if a task fails
+   */
+  @Benchmark
+  public Object methodForName() throws Exception {
+    return runAll(methodTasks);
+  }
+
+  /**
+   * Benchmarks {@link ReflectionP#getPrivateField}, with as many tasks as {@link #methodForName}.
+   *
+   * @return the result of one task
+   * @throws Exception if a task fails
+   */
+  @Benchmark
+  public Object getPrivateField() throws Exception {
+    return runAll(fieldTasks);
+  }
+}
@@ -0,0 +1,479 @@
+package org.plumelib.reflection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.checkerframework.checker.signature.qual.BinaryName;
+import org.checkerframework.checker.signature.qual.DotSeparatedIdentifiers;
+
+/**
+ * A set of binary names, such as "com.acme.service.internal.Handler$Task", that stores each package
+ * prefix once. Use it instead of a set of Strings to hold an inventory of many classes: a name
+ * costs about 40 bytes plus the length of its last identifier, however long its package is,
+ * whereas a String in a HashSet costs about 80 bytes plus the length of the whole name.
+ * Dot-separated identifiers, such as package names, can be stored as well.
+ *
+ * <p>The names form a trie whose edges are identifiers: the node for "com.acme" is the parent of
+ * the nodes for "com.acme.service" and "com.acme.Main". Each node is an index into parallel
+ * {@code int} arrays, and its identifier is stored, one byte per (ASCII) character, in a shared
+ * byte array. A single open-addressing hash table, keyed by a parent node and an identifier, finds
+ * a child. Thus, adding or looking up a name takes time proportional to its length, and a name is
+ * reconstructed from its node by walking up to the root.
+ *
+ * <p>Each name in the set has an {@code int} ID, which is returned by {@link #add} and {@link
+ * #lookup} and converted back to the name by {@link #name}.
+ *
+ * <p>A BinaryNameTrie is not thread-safe.
+ */
+@SuppressWarnings("index") // every node is checked, and the per-node arrays grow together
+public final class BinaryNameTrie {
+
+  /** The root node, which represents the unnamed package. It is not in {@link #table}. */
+  private static final int ROOT = 0;
+
+  /** The identifiers of the nodes, one byte per character, concatenated. */
+  private byte[] labels;
+
+  /** The number of bytes of {@link #labels} that are in use. */
+  private int labelsUsed = 0;
+
+  /**
+   * The start of each node's identifier in {@link #labels}. Node {@code n}'s identifier occupies
+   * {@code [labelOffsets[n], labelOffsets[n + 1])}.
+   */
+  private int[] labelOffsets;
+
+  /** The parent of each node. */
+  private int[] parents;
+
+  /** The most recently added child of each node, or 0 if it has none. */
+  private int[] firstChildren;
+
+  /** The next child of each node's parent, or 0 if it is the last one. */
+  private int[] nextSiblings;
+
+  /** The hash code of each node's parent and identifier; see {@link #hash}. */
+  private int[] hashes;
+
+  /** The nodes that are names in the set, as opposed to only prefixes of names. */
+  private final BitSet names = new BitSet();
+
+  /** The number of nodes, including the root. */
+  private int nodeCount = 1;
+
+  /** The number of names in the set. */
+  private int size = 0;
+
+  /**
+   * The hash index of all nodes but the root: each element is a node, or 0 for an empty slot. Its
+   * length is a power of 2, and at most half the slots are used.
+   */
+  private int[] table;
+
+  /** Creates an empty BinaryNameTrie. */
+  public BinaryNameTrie() {
+    this(64);
+  }
+
+  /**
+   * Creates an empty BinaryNameTrie with room for the given number of names.
+   *
+   * @param expectedSize the number of names that the set is expected to hold
+   */
+  public BinaryNameTrie(int expectedSize) {
+    // Most names in a large inventory share their package with other names.
+    int capacity = Math.max(16, expectedSize + expectedSize / 8);
+    labels = new byte[capacity * 12];
+    labelOffsets = new int[capacity + 1];
+    parents = new int[capacity];
+    firstChildren = new int[capacity];
+    nextSiblings = new int[capacity];
+    hashes = new int[capacity];
+    table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+  }
+
+  /**
+   * Returns the number of names in the set.
+   *
+   * @return the number of names
+   */
+  public int size() {
+    return size;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Adding and looking up names
+  //
+
+  /**
+   * Adds a name to the set, if it is not already present.
+   *
+   * @param name a binary name or dot-separated identifiers, such as "java.util.Map$Entry"
+   * @return the ID of the name
+   * @throws IllegalArgumentException if the argument is not a binary name
+   */
+  public int add(String name) {
+    if (!Signatures.isBinaryName(name)) {
+      throw new IllegalArgumentException("Not a binary name: " + name);
+    }
+    int length = name.length();
+    int node = ROOT;
+    int start = 0;
+    while (start <= length) {
+      int end = identifierEnd(name, start);
+      int labelHash = labelHash(name, start, end);
+      int child = findChild(node, name, start, end, labelHash);
+      node = (child != 0) ? child : addChild(node, name, start, end, labelHash);
+      start = end + 1;
+    }
+    if (!names.get(node)) {
+      names.set(node);
+      size++;
+    }
+    return node;
+  }
+
+  /**
+   * Adds each of the given names to the set.
+   *
+   * @param names binary names or dot-separated identifiers
+   * @throws IllegalArgumentException if an element is not a binary name
+   */
+  public void addAll(Iterable<String> names) {
+    for (String name : names) {
+      add(name);
+    }
+  }
+
+  /**
+   * Returns the ID of the given name, or -1 if it is not in the set.
+   *
+   * @param name a binary name or dot-separated identifiers
+   * @return the ID of the name, or -1
+   */
+  public int lookup(String name) {
+    int node = findNode(name);
+    return (node > ROOT && names.get(node)) ? node : -1;
+  }
+
+  /**
+   * Returns true if the given name is in the set.
+   *
+   * @param name a binary name or dot-separated identifiers
+   * @return true if the name is in the set
+   */
+  public boolean contains(String name) {
+    return lookup(name) != -1;
+  }
+
+  /**
+   * Returns the node for the given name, whether or not it is in the set, or -1 if there is none.
+   * The node for the empty string is the root.
+   *
+   * @param name a binary name, dot-separated identifiers, or the empty string
+   * @return the node for the name, or -1
+   */
+  private int findNode(String name) {
+    int length = name.length();
+    if (length == 0) {
+      return ROOT;
+    }
+    int node = ROOT;
+    int start = 0;
+    while (start <= length) {
+      int end = identifierEnd(name, start);
+      node = findChild(node, name, start, end, labelHash(name, start, end));
+      if (node == 0) {
+        return -1;
+      }
+      start = end + 1;
+    }
+    return node;
+  }
+
+  /**
+   * Returns the end of the identifier that starts at the given index.
+   *
+   * @param name a name
+   * @param start the index of the start of an identifier in {@code name}
+   * @return the index of the dot after the identifier, or the length of {@code name}
+   */
+  private static int identifierEnd(String name, int start) {
+    int end = name.indexOf('.', start);
+    return (end == -1) ? name.length() : end;
+  }
+
+  /**
+   * Returns the {@link String#hashCode} of a substring, without creating it.
+   *
+   * @param s a string
+   * @param start the start of the substring
+   * @param end the end of the substring
+   * @return the hash code of {@code s.substring(start, end)}
+   */
+  private static int labelHash(String s, int start, int end) {
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h;
+  }
+
+  /**
+   * Returns the hash code of a child node.
+   *
+   * @param parent the parent of the node
+   * @param labelHash the hash code of the node's identifier
+   * @return the hash code of the node
+   */
+  private static int hash(int parent, int labelHash) {
+    int h = parent * 0x9E3779B9 + labelHash;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the child of a node that has the given identifier, or 0 if there is none.
+   *
+   * @param parent a node
+   * @param s a string that contains the identifier
+   * @param start the start of the identifier in {@code s}
+   * @param end the end of the identifier in {@code s}
+   * @param labelHash the hash code of the identifier
+   * @return the child of {@code parent} with the identifier, or 0
+   */
+  private int findChild(int parent, String s, int start, int end, int labelHash) {
+    int hash = hash(parent, labelHash);
+    int mask = table.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int node = table[slot];
+      if (node == 0) {
+        return 0;
+      }
+      if (hashes[node] == hash && parents[node] == parent && labelEquals(node, s, start, end)) {
+        return node;
+      }
+    }
+  }
+
+  /**
+   * Returns true if the identifier of the given node is the given substring.
+   *
+   * @param node a node
+   * @param s a string
+   * @param start the start of the substring
+   * @param end the end of the substring
+   * @return true if the identifier of {@code node} is {@code s.substring(start, end)}
+   */
+  private boolean labelEquals(int node, String s, int start, int end) {
+    int labelStart = labelOffsets[node];
+    if (labelOffsets[node + 1] - labelStart != end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      // A stored byte is never negative, so a non-ASCII character never matches.
+      if (labels[labelStart + i - start] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds a node.
+   *
+   * @param parent the parent of the new node
+   * @param s a string that contains the identifier of the new node, which is ASCII
+   * @param start the start of the identifier in {@code s}
+   * @param end the end of the identifier in {@code s}
+   * @param labelHash the hash code of the identifier
+   * @return the new node
+   */
+  private int addChild(int parent, String s, int start, int end, int labelHash) {
+    int labelLength = end - start;
+    if (labelsUsed + labelLength > labels.length) {
+      labels = Arrays.copyOf(labels, Math.max(labels.length * 2, labelsUsed + labelLength));
+    }
+    if (nodeCount == parents.length) {
+      int capacity = nodeCount * 2;
+      labelOffsets = Arrays.copyOf(labelOffsets, capacity + 1);
+      parents = Arrays.copyOf(parents, capacity);
+      firstChildren = Arrays.copyOf(firstChildren, capacity);
+      nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+      hashes = Arrays.copyOf(hashes, capacity);
+    }
+    if (nodeCount * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    for (int i = start; i < end; i++) {
+      labels[labelsUsed++] = (byte) s.charAt(i);
+    }
+    int node = nodeCount++;
+    labelOffsets[node + 1] = labelsUsed;
+    parents[node] = parent;
+    hashes[node] = hash(parent, labelHash);
+    nextSiblings[node] = firstChildren[parent];
+    firstChildren[parent] = node;
+    insert(node);
+    return node;
+  }
+
+  /**
+   * Replaces the hash index by one of the given size.
+   *
+   * @param length the length of the new index, a power of 2
+   */
+  private void rehash(int length) {
+    table = new int[length];
+    for (int node = ROOT + 1; node < nodeCount; node++) {
+      insert(node);
+    }
+  }
+
+  /**
+   * Adds a node to the hash index.
+   *
+   * @param node a node that is not in the index
+   */
+  private void insert(int node) {
+    int mask = table.length - 1;
+    int slot = hashes[node] & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = node;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Reconstructing names
+  //
+
+  /**
+   * Checks that an ID is the ID of a name in the set.
+   *
+   * @param id an ID
+   * @throws IndexOutOfBoundsException if {@code id} is not the ID of a name in the set
+   */
+  private void checkId(int id) {
+    if (id <= ROOT || id >= nodeCount || !names.get(id)) {
+      throw new IndexOutOfBoundsException("No name with ID " + id);
+    }
+  }
+
+  /**
+   * Returns the name with the given ID.
+   *
+   * @param id the ID of a name in the set
+   * @return the name with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not the ID of a name in the set
+   */
+  @SuppressWarnings("signature") // only binary names are added
+  public @BinaryName String name(int id) {
+    checkId(id);
+    return path(id);
+  }
+
+  /**
+   * Returns the package of the name with the given ID: its prefix before the last dot, or the
+   * empty string if it has no dot.
+   *
+   * @param id the ID of a name in the set
+   * @return the package of the name with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not the ID of a name in the set
+   */
+  @SuppressWarnings("signature") // a prefix of a binary name, or the unnamed package
+  public @DotSeparatedIdentifiers String packageName(int id) {
+    checkId(id);
+    return path(parents[id]);
+  }
+
+  /**
+   * Returns the dot-separated identifiers on the path from the root to the given node.
+   *
+   * @param node a node
+   * @return the name of the node, or the empty string for the root
+   */
+  private String path(int node) {
+    int length = -1;
+    for (int n = node; n != ROOT; n = parents[n]) {
+      length += labelOffsets[n + 1] - labelOffsets[n] + 1;
+    }
+    if (length <= 0) {
+      return "";
+    }
+    byte[] result = new byte[length];
+    int end = length;
+    for (int n = node; n != ROOT; n = parents[n]) {
+      int labelStart = labelOffsets[n];
+      int labelLength = labelOffsets[n + 1] - labelStart;
+      end -= labelLength;
+      System.arraycopy(labels, labelStart, result, end, labelLength);
+      if (end > 0) {
+        result[--end] = '.';
+      }
+    }
+    return new String(result, StandardCharsets.US_ASCII);
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Enumeration
+  //
+
+  /**
+   * Returns the names in the set whose package is the given one. For example, the names in
+   * package "java.util" include "java.util.List" and "java.util.Map$Entry", but not
+   * "java.util.concurrent.Future".
+   *
+   * @param packageName dot-separated identifiers, or the empty string for the unnamed package
+   * @return the names in the package, in no particular order
+   */
+  @SuppressWarnings("signature") // only binary names are added
+  public List<@BinaryName String> namesInPackage(String packageName) {
+    List<@BinaryName String> result = new ArrayList<>();
+    int pkg = findNode(packageName);
+    if (pkg == -1) {
+      return result;
+    }
+    for (int child = firstChildren[pkg]; child != 0; child = nextSiblings[child]) {
+      if (names.get(child)) {
+        result.add(path(child));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the packages that contain at least one name in the set, including the empty string if
+   * the unnamed package does.
+   *
+   * @return the packages of the names in the set, in no particular order
+   */
+  @SuppressWarnings("signature") // prefixes of binary names, or the unnamed package
+  public List<@DotSeparatedIdentifiers String> packages() {
+    List<@DotSeparatedIdentifiers String> result = new ArrayList<>();
+    for (int node = ROOT; node < nodeCount; node++) {
+      for (int child = firstChildren[node]; child != 0; child = nextSiblings[child]) {
+        if (names.get(child)) {
+          result.add(path(node));
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns all the names in the set.
+   *
+   * @return the names in the set, in no particular order
+   */
+  @SuppressWarnings("signature") // only binary names are added
+  public List<@BinaryName String> names() {
+    List<@BinaryName String> result = new ArrayList<>(size);
+    for (int node = names.nextSetBit(0); node >= 0; node = names.nextSetBit(node + 1)) {
+      result.add(path(node));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,481 @@
+package org.plumelib.reflection;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A concurrent cache that holds at most a fixed number of entries. Every memo in this library that
+ * is not bound to the lifetime of a single class is a BoundedCache.
+ *
+ * <p>Lookups do not lock. Each entry has a small use count, which a hit increments; the count
+ * saturates, so a frequently-used entry is not written on every hit. When the cache is full, an
+ * insertion evicts an entry chosen by a clock: the clock hand sweeps over the entries, decrementing
+ * each count, and evicts the first entry whose count is zero. Thus, an entry that is used often
+ * survives many sweeps, and one that was used once is evicted on the next sweep.
+ *
+ * <p>Optionally, the cache holds its keys or its values weakly, so that it does not keep them from
+ * being garbage-collected. Weak keys are compared by identity, which is appropriate for {@code
+ * Class} and {@code ClassLoader} keys. An entry whose key or value has been collected is a miss,
+ * and it is the first to be evicted.
+ *
+ * <p>Hits, misses, and evictions are counted in {@link Metrics}. The capacity can be overridden by
+ * the system property {@code org.plumelib.reflection.cache.NAME.capacity}, where NAME is the name
+ * of the cache in a {@link Metrics} report, such as {@code argumentLists}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class BoundedCache<K extends Object, V extends Object> {
+
+  /** The largest use count of an entry. */
+  private static final int MAX_FREQUENCY = 15;
+
+  /** The number of slots in the clock when a cache is created, unless its capacity is smaller. */
+  private static final int INITIAL_SLOTS = 16;
+
+  /** The name of the cache, under which its statistics are recorded. */
+  private final Metrics.Cache name;
+
+  /** The maximum number of entries. */
+  private final int capacity;
+
+  /** True if keys are held weakly and compared by identity. */
+  private final boolean weakKeys;
+
+  /** True if values are held weakly. */
+  private final boolean weakValues;
+
+  /**
+   * The entries. A key is a {@link WeakKey} if {@link #weakKeys} is true and a {@code K}
+   * otherwise. Every entry is also in {@link #clock}.
+   */
+  private final ConcurrentHashMap<Object, Entry> map = new ConcurrentHashMap<>();
+
+  /** The lock that guards {@link #clock}, {@link #hand}, and {@link #size}. */
+  private final Object lock = new Object();
+
+  /**
+   * The entries, in the order that the clock hand visits them. Grows up to {@link #capacity}
+   * slots. Guarded by {@link #lock}.
+   */
+  private @Nullable Entry[] clock;
+
+  /** The index in {@link #clock} of the next entry to visit. Guarded by {@link #lock}. */
+  private int hand = 0;
+
+  /** The number of entries in {@link #clock}. Guarded by {@link #lock}. */
+  private int size = 0;
+
+  /**
+   * Creates a BoundedCache.
+   *
+   * @param builder the configuration of the cache
+   */
+  private BoundedCache(Builder builder) {
+    this.name = builder.name;
+    this.capacity =
+        Math.max(
+            1,
+            Integer.getInteger(
+                "org.plumelib.reflection.cache." + name.key() + ".capacity", builder.capacity));
+    this.weakKeys = builder.weakKeys;
+    this.weakValues = builder.weakValues;
+    this.clock = new Entry[Math.min(capacity, INITIAL_SLOTS)];
+  }
+
+  /**
+   * Returns a builder for a cache with the given name.
+   *
+   * @param name the name of the cache, under which its statistics are recorded
+   * @return a builder for a cache
+   */
+  static Builder builder(Metrics.Cache name) {
+    return new Builder(name);
+  }
+
+  /** The configuration of a {@link BoundedCache}. */
+  static final class Builder {
+    /** The name of the cache. */
+    final Metrics.Cache name;
+
+    /** The maximum number of entries. */
+    int capacity = 1024;
+
+    /** True if keys are held weakly and compared by identity. */
+    boolean weakKeys = false;
+
+    /** True if values are held weakly. */
+    boolean weakValues = false;
+
+    /**
+     * Creates a Builder.
+     *
+     * @param name the name of the cache
+     */
+    private Builder(Metrics.Cache name) {
+      this.name = name;
+    }
+
+    /**
+     * Sets the maximum number of entries. The default is 1024.
+     *
+     * @param capacity the maximum number of entries; must be positive
+     * @return this builder
+     */
+    Builder capacity(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("Bad capacity: " + capacity);
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * Makes the cache hold its keys weakly and compare them by identity.
+     *
+     * @return this builder
+     */
+    Builder weakKeys() {
+      this.weakKeys = true;
+      return this;
+    }
+
+    /**
+     * Makes the cache hold its values weakly.
+     *
+     * @return this builder
+     */
+    Builder weakValues() {
+      this.weakValues = true;
+      return this;
+    }
+
+    /**
+     * Creates a cache with this configuration.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a new, empty cache
+     */
+    <K extends Object, V extends Object> BoundedCache<K, V> build() {
+      return new BoundedCache<>(this);
+    }
+  }
+
+  /** An entry of the cache. */
+  private static final class Entry {
+    /** The key under which this entry is in the map. */
+    final Object key;
+
+    /** The value, or a {@code WeakReference} to it if values are weak. */
+    final Object value;
+
+    /**
+     * How often the entry has been used since the clock hand last passed it. Updated without
+     * synchronization, so concurrent hits may be lost, which does no harm.
+     */
+    int frequency = 0;
+
+    /**
+     * Creates an Entry.
+     *
+     * @param key the key under which this entry is in the map
+     * @param value the value, or a {@code WeakReference} to it
+     */
+    Entry(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A key that is held weakly and compared by identity. A WeakKey is equal to another WeakKey or to
+   * a {@link LookupKey} with the same referent.
+   */
+  private static final class WeakKey extends WeakReference<Object> {
+    /** The identity hash code of the referent. */
+    private final int hash;
+
+    /**
+     * Creates a WeakKey.
+     *
+     * @param referent the key
+     */
+    WeakKey(Object referent) {
+      super(referent);
+      this.hash = System.identityHashCode(referent);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (this == other) {
+        return true;
+      }
+      Object referent = get();
+      if (referent == null) {
+        return false;
+      }
+      if (other instanceof LookupKey) {
+        return referent == ((LookupKey) other).referent;
+      }
+      return other instanceof WeakKey && referent == ((WeakKey) other).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * A key that is used only to look up a {@link WeakKey} in the map. {@code
+   * ConcurrentHashMap.get} compares the key it is given to the stored keys, so a LookupKey finds
+   * the WeakKey with the same referent. Unlike a WeakKey, a LookupKey is not a {@code Reference},
+   * and each thread reuses one LookupKey for all its lookups, so a lookup allocates nothing.
+   */
+  private static final class LookupKey {
+    /** The key being looked up, or null between lookups. */
+    @Nullable Object referent;
+
+    /** Creates a LookupKey. */
+    LookupKey() {}
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (this == other) {
+        return true;
+      }
+      return referent != null
+          && other instanceof WeakKey
+          && referent == ((WeakKey) other).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(referent);
+    }
+  }
+
+  /** The LookupKey of each thread. */
+  private static final ThreadLocal<LookupKey> lookupKeys = ThreadLocal.withInitial(LookupKey::new);
+
+  /**
+   * Returns the key under which the given key is stored in the map.
+   *
+   * @param key a key
+   * @return the map key for {@code key}
+   */
+  private Object mapKey(K key) {
+    return weakKeys ? new WeakKey(key) : key;
+  }
+
+  /**
+   * Returns the entry for the given key, without allocating.
+   *
+   * @param key a key
+   * @return the entry for {@code key}, or null if there is none
+   */
+  private @Nullable Entry find(K key) {
+    if (!weakKeys) {
+      return map.get(key);
+    }
+    LookupKey lookupKey = lookupKeys.get();
+    lookupKey.referent = key;
+    try {
+      return map.get(lookupKey);
+    } finally {
+      // Do not keep the key from being garbage-collected.
+      lookupKey.referent = null;
+    }
+  }
+
+  /**
+   * Returns the value of an entry, or null if it has been garbage-collected.
+   *
+   * @param entry an entry
+   * @return the value of {@code entry}, or null
+   */
+  @SuppressWarnings("unchecked") // the cache stores only values of type V
+  private @Nullable V valueOf(Entry entry) {
+    Object value = entry.value;
+    return (V) (weakValues ? ((WeakReference<?>) value).get() : value);
+  }
+
+  /**
+   * Returns true if the key or the value of the given entry has been garbage-collected.
+   *
+   * @param entry an entry
+   * @return true if the entry can never be a hit again
+   */
+  private boolean isCleared(Entry entry) {
+    return (weakKeys && ((WeakKey) entry.key).get() == null) || valueOf(entry) == null;
+  }
+
+  /**
+   * Returns the value for the given key, or null if the cache has none.
+   *
+   * @param key a key
+   * @return the value for {@code key}, or null
+   */
+  @Nullable V get(K key) {
+    Entry entry = find(key);
+    V value = (entry == null) ? null : valueOf(entry);
+    Metrics.recordLookup(name, value != null);
+    if (entry != null && value != null) {
+      int frequency = entry.frequency;
+      if (frequency < MAX_FREQUENCY) {
+        entry.frequency = frequency + 1;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns true if the cache has a value for the given key. Unlike {@link #get}, does not count as
+   * a use of the entry or as a hit or miss.
+   *
+   * @param key a key
+   * @return true if the cache has a value for {@code key}
+   */
+  boolean containsKey(K key) {
+    Entry entry = find(key);
+    return entry != null && !isCleared(entry);
+  }
+
+  /**
+   * Stores a value for the given key, unless the cache already has one, possibly evicting another
+   * entry.
+   *
+   * @param key a key
+   * @param value the value to store
+   * @return the value that the cache now has for {@code key}: either an existing value or {@code
+   *     value}
+   */
+  V putIfAbsent(K key, V value) {
+    Object lock = this.lock;
+    synchronized (lock) {
+      Entry existing = find(key);
+      if (existing != null) {
+        V existingValue = valueOf(existing);
+        if (existingValue != null) {
+          return existingValue;
+        }
+      }
+      // Reuse the map key of an entry whose value was collected, so that the map key is always
+      // the entry's key, which eviction removes by identity once a weak key's referent dies.
+      Object mapKey = existing != null ? existing.key : mapKey(key);
+      Entry entry = new Entry(mapKey, weakValues ? new WeakReference<>(value) : value);
+      if (existing != null) {
+        // The old value was collected; reuse its slot.
+        replaceInClock(existing, entry);
+      } else {
+        addToClock(entry);
+      }
+      map.put(mapKey, entry);
+      return value;
+    }
+  }
+
+  /**
+   * Replaces an entry in the clock. The caller must hold {@link #lock}.
+   *
+   * @param old an entry in the clock
+   * @param entry the entry to put in its place
+   */
+  @SuppressWarnings("index") // size <= clock.length
+  private void replaceInClock(Entry old, Entry entry) {
+    for (int i = 0; i < size; i++) {
+      if (clock[i] == old) {
+        clock[i] = entry;
+        return;
+      }
+    }
+    throw new Error("Entry is not in the clock");
+  }
+
+  /**
+   * Adds an entry to the clock, evicting another entry if the cache is full. The caller must hold
+   * {@link #lock}.
+   *
+   * @param entry the entry to add
+   */
+  @SuppressWarnings("index") // size <= clock.length <= capacity, and hand < size
+  private void addToClock(Entry entry) {
+    if (size < capacity) {
+      if (size == clock.length) {
+        @Nullable Entry[] larger = new Entry[Math.min(capacity, 2 * clock.length)];
+        System.arraycopy(clock, 0, larger, 0, size);
+        clock = larger;
+      }
+      clock[size] = entry;
+      size++;
+      return;
+    }
+    while (true) {
+      Entry candidate = clock[hand];
+      assert candidate != null : "@AssumeAssertion(nullness): the clock is full";
+      if (candidate.frequency > 0 && !isCleared(candidate)) {
+        candidate.frequency--;
+        hand = (hand + 1) % size;
+        continue;
+      }
+      map.remove(candidate.key, candidate);
+      if (!isCleared(candidate)) {
+        Metrics.recordEviction(name);
+      }
+      clock[hand] = entry;
+      hand = (hand + 1) % size;
+      return;
+    }
+  }
+
+  /** Removes every entry. Removed entries are not counted as evictions. */
+  void clear() {
+    Object lock = this.lock;
+    synchronized (lock) {
+      map.clear();
+      Arrays.fill(clock, null);
+      size = 0;
+      hand = 0;
+    }
+  }
+
+  /**
+   * Returns the keys that have values in the cache.
+   *
+   * @return a new set containing the keys
+   */
+  @SuppressWarnings("unchecked") // the cache stores only keys of type K
+  Set<K> keys() {
+    Set<K> result = new HashSet<>();
+    for (Entry entry : map.values()) {
+      Object key = weakKeys ? ((WeakKey) entry.key).get() : entry.key;
+      if (key != null && valueOf(entry) != null) {
+        result.add((K) key);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of entries, including any whose key or value has been garbage-collected.
+   *
+   * @return the number of entries
+   */
+  int size() {
+    return map.size();
+  }
+
+  /**
+   * Returns the maximum number of entries.
+   *
+   * @return the maximum number of entries
+   */
+  int capacity() {
+    return capacity;
+  }
+}
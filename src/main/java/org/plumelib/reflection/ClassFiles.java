@@ -0,0 +1,208 @@
+package org.plumelib.reflection;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import org.checkerframework.checker.signature.qual.BinaryName;
+import org.checkerframework.checker.signature.qual.InternalForm;
+
+/**
+ * Reads information from the contents of a class file (JVMS chapter 4) without defining the class.
+ * The contents are read in place from a {@link ByteBuffer}, using absolute gets, so the buffer's
+ * position is not changed and no bytes are copied.
+ */
+final class ClassFiles {
+
+  /** Do not instantiate. */
+  private ClassFiles() {
+    throw new Error("Do not instantiate");
+  }
+
+  /** The magic number at the beginning of every class file. */
+  private static final int MAGIC = 0xCAFEBABE;
+
+  /** The offset of constant_pool_count: after magic, minor_version, and major_version. */
+  private static final int CONSTANT_POOL_COUNT_OFFSET = 8;
+
+  /** The tag of a CONSTANT_Utf8 entry. */
+  private static final int CONSTANT_UTF8 = 1;
+
+  /** The tag of a CONSTANT_Class entry. */
+  private static final int CONSTANT_CLASS = 7;
+
+  /** The tag of a CONSTANT_Long entry. */
+  private static final int CONSTANT_LONG = 5;
+
+  /** The tag of a CONSTANT_Double entry. */
+  private static final int CONSTANT_DOUBLE = 6;
+
+  /**
+   * Returns the binary name of the class that the given class file defines: the name referenced
+   * by its {@code this_class} item.
+   *
+   * @param classBytes the contents of a class file, from the buffer's position to its limit; the
+   *     buffer is not side-effected
+   * @return the binary name of the class
+   * @throws ClassFormatError if the bytes are not a well-formed class file, as far as this method
+   *     reads them
+   */
+  static @BinaryName String thisClassName(ByteBuffer classBytes) {
+    int start = classBytes.position();
+    try {
+      if (classBytes.getInt(start) != MAGIC) {
+        throw new ClassFormatError("Bad magic number");
+      }
+      int count = u2(classBytes, start + CONSTANT_POOL_COUNT_OFFSET);
+      // offsets[i] is the offset of the tag of constant pool entry i.  Entry 0 is unused.
+      int[] offsets = new int[count];
+      int offset = start + CONSTANT_POOL_COUNT_OFFSET + 2;
+      int i = 1;
+      while (i < count) {
+        offsets[i] = offset;
+        int tag = classBytes.get(offset) & 0xFF;
+        offset += 1 + entrySize(classBytes, offset, tag);
+        // A CONSTANT_Long or CONSTANT_Double entry occupies two slots.
+        i += (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) ? 2 : 1;
+      }
+      // Skip access_flags.
+      int thisClass = u2(classBytes, offset + 2);
+      int classOffset = entry(classBytes, offsets, thisClass, CONSTANT_CLASS);
+      int nameOffset = entry(classBytes, offsets, u2(classBytes, classOffset + 1), CONSTANT_UTF8);
+      @SuppressWarnings("signature") // the name of a CONSTANT_Class entry is in internal form
+      @InternalForm String internalForm = utf8(classBytes, nameOffset);
+      return Signatures.internalFormToBinaryName(internalForm);
+    } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+      ClassFormatError error = new ClassFormatError("Truncated class file");
+      error.initCause(e);
+      throw error;
+    }
+  }
+
+  /**
+   * Returns the size of a constant pool entry, not counting its tag.
+   *
+   * @param classBytes the contents of a class file
+   * @param offset the offset of the entry's tag
+   * @param tag the entry's tag
+   * @return the number of bytes that follow the tag
+   * @throws ClassFormatError if the tag is not a valid constant pool tag
+   */
+  private static int entrySize(ByteBuffer classBytes, int offset, int tag) {
+    switch (tag) {
+      case CONSTANT_UTF8:
+        return 2 + u2(classBytes, offset + 1);
+      case CONSTANT_CLASS:
+      case 8: // String
+      case 16: // MethodType
+      case 19: // Module
+      case 20: // Package
+        return 2;
+      case 15: // MethodHandle
+        return 3;
+      case 3: // Integer
+      case 4: // Float
+      case 9: // Fieldref
+      case 10: // Methodref
+      case 11: // InterfaceMethodref
+      case 12: // NameAndType
+      case 17: // Dynamic
+      case 18: // InvokeDynamic
+        return 4;
+      case CONSTANT_LONG:
+      case CONSTANT_DOUBLE:
+        return 8;
+      default:
+        throw new ClassFormatError("Bad constant pool tag " + tag + " at offset " + offset);
+    }
+  }
+
+  /**
+   * Returns the offset of the given constant pool entry, after checking its tag.
+   *
+   * @param classBytes the contents of a class file
+   * @param offsets the offset of each constant pool entry
+   * @param index a constant pool index
+   * @param expectedTag the tag that the entry must have
+   * @return the offset of the entry's tag
+   * @throws ClassFormatError if the index is out of range or the entry has a different tag
+   */
+  private static int entry(ByteBuffer classBytes, int[] offsets, int index, int expectedTag) {
+    if (index <= 0 || index >= offsets.length || offsets[index] == 0) {
+      throw new ClassFormatError("Bad constant pool index " + index);
+    }
+    int offset = offsets[index];
+    int tag = classBytes.get(offset) & 0xFF;
+    if (tag != expectedTag) {
+      throw new ClassFormatError(
+          "Constant pool entry " + index + " has tag " + tag + ", expected " + expectedTag);
+    }
+    return offset;
+  }
+
+  /**
+   * Returns the unsigned two-byte value at the given offset.
+   *
+   * @param classBytes the contents of a class file
+   * @param offset an offset
+   * @return the big-endian unsigned 16-bit value at {@code offset}
+   */
+  private static int u2(ByteBuffer classBytes, int offset) {
+    return ((classBytes.get(offset) & 0xFF) << 8) | (classBytes.get(offset + 1) & 0xFF);
+  }
+
+  /**
+   * Decodes a CONSTANT_Utf8 entry, whose bytes are in modified UTF-8 (JVMS section 4.4.7).
+   *
+   * @param classBytes the contents of a class file
+   * @param offset the offset of the entry's tag
+   * @return the string that the entry represents
+   * @throws ClassFormatError if the bytes are not valid modified UTF-8
+   */
+  private static String utf8(ByteBuffer classBytes, int offset) {
+    int length = u2(classBytes, offset + 1);
+    int pos = offset + 3;
+    int end = pos + length;
+    char[] chars = new char[length];
+    int numChars = 0;
+    while (pos < end) {
+      int b = classBytes.get(pos) & 0xFF;
+      if (b != 0 && b < 0x80) {
+        chars[numChars++] = (char) b;
+        pos++;
+      } else if ((b & 0xE0) == 0xC0) {
+        chars[numChars++] = (char) (((b & 0x1F) << 6) | continuation(classBytes, pos + 1, end));
+        pos += 2;
+      } else if ((b & 0xF0) == 0xE0) {
+        chars[numChars++] =
+            (char)
+                (((b & 0x0F) << 12)
+                    | (continuation(classBytes, pos + 1, end) << 6)
+                    | continuation(classBytes, pos + 2, end));
+        pos += 3;
+      } else {
+        throw new ClassFormatError("Bad modified UTF-8 byte " + b + " at offset " + pos);
+      }
+    }
+    return new String(chars, 0, numChars);
+  }
+
+  /**
+   * Returns the payload of a continuation byte of a multi-byte modified UTF-8 sequence.
+   *
+   * @param classBytes the contents of a class file
+   * @param pos the offset of the continuation byte
+   * @param end the offset just past the end of the string
+   * @return the low six bits of the byte
+   * @throws ClassFormatError if the byte is past the end of the string or is not a continuation
+   *     byte
+   */
+  private static int continuation(ByteBuffer classBytes, int pos, int end) {
+    if (pos >= end) {
+      throw new ClassFormatError("Truncated modified UTF-8 sequence at offset " + pos);
+    }
+    int b = classBytes.get(pos) & 0xFF;
+    if ((b & 0xC0) != 0x80) {
+      throw new ClassFormatError("Bad modified UTF-8 continuation byte " + b + " at offset " + pos);
+    }
+    return b & 0x3F;
+  }
+}
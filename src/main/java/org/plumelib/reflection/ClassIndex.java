@@ -0,0 +1,607 @@
+package org.plumelib.reflection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.signature.qual.BinaryName;
+
+/**
+ * An index of the classes on a classpath, which answers questions such as "which classes are in
+ * package X?" and "which classpath entry provides class Y?" without loading any class.
+ *
+ * <p>Building an index reads the central directory of each jar file and walks each directory,
+ * using the given executor to scan entries, and the subdirectories of each directory, in parallel.
+ *
+ * <p>An index can be written to a file, and {@link #load} reuses that file on a later run: a jar
+ * file whose modification time and size are unchanged is not rescanned. A directory is always
+ * rescanned, because its modification time does not reflect changes to its subdirectories.
+ *
+ * <p>Like the classpath, an index gives precedence to earlier entries: if two entries contain
+ * classes with the same name, the class is attributed to the earlier entry. An entry that does
+ * not exist, or a file that is not a jar file, contains no classes.
+ */
+public final class ClassIndex {
+
+  /** The first four bytes of an index file: "CIDX". */
+  private static final int MAGIC = 0x43494458;
+
+  /** The version of the index file format. */
+  private static final int VERSION = 1;
+
+  /** The classpath entries, in order. */
+  private final List<Entry> entries;
+
+  /** Maps each binary name to the index, in {@link #entries}, of the entry that provides it. */
+  private final Map<@BinaryName String, Integer> classes = new HashMap<>();
+
+  /** Maps each package name to the binary names of its classes, in sorted order. */
+  private final Map<String, List<@BinaryName String>> packages = new HashMap<>();
+
+  /** The number of entries that were taken from an index file rather than scanned. */
+  private final int numReused;
+
+  /** A classpath entry and the classes in it. */
+  private static final class Entry {
+
+    /** The pathname of the jar file or directory, as it appears on the classpath. */
+    final String pathname;
+
+    /** True if the entry is a jar or zip file, false if it is a directory or does not exist. */
+    final boolean isJar;
+
+    /** The modification time of the file, in milliseconds, or -1 if it does not exist. */
+    final long lastModified;
+
+    /** The size of the file, in bytes, or -1 if it does not exist. */
+    final long size;
+
+    /** The binary names of the classes in the entry. */
+    final List<@BinaryName String> names;
+
+    /**
+     * Creates a new Entry.
+     *
+     * @param pathname the pathname of the jar file or directory
+     * @param isJar true if the entry is a jar or zip file
+     * @param lastModified the modification time of the file, or -1 if it does not exist
+     * @param size the size of the file, or -1 if it does not exist
+     * @param names the binary names of the classes in the entry
+     */
+    Entry(
+        String pathname,
+        boolean isJar,
+        long lastModified,
+        long size,
+        List<@BinaryName String> names) {
+      this.pathname = pathname;
+      this.isJar = isJar;
+      this.lastModified = lastModified;
+      this.size = size;
+      this.names = names;
+    }
+  }
+
+  /**
+   * Creates a new ClassIndex.
+   *
+   * @param entries the classpath entries, in order
+   * @param numReused the number of entries that were taken from an index file
+   */
+  private ClassIndex(List<Entry> entries, int numReused) {
+    this.entries = entries;
+    this.numReused = numReused;
+    Map<String, List<@BinaryName String>> unsorted = new TreeMap<>();
+    for (int i = 0; i < entries.size(); i++) {
+      for (@BinaryName String name : entries.get(i).names) {
+        if (classes.putIfAbsent(name, i) == null) {
+          unsorted.computeIfAbsent(packageName(name), k -> new ArrayList<>()).add(name);
+        }
+      }
+    }
+    for (Map.Entry<String, List<@BinaryName String>> pkg : unsorted.entrySet()) {
+      List<@BinaryName String> names = pkg.getValue();
+      Collections.sort(names);
+      packages.put(pkg.getKey(), Collections.unmodifiableList(names));
+    }
+  }
+
+  /**
+   * Builds an index of the given classpath entries.
+   *
+   * @param classpath the classpath entries, such as {@code new Classpath(cp).entries()}
+   * @param executor the executor used to scan the entries
+   * @return an index of the classes in the entries
+   * @throws IOException if there is trouble reading a jar file or directory
+   */
+  public static ClassIndex build(Collection<String> classpath, Executor executor)
+      throws IOException {
+    return new ClassIndex(scan(classpath, Collections.emptyMap(), executor), 0);
+  }
+
+  /**
+   * Returns an index of the given classpath entries, reusing the index file if it exists. A jar
+   * file whose modification time and size match those recorded in the index file is not
+   * rescanned. If the index file does not exist, is malformed, or is out of date, it is rewritten;
+   * otherwise it is left untouched.
+   *
+   * @param classpath the classpath entries, such as {@code new Classpath(cp).entries()}
+   * @param indexFile a file written by {@link #write} or by this method
+   * @param executor the executor used to scan the entries
+   * @return an index of the classes in the entries
+   * @throws IOException if there is trouble reading a jar file or directory, or writing the index
+   *     file
+   */
+  public static ClassIndex load(Collection<String> classpath, Path indexFile, Executor executor)
+      throws IOException {
+    Map<String, Entry> previous;
+    try {
+      previous = read(indexFile);
+    } catch (IOException e) {
+      // A missing or corrupt index file is rebuilt.
+      previous = Collections.emptyMap();
+    }
+    List<Entry> entries = scan(classpath, previous, executor);
+    int numReused = 0;
+    // The classpath may list an entry more than once, but the index file records it once.
+    boolean changed = new HashSet<>(classpath).size() != previous.size();
+    for (Entry entry : entries) {
+      Entry old = previous.get(entry.pathname);
+      if (old == entry) {
+        numReused++;
+      } else if (old == null || entry.isJar || old.isJar || !entry.names.equals(old.names)) {
+        changed = true;
+      }
+    }
+    ClassIndex result = new ClassIndex(entries, numReused);
+    if (changed) {
+      result.write(indexFile);
+    }
+    return result;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Queries
+  //
+
+  /**
+   * Returns true if some classpath entry contains a class with the given name.
+   *
+   * @param binaryName a binary name, such as "java.util.Map$Entry"
+   * @return true if the class is on the classpath
+   */
+  public boolean contains(String binaryName) {
+    return classes.containsKey(binaryName);
+  }
+
+  /**
+   * Returns the classpath entry that provides the given class.
+   *
+   * @param binaryName a binary name, such as "java.util.Map$Entry"
+   * @return the first classpath entry that contains the class, or null if none does
+   */
+  public @Nullable String locate(String binaryName) {
+    Integer i = classes.get(binaryName);
+    return (i == null) ? null : entries.get(i).pathname;
+  }
+
+  /**
+   * Returns the classes in the given package, not including those in subpackages.
+   *
+   * @param packageName a package name, such as "java.util", or "" for the unnamed package
+   * @return the binary names of the classes in the package, in sorted order
+   */
+  public List<@BinaryName String> classesInPackage(String packageName) {
+    List<@BinaryName String> result = packages.get(packageName);
+    return (result == null) ? Collections.emptyList() : result;
+  }
+
+  /**
+   * Returns the packages that contain at least one class.
+   *
+   * @return the names of the packages that contain at least one class
+   */
+  public Set<String> packages() {
+    return Collections.unmodifiableSet(packages.keySet());
+  }
+
+  /**
+   * Returns the number of distinct classes in the index.
+   *
+   * @return the number of distinct classes in the index
+   */
+  public int size() {
+    return classes.size();
+  }
+
+  /**
+   * Returns the number of classpath entries that {@link #load} took from the index file rather
+   * than rescanning.
+   *
+   * @return the number of classpath entries that were not rescanned
+   */
+  int numReused() {
+    return numReused;
+  }
+
+  /**
+   * Returns the package of the given class.
+   *
+   * @param binaryName a binary name
+   * @return the package name, or "" for the unnamed package
+   */
+  private static String packageName(@BinaryName String binaryName) {
+    int dot = binaryName.lastIndexOf('.');
+    return (dot == -1) ? "" : binaryName.substring(0, dot);
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Scanning
+  //
+
+  /**
+   * Scans the given classpath entries in parallel. No task that runs on {@code executor} waits for
+   * another such task, so scanning completes even on an executor with a single thread.
+   *
+   * @param classpath the classpath entries
+   * @param previous entries read from an index file, indexed by pathname; an unchanged jar file
+   *     among them is reused rather than rescanned
+   * @param executor the executor used to scan the entries
+   * @return the scanned entries, in classpath order
+   * @throws IOException if there is trouble reading a jar file or directory
+   */
+  private static List<Entry> scan(
+      Collection<String> classpath, Map<String, Entry> previous, Executor executor)
+      throws IOException {
+    List<CompletableFuture<Entry>> futures = new ArrayList<>(classpath.size());
+    for (String pathname : classpath) {
+      futures.add(
+          CompletableFuture.supplyAsync(
+                  () -> {
+                    try {
+                      return scanEntry(pathname, previous.get(pathname), executor);
+                    } catch (IOException e) {
+                      throw new UncheckedIOException(e);
+                    }
+                  },
+                  executor)
+              .thenCompose(entry -> entry));
+    }
+    List<Entry> result = new ArrayList<>(futures.size());
+    for (CompletableFuture<Entry> future : futures) {
+      result.add(join(future));
+    }
+    return result;
+  }
+
+  /**
+   * Scans one classpath entry. A jar file is scanned before this method returns; a directory's
+   * subdirectories are walked by separate tasks.
+   *
+   * @param pathname a jar file or directory
+   * @param previous the entry for the same pathname read from an index file, or null
+   * @param executor the executor used to walk subdirectories
+   * @return a future for the entry
+   * @throws IOException if there is trouble reading the jar file or directory
+   */
+  private static CompletableFuture<Entry> scanEntry(
+      String pathname, @Nullable Entry previous, Executor executor) throws IOException {
+    Path path = Path.of(pathname);
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return CompletableFuture.completedFuture(
+          new Entry(pathname, false, -1, -1, Collections.emptyList()));
+    }
+    if (attrs.isDirectory()) {
+      return scanDirectory(path, executor)
+          .thenApply(names -> new Entry(pathname, false, -1, -1, names));
+    }
+    long lastModified = attrs.lastModifiedTime().toMillis();
+    long size = attrs.size();
+    if (previous != null
+        && previous.isJar
+        && previous.lastModified == lastModified
+        && previous.size == size) {
+      return CompletableFuture.completedFuture(previous);
+    }
+    List<@BinaryName String> names = new ArrayList<>();
+    try (ZipFile zipFile = new ZipFile(path.toFile())) {
+      // Iterating over the entries reads only the central directory.
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        String entryName = entry.getName();
+        if (!entry.isDirectory() && DefiningClassLoader.isDefinableClassFile(entryName)) {
+          names.add(Signatures.classfilenameToBinaryName(entryName));
+        }
+      }
+    } catch (ZipException e) {
+      // Not a jar file, such as a resource or a truncated jar. Like the JVM, ignore it. It is
+      // recorded as an empty jar, so it is not reopened until it changes.
+      names.clear();
+    }
+    return CompletableFuture.completedFuture(
+        new Entry(pathname, true, lastModified, size, names));
+  }
+
+  /**
+   * Returns the binary names of the class files in a directory. Each immediate subdirectory is
+   * walked by a separate task, and the results are combined when the last of them completes,
+   * without waiting for them.
+   *
+   * @param root a directory on the classpath
+   * @param executor the executor used to walk subdirectories
+   * @return a future for the binary names of the class files in the directory and its
+   *     subdirectories, in sorted order
+   * @throws IOException if there is trouble reading the directory
+   */
+  private static CompletableFuture<List<@BinaryName String>> scanDirectory(
+      Path root, Executor executor) throws IOException {
+    List<@BinaryName String> result = new ArrayList<>();
+    List<CompletableFuture<List<@BinaryName String>>> subdirs = new ArrayList<>();
+    try (Stream<Path> children = Files.list(root)) {
+      for (Path child : (Iterable<Path>) children::iterator) {
+        if (Files.isDirectory(child)) {
+          subdirs.add(
+              CompletableFuture.supplyAsync(
+                  () -> {
+                    try {
+                      return walk(root, child);
+                    } catch (IOException e) {
+                      throw new UncheckedIOException(e);
+                    }
+                  },
+                  executor));
+        } else {
+          addIfClassFile(root, child, result);
+        }
+      }
+    }
+    return CompletableFuture.allOf(subdirs.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            unused -> {
+              for (CompletableFuture<List<@BinaryName String>> subdir : subdirs) {
+                // The future has completed, so this does not wait.
+                result.addAll(subdir.join());
+              }
+              // Sort, so that the result does not depend on the order in which the file system
+              // lists files.
+              Collections.sort(result);
+              return result;
+            });
+  }
+
+  /**
+   * Returns the binary names of the class files in a subdirectory of a classpath directory.
+   *
+   * @param root a directory on the classpath
+   * @param dir a subdirectory of {@code root}
+   * @return the binary names of the class files in {@code dir} and its subdirectories
+   * @throws IOException if there is trouble reading the directory
+   */
+  private static List<@BinaryName String> walk(Path root, Path dir) throws IOException {
+    List<@BinaryName String> result = new ArrayList<>();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        addIfClassFile(root, file, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * If the file is a class file, adds its binary name to the list.
+   *
+   * @param root a directory on the classpath
+   * @param file a file under {@code root}
+   * @param names the list to add to; is side-effected by this method
+   */
+  private static void addIfClassFile(Path root, Path file, List<@BinaryName String> names) {
+    String relative = root.relativize(file).toString();
+    if (DefiningClassLoader.isDefinableClassFile(relative) && Files.isRegularFile(file)) {
+      names.add(Signatures.classfilenameToBinaryName(relative));
+    }
+  }
+
+  /**
+   * Waits for a future, and returns its result. Rethrows an {@link IOException} that the
+   * computation threw wrapped in an {@link UncheckedIOException}.
+   *
+   * @param <T> the type of the result
+   * @param future a future
+   * @return the result of the future
+   * @throws IOException if the computation threw an IOException
+   */
+  private static <T> T join(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw e;
+    }
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Index files
+  //
+
+  /*
+   * The format of an index file is, using big-endian integers:
+   *
+   *   int    MAGIC
+   *   int    VERSION
+   *   int    number of entries
+   *   for each entry:
+   *     string   pathname
+   *     byte     1 if a jar file, 0 otherwise
+   *     long     modification time in milliseconds
+   *     long     size
+   *     int      number of classes
+   *     string   binary name of each class
+   *
+   * where a string is an unsigned 16-bit length followed by that many bytes of UTF-8.
+   */
+
+  /** The fewest bytes that an entry occupies in an index file: an empty pathname and no classes. */
+  private static final int MIN_ENTRY_BYTES = 2 + 1 + 8 + 8 + 4;
+
+  /** The fewest bytes that a class name occupies in an index file: an empty string. */
+  private static final int MIN_NAME_BYTES = 2;
+
+  /**
+   * Writes this index to a file. The file is written to a temporary file that is then renamed, so
+   * a concurrent reader never sees a partially-written file.
+   *
+   * @param indexFile the file to write
+   * @throws IOException if there is trouble writing the file
+   */
+  public void write(Path indexFile) throws IOException {
+    Path absolute = indexFile.toAbsolutePath();
+    Path dir = absolute.getParent();
+    if (dir == null) {
+      throw new IOException("No parent directory: " + indexFile);
+    }
+    Path tmp = Files.createTempFile(dir, absolute.getFileName() + "-", ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+          writeString(out, entry.pathname);
+          out.writeByte(entry.isJar ? 1 : 0);
+          out.writeLong(entry.lastModified);
+          out.writeLong(entry.size);
+          out.writeInt(entry.names.size());
+          for (String name : entry.names) {
+            writeString(out, name);
+          }
+        }
+      }
+      try {
+        Files.move(
+            tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Writes a string as an unsigned 16-bit length followed by its UTF-8 encoding.
+   *
+   * @param out where to write
+   * @param s the string to write
+   * @throws IOException if there is trouble writing, or the string is too long
+   */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IOException("String too long for index file: " + s);
+    }
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads an index file. Every count in the file is checked against the number of bytes that
+   * remain before anything is allocated, so a corrupt file is reported as malformed.
+   *
+   * @param indexFile the file to read
+   * @return the entries in the file, indexed by pathname
+   * @throws IOException if the file does not exist, there is trouble reading it, or it is
+   *     malformed
+   */
+  private static Map<String, Entry> read(Path indexFile) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Not a version " + VERSION + " class index: " + indexFile);
+      }
+      int numEntries = checkCount(buffer.getInt(), MIN_ENTRY_BYTES, buffer, indexFile);
+      Map<String, Entry> result = new HashMap<>(numEntries * 4 / 3 + 1);
+      for (int i = 0; i < numEntries; i++) {
+        String pathname = readString(buffer);
+        boolean isJar = buffer.get() != 0;
+        long lastModified = buffer.getLong();
+        long size = buffer.getLong();
+        int numNames = checkCount(buffer.getInt(), MIN_NAME_BYTES, buffer, indexFile);
+        List<@BinaryName String> names = new ArrayList<>(numNames);
+        for (int j = 0; j < numNames; j++) {
+          @SuppressWarnings("signature") // written by write(), from binary names
+          @BinaryName String name = readString(buffer);
+          names.add(name);
+        }
+        result.put(pathname, new Entry(pathname, isJar, lastModified, size, names));
+      }
+      return result;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Malformed class index: " + indexFile, e);
+    }
+  }
+
+  /**
+   * Checks that a count read from an index file is not negative, and that the items it counts fit
+   * in the rest of the file.
+   *
+   * @param count a count read from the file
+   * @param minBytes the fewest bytes that each counted item occupies
+   * @param buffer the contents of the file, positioned after the count
+   * @param indexFile the file, for use in diagnostics
+   * @return {@code count}
+   * @throws IOException if the count is negative or too large
+   */
+  private static int checkCount(int count, int minBytes, ByteBuffer buffer, Path indexFile)
+      throws IOException {
+    if (count < 0 || count > buffer.remaining() / minBytes) {
+      throw new IOException("Malformed class index: " + indexFile + ": bad count " + count);
+    }
+    return count;
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}.
+   *
+   * @param buffer the buffer to read from; its position is advanced past the string
+   * @return the string
+   */
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    ByteBuffer slice = buffer.slice();
+    slice.limit(length);
+    buffer.position(buffer.position() + length);
+    return StandardCharsets.UTF_8.decode(slice).toString();
+  }
+}
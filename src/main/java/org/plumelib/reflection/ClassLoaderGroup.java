@@ -0,0 +1,194 @@
+package org.plumelib.reflection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.signature.qual.ClassGetName;
+
+/**
+ * An ordered group of class loaders, such as those of the plugins in a plugin host, that finds a
+ * class by asking the loader that owns the class's package.
+ *
+ * <p>Trying each loader in turn costs a {@link ClassNotFoundException} for each loader that does
+ * not have the class. Instead, a group keeps an index from each package to the first loader (in
+ * group order) that is known to load classes in it. The index is a tree whose nodes are the
+ * identifiers of package names, so a package that is not yet in the index is first looked up in
+ * the loader of its nearest enclosing package: when {@code com.example} belongs to a plugin, so
+ * most likely does {@code com.example.util}. The index is seeded from the packages that the
+ * loaders have already defined, and it learns from each successful lookup.
+ *
+ * <p>If the indexed loader does not have the class, the other loaders are tried in group order, so
+ * a lookup never misses a class that some loader in the group can load. A group is thread-safe.
+ */
+public final class ClassLoaderGroup {
+
+  /** The class loaders, in order. */
+  private final List<ClassLoader> loaders;
+
+  /** The root of the package index; it represents the unnamed package. */
+  private final Node root = new Node();
+
+  /** A node of the package index, which represents a package. */
+  private static final class Node {
+
+    /** The subpackages, indexed by their last identifier. */
+    final Map<String, Node> children = new ConcurrentHashMap<>();
+
+    /**
+     * The index, in {@link ClassLoaderGroup#loaders}, of the loader that owns this package, or -1
+     * if not known.
+     */
+    final AtomicInteger owner = new AtomicInteger(-1);
+
+    /** Creates a new Node. */
+    Node() {}
+  }
+
+  /**
+   * Creates a new ClassLoaderGroup. The package index is seeded from {@link
+   * ClassLoader#getDefinedPackages} of each loader.
+   *
+   * @param loaders the class loaders, in the order in which to search them
+   */
+  public ClassLoaderGroup(List<ClassLoader> loaders) {
+    this.loaders = Collections.unmodifiableList(new ArrayList<>(loaders));
+    for (int i = 0; i < this.loaders.size(); i++) {
+      for (Package p : this.loaders.get(i).getDefinedPackages()) {
+        node(p.getName()).owner.compareAndSet(-1, i);
+      }
+    }
+  }
+
+  /**
+   * Returns the class loaders in this group, in order.
+   *
+   * @return the class loaders in this group
+   */
+  public List<ClassLoader> loaders() {
+    return loaders;
+  }
+
+  /**
+   * Returns the class with the given name, as loaded by the loader in this group that owns its
+   * package. Like {@link Class#forName(String, boolean, ClassLoader)}, the argument is a binary
+   * name for a non-array and a field descriptor for an array, and the class is initialized.
+   *
+   * @param className the name of the class
+   * @return the class with the given name
+   * @throws ClassNotFoundException if no loader in this group can load the class
+   */
+  public Class<?> forName(@ClassGetName String className) throws ClassNotFoundException {
+    String packageName = packageName(className);
+    int guess = lookupIndex(packageName);
+    if (guess != -1) {
+      try {
+        Class<?> result = Class.forName(className, true, loaders.get(guess));
+        node(packageName).owner.compareAndSet(-1, guess);
+        Metrics.recordLookup(Metrics.Cache.PACKAGE_OWNERS, true);
+        // Without the guess, each loader that precedes it might have thrown an exception.
+        Metrics.recordMaxExceptionsAvoided(guess);
+        return result;
+      } catch (ClassNotFoundException e) {
+        // Try the other loaders.
+      }
+    }
+    Metrics.recordLookup(Metrics.Cache.PACKAGE_OWNERS, false);
+    for (int i = 0; i < loaders.size(); i++) {
+      if (i == guess) {
+        continue;
+      }
+      try {
+        Class<?> result = Class.forName(className, true, loaders.get(i));
+        node(packageName).owner.compareAndSet(-1, i);
+        return result;
+      } catch (ClassNotFoundException e) {
+        // Try the next loader.
+      }
+    }
+    throw new ClassNotFoundException(className);
+  }
+
+  /**
+   * Returns the loader that owns the given package or, if that is not known, its nearest enclosing
+   * package.
+   *
+   * @param packageName a package name, or "" for the unnamed package
+   * @return the loader that most likely loads classes in the package, or null if not known
+   */
+  @Nullable ClassLoader lookup(String packageName) {
+    int index = lookupIndex(packageName);
+    return (index == -1) ? null : loaders.get(index);
+  }
+
+  /**
+   * Returns the index of the loader that owns the given package or, if that is not known, its
+   * nearest enclosing package.
+   *
+   * @param packageName a package name, or "" for the unnamed package
+   * @return the index, in {@link #loaders}, of the loader that most likely loads classes in the
+   *     package, or -1 if not known
+   */
+  private int lookupIndex(String packageName) {
+    Node n = root;
+    int result = n.owner.get();
+    int start = 0;
+    while (start < packageName.length()) {
+      int dot = packageName.indexOf('.', start);
+      int end = (dot == -1) ? packageName.length() : dot;
+      n = n.children.get(packageName.substring(start, end));
+      if (n == null) {
+        break;
+      }
+      int owner = n.owner.get();
+      if (owner != -1) {
+        result = owner;
+      }
+      start = end + 1;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the node for the given package, creating it and its ancestors if necessary.
+   *
+   * @param packageName a package name, or "" for the unnamed package
+   * @return the node for the package
+   */
+  private Node node(String packageName) {
+    Node n = root;
+    int start = 0;
+    while (start < packageName.length()) {
+      int dot = packageName.indexOf('.', start);
+      int end = (dot == -1) ? packageName.length() : dot;
+      n = n.children.computeIfAbsent(packageName.substring(start, end), k -> new Node());
+      start = end + 1;
+    }
+    return n;
+  }
+
+  /**
+   * Returns the package of the given class. For an array, that is the package of its innermost
+   * component type, or "" if that is a primitive type.
+   *
+   * @param className a binary name or, for an array, a field descriptor
+   * @return the package name, or "" for the unnamed package
+   */
+  static String packageName(@ClassGetName String className) {
+    int start = 0;
+    int end = className.length();
+    if (className.startsWith("[")) {
+      start = className.lastIndexOf('[') + 1;
+      if (start >= className.length() || className.charAt(start) != 'L') {
+        return "";
+      }
+      start++;
+      end--; // the trailing ';'
+    }
+    int dot = className.lastIndexOf('.', end - 1);
+    return (dot < start) ? "" : className.substring(start, dot);
+  }
+}
@@ -0,0 +1,206 @@
+package org.plumelib.reflection;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.StringTokenizer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A classpath: a sequence of directories and jar files, such as the value of the {@code
+ * java.class.path} system property. Membership is tested with a hash set, so adding many entries
+ * takes time linear in the number of entries, rather than quadratic.
+ *
+ * <p>Entries are added at the front of the classpath: after {@code addFirst("a")} and then {@code
+ * addFirst("b")}, the classpath starts with "b", then "a", followed by the original entries. The
+ * original entries are kept exactly as given, including any empty entries.
+ *
+ * <p>A Classpath is not thread-safe.
+ */
+public final class Classpath {
+
+  /** The separator between entries, such as ":" or ";". */
+  private final String pathSeparator;
+
+  /** The entries that this Classpath was created with, as a single string. */
+  private final String original;
+
+  /** The entries added by {@link #addFirst}, in the order they were added. */
+  private final List<String> added = new ArrayList<>();
+
+  /** The normalized form of every entry, for fast membership tests. */
+  private final Set<String> index = new HashSet<>();
+
+  /**
+   * Creates a new Classpath.
+   *
+   * @param classpath the entries, separated by {@code pathSeparator}
+   * @param pathSeparator the separator between entries, such as ":" or ";"
+   */
+  public Classpath(String classpath, String pathSeparator) {
+    this.pathSeparator = pathSeparator;
+    this.original = classpath;
+    StringTokenizer tokenizer = new StringTokenizer(classpath, pathSeparator, false);
+    while (tokenizer.hasMoreTokens()) {
+      index.add(normalize(tokenizer.nextToken()));
+    }
+  }
+
+  /**
+   * Creates a new Classpath whose entries are separated by {@link File#pathSeparator}.
+   *
+   * @param classpath the entries, separated by {@link File#pathSeparator}
+   */
+  public Classpath(String classpath) {
+    this(classpath, File.pathSeparator);
+  }
+
+  /**
+   * Returns the form of an entry that is used to test membership. It uses "/" as the file
+   * separator.
+   *
+   * @param entry a classpath entry
+   * @return the normalized form of the entry
+   */
+  private static String normalize(String entry) {
+    return entry.replace('\\', '/');
+  }
+
+  /**
+   * Returns true if this classpath contains the given entry.
+   *
+   * @param entry a directory or jar file
+   * @return true if this classpath contains the entry
+   */
+  public boolean contains(String entry) {
+    return index.contains(normalize(entry));
+  }
+
+  /**
+   * Adds the entry at the front of this classpath, unless it is already present.
+   *
+   * @param entry a directory or jar file
+   * @return true if the entry was added, false if it was already present
+   */
+  public boolean addFirst(String entry) {
+    if (!index.add(normalize(entry))) {
+      return false;
+    }
+    added.add(entry);
+    return true;
+  }
+
+  /**
+   * Adds each of the entries at the front of this classpath, unless it is already present. This is
+   * equivalent to calling {@link #addFirst(String)} on each entry in turn, so the last entry ends
+   * up first.
+   *
+   * @param entries directories or jar files
+   * @return the number of entries that were added
+   */
+  public int addAllFirst(Collection<String> entries) {
+    int count = 0;
+    for (String entry : entries) {
+      if (addFirst(entry)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the entries of this classpath, in order. Empty entries are omitted.
+   *
+   * @return the entries of this classpath
+   */
+  public List<String> entries() {
+    List<String> result = new ArrayList<>(index.size());
+    for (int i = added.size() - 1; i >= 0; i--) {
+      result.add(added.get(i));
+    }
+    StringTokenizer tokenizer = new StringTokenizer(original, pathSeparator, false);
+    while (tokenizer.hasMoreTokens()) {
+      result.add(tokenizer.nextToken());
+    }
+    return result;
+  }
+
+  /**
+   * Returns this classpath as a single string, with entries separated by the path separator.
+   *
+   * @return this classpath as a string
+   */
+  @Override
+  public String toString() {
+    if (added.isEmpty()) {
+      return original;
+    }
+    StringJoiner result = new StringJoiner(pathSeparator);
+    for (int i = added.size() - 1; i >= 0; i--) {
+      result.add(added.get(i));
+    }
+    if (!original.isEmpty()) {
+      result.add(original);
+    }
+    return result.toString();
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // The system classpath
+  //
+
+  /** The lock that guards {@link #system} and {@link #systemString}. */
+  private static final Object systemLock = new Object();
+
+  /**
+   * The model of the {@code java.class.path} system property, or null if not yet created. Guarded
+   * by {@link #systemLock}.
+   */
+  private static @Nullable Classpath system = null;
+
+  /**
+   * The value of the {@code java.class.path} system property that {@link #system} models. Guarded
+   * by {@link #systemLock}.
+   */
+  private static @Nullable String systemString = null;
+
+  /**
+   * Adds each of the entries at the front of the {@code java.class.path} system property, unless
+   * it is already present, and then sets the property once.
+   *
+   * <p>When an entry is added, the existing entries are written back with "/" as the file
+   * separator, as {@link ReflectionP#addToClasspath(String)} has always done; the added entries
+   * are written as given.
+   *
+   * <p>The model of the property is reused from one call to the next, as long as nothing else has
+   * changed the property. Thus, the cost of a call is proportional to the number of entries it
+   * adds, plus, if any entry was added, the cost of building and setting the new property value.
+   *
+   * @param entries directories or jar files
+   * @return the number of entries that were added
+   */
+  static int addAllFirstToSystemClasspath(Collection<String> entries) {
+    Object lock = systemLock;
+    synchronized (lock) {
+      String pathSeparator = System.getProperty("path.separator");
+      String cp = System.getProperty("java.class.path", ".");
+      Classpath model = system;
+      // String.equals first checks identity, so this is fast if the property is unchanged.
+      if (model == null || !cp.equals(systemString)) {
+        model = new Classpath(normalize(cp), pathSeparator);
+        system = model;
+      }
+      int count = model.addAllFirst(entries);
+      if (count > 0) {
+        cp = model.toString();
+        System.setProperty("java.class.path", cp);
+      }
+      systemString = cp;
+      return count;
+    }
+  }
+}
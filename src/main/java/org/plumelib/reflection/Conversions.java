@@ -0,0 +1,180 @@
+package org.plumelib.reflection;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The conversions that are permitted when passing an argument to a method: identity, primitive
+ * widening, reference widening, boxing, and unboxing (JLS section 5.3).
+ */
+final class Conversions {
+
+  /** Do not instantiate. */
+  private Conversions() {
+    throw new Error("Do not instantiate");
+  }
+
+  /** The primitive types other than void, in the order used to index {@link #widening}. */
+  private static final Class<?>[] primitives = {
+    boolean.class, byte.class, short.class, char.class, int.class, long.class, float.class,
+    double.class
+  };
+
+  /** The boxed types, in the same order as {@link #primitives}. */
+  private static final Class<?>[] boxes = {
+    Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class,
+    Float.class, Double.class
+  };
+
+  /**
+   * {@code widening[i][j]} is true if primitive type i can be converted to primitive type j by an
+   * identity or widening primitive conversion (JLS section 5.1.2).
+   */
+  private static final boolean[][] widening = new boolean[primitives.length][primitives.length];
+
+  static {
+    // Each row lists a primitive type, followed by the types to which it widens.
+    Class<?>[][] wideningRules = {
+      {boolean.class},
+      {byte.class, short.class, int.class, long.class, float.class, double.class},
+      {short.class, int.class, long.class, float.class, double.class},
+      {char.class, int.class, long.class, float.class, double.class},
+      {int.class, long.class, float.class, double.class},
+      {long.class, float.class, double.class},
+      {float.class, double.class},
+      {double.class},
+    };
+    for (Class<?>[] rule : wideningRules) {
+      int from = primitiveIndex(rule[0]);
+      for (Class<?> to : rule) {
+        widening[from][primitiveIndex(to)] = true;
+      }
+    }
+  }
+
+  /**
+   * For a reference type, a memo of the results of {@link #isLooselyConvertible} from that type to
+   * reference types. The memo holds the target types weakly, so it does not keep them from being
+   * unloaded.
+   */
+  private static final ClassValue<BoundedCache<Class<?>, Boolean>> referenceConversions =
+      new ClassValue<BoundedCache<Class<?>, Boolean>>() {
+        @Override
+        protected BoundedCache<Class<?>, Boolean> computeValue(Class<?> type) {
+          return BoundedCache.builder(Metrics.Cache.REFERENCE_CONVERSIONS)
+              .capacity(256)
+              .weakKeys()
+              .build();
+        }
+      };
+
+  /**
+   * Returns the index of the given primitive type in {@link #primitives}.
+   *
+   * @param c a class
+   * @return the index of {@code c} in {@link #primitives}, or -1 if it is not a primitive type
+   *     other than void
+   */
+  private static int primitiveIndex(Class<?> c) {
+    for (int i = 0; i < primitives.length; i++) {
+      if (primitives[i] == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the given boxed type in {@link #boxes}.
+   *
+   * @param c a class
+   * @return the index of {@code c} in {@link #boxes}, or -1 if it is not a boxed type
+   */
+  private static int boxIndex(Class<?> c) {
+    for (int i = 0; i < boxes.length; i++) {
+      if (boxes[i] == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns true if a value of type {@code from} can be passed to a parameter of type {@code to}
+   * in a strict invocation context (JLS section 5.3): by identity, widening primitive, or widening
+   * reference conversion.
+   *
+   * @param from the type of the argument, or null for the type of the {@code null} literal
+   * @param to the type of the parameter
+   * @return true if {@code from} is strictly convertible to {@code to}
+   */
+  static boolean isStrictlyConvertible(@Nullable Class<?> from, Class<?> to) {
+    if (from == null) {
+      return !to.isPrimitive();
+    }
+    if (from == to) {
+      return true;
+    }
+    if (from.isPrimitive()) {
+      if (!to.isPrimitive()) {
+        return false;
+      }
+      int fromIndex = primitiveIndex(from);
+      int toIndex = primitiveIndex(to);
+      return fromIndex != -1 && toIndex != -1 && widening[fromIndex][toIndex];
+    }
+    return !to.isPrimitive() && to.isAssignableFrom(from);
+  }
+
+  /**
+   * Returns true if a value of type {@code from} can be passed to a parameter of type {@code to}
+   * in a loose invocation context (JLS section 5.3). In addition to the strict conversions, this
+   * permits boxing optionally followed by widening reference conversion, and unboxing optionally
+   * followed by widening primitive conversion.
+   *
+   * @param from the type of the argument, or null for the type of the {@code null} literal
+   * @param to the type of the parameter
+   * @return true if {@code from} is loosely convertible to {@code to}
+   */
+  static boolean isLooselyConvertible(@Nullable Class<?> from, Class<?> to) {
+    if (isStrictlyConvertible(from, to)) {
+      return true;
+    }
+    if (from == null) {
+      return false;
+    }
+    if (from.isPrimitive()) {
+      // Boxing, then widening reference.  `to` is a reference type, or the strict test would have
+      // succeeded or failed definitively.
+      int fromIndex = primitiveIndex(from);
+      return fromIndex != -1 && !to.isPrimitive() && to.isAssignableFrom(boxes[fromIndex]);
+    }
+    if (to.isPrimitive()) {
+      // Unboxing, then widening primitive.
+      int fromIndex = boxIndex(from);
+      int toIndex = primitiveIndex(to);
+      return fromIndex != -1 && toIndex != -1 && widening[fromIndex][toIndex];
+    }
+    // Both are reference types, and the strict test failed.
+    return false;
+  }
+
+  /**
+   * Like {@link #isLooselyConvertible}, but memoizes results between reference types. The memo for
+   * each {@code from} type holds a bounded number of {@code to} types, weakly.
+   *
+   * @param from the type of the argument, or null for the type of the {@code null} literal
+   * @param to the type of the parameter
+   * @return true if {@code from} is loosely convertible to {@code to}
+   */
+  static boolean isConvertible(@Nullable Class<?> from, Class<?> to) {
+    if (from == null || from.isPrimitive() || to.isPrimitive() || from == to) {
+      return isLooselyConvertible(from, to);
+    }
+    BoundedCache<Class<?>, Boolean> memo = referenceConversions.get(from);
+    Boolean result = memo.get(to);
+    if (result == null) {
+      result = memo.putIfAbsent(to, isLooselyConvertible(from, to));
+    }
+    return result;
+  }
+}
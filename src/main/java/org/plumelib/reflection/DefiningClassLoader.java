@@ -0,0 +1,451 @@
+package org.plumelib.reflection;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.signature.qual.BinaryName;
+
+/**
+ * A class loader that defines classes from class files: from a file, a memory-mapped file, a
+ * buffer, or every class file in a directory or jar. {@link ClassLoader#defineClass} is protected,
+ * so this class subclasses ClassLoader in order to call it.
+ *
+ * <p>The loader is parallel-capable: it locks per class name rather than locking the whole loader,
+ * so classes with different names can be defined concurrently. Defining a class whose name this
+ * loader has already defined returns the existing class. A subclass must also call {@link
+ * ClassLoader#registerAsParallelCapable} to be parallel-capable.
+ */
+class DefiningClassLoader extends ClassLoader {
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  /** Creates a new DefiningClassLoader whose parent is the system class loader. */
+  DefiningClassLoader() {}
+
+  /**
+   * Creates a new DefiningClassLoader.
+   *
+   * @param parent the parent class loader, or null for the bootstrap class loader
+   */
+  DefiningClassLoader(@Nullable ClassLoader parent) {
+    super(parent);
+  }
+
+  /**
+   * Called before this loader defines a class, but not when a define method returns a class that
+   * this loader has already defined. Does nothing, but a subclass may throw an exception to prevent
+   * further definitions.
+   */
+  void beforeDefine() {}
+
+  /**
+   * Converts the bytes in a file into an instance of class Class, and also resolves (links) the
+   * class. Delegates the real work to defineClass.
+   *
+   * <p>If this loader has already defined a class named {@code className}, returns that class
+   * without reading the file. Thus, concurrent calls for the same class name all return the same
+   * class, rather than all but one of them throwing {@link LinkageError}.
+   *
+   * @see ClassLoader#defineClass(String,byte[],int,int)
+   * @param className the expected binary name of the class to define, or null to read it from
+   *     the class file
+   * @param pathname the file from which to load the class
+   * @return the {@code Class} object that was created
+   * @throws FileNotFoundException if the file does not exist
+   * @throws IOException if there is trouble reading the file
+   */
+  public Class<?> defineClassFromFile(@Nullable @BinaryName String className, String pathname)
+      throws FileNotFoundException, IOException {
+    return defineOnce(className, () -> ByteBuffer.wrap(readClassFile(pathname)));
+  }
+
+  /**
+   * Converts the bytes in a file into an instance of class Class, and also resolves (links) the
+   * class. The name of the class is read from the class file.
+   *
+   * @param pathname the file from which to load the class
+   * @return the {@code Class} object that was created, or the one already defined with the same
+   *     name
+   * @throws FileNotFoundException if the file does not exist
+   * @throws IOException if there is trouble reading the file
+   */
+  public Class<?> defineClassFromFile(String pathname) throws FileNotFoundException, IOException {
+    return defineClassFromFile(null, pathname);
+  }
+
+  /**
+   * Like {@link #defineClassFromFile(String,String)}, but memory-maps the file rather than reading
+   * it into the heap.
+   *
+   * @param className the expected binary name of the class to define, or null to read it from
+   *     the class file
+   * @param pathname the file from which to load the class
+   * @return the {@code Class} object that was created
+   * @throws FileNotFoundException if the file does not exist
+   * @throws IOException if there is trouble reading the file
+   */
+  public Class<?> defineClassFromMappedFile(@Nullable @BinaryName String className, String pathname)
+      throws FileNotFoundException, IOException {
+    return defineOnce(className, () -> mapClassFile(pathname));
+  }
+
+  /**
+   * Converts the remaining bytes in a buffer into an instance of class Class, and also resolves
+   * (links) the class. If this loader has already defined a class named {@code className},
+   * returns that class and leaves the buffer unchanged.
+   *
+   * @see ClassLoader#defineClass(String,ByteBuffer,java.security.ProtectionDomain)
+   * @param className the expected binary name of the class to define, or null to read it from
+   *     the class file
+   * @param classBytes the contents of a class file, from its position to its limit
+   * @return the {@code Class} object that was created
+   */
+  public Class<?> defineClassFromBuffer(
+      @Nullable @BinaryName String className, ByteBuffer classBytes) {
+    return defineOnce(className, () -> classBytes);
+  }
+
+  /**
+   * Supplies the contents of a class file. Used to avoid obtaining the contents when the class
+   * has already been defined.
+   */
+  @FunctionalInterface
+  private interface ClassBytes<E extends Exception> {
+    /**
+     * Returns the contents of a class file.
+     *
+     * @return the contents of a class file, from the buffer's position to its limit
+     * @throws E if the contents cannot be obtained
+     */
+    ByteBuffer get() throws E;
+  }
+
+  /**
+   * Defines and resolves a class, unless this loader has already defined a class with the given
+   * name, in which case returns that class.
+   *
+   * @param <E> the type of exception thrown when obtaining the class file contents
+   * @param className the expected binary name of the class to define, or null to read it from
+   *     the class file
+   * @param classBytes supplies the contents of the class file; called at most once
+   * @return the {@code Class} object that was created, or the one already defined
+   * @throws E if the contents of the class file cannot be obtained
+   */
+  private <E extends Exception> Class<?> defineOnce(
+      @Nullable @BinaryName String className, ClassBytes<E> classBytes) throws E {
+    long start = Metrics.start();
+    ResolutionEvents.DefineClass event = new ResolutionEvents.DefineClass();
+    event.begin();
+    boolean failed = true;
+    try {
+      @BinaryName String name;
+      ByteBuffer buffer = null;
+      if (className == null) {
+        // The name is needed to find an already-defined class and to choose the lock.
+        buffer = classBytes.get();
+        name = ClassFiles.thisClassName(buffer);
+      } else {
+        name = className;
+      }
+      Class<?> defined = findDefinedClass(name);
+      boolean alreadyDefined = defined != null;
+      if (defined == null) {
+        if (buffer == null) {
+          buffer = classBytes.get();
+        }
+        Object lock = getClassLoadingLock(name);
+        synchronized (lock) {
+          defined = findDefinedClass(name);
+          alreadyDefined = defined != null;
+          if (defined == null) {
+            beforeDefine();
+            defined = defineAndResolve(name, buffer);
+          }
+        }
+      }
+      Metrics.recordLookup(Metrics.Cache.DEFINED_CLASSES, alreadyDefined);
+      if (event.shouldCommit()) {
+        event.className = name;
+        event.alreadyDefined = alreadyDefined;
+        event.commit();
+      }
+      failed = false;
+      return defined;
+    } finally {
+      Metrics.recordCall(Metrics.Operation.DEFINE_CLASS, start, failed);
+    }
+  }
+
+  /**
+   * Returns the class with the given name that this loader defined, if any.
+   *
+   * @param className a binary name
+   * @return the class named {@code className} that this loader defined, or null if none
+   */
+  private @Nullable Class<?> findDefinedClass(@BinaryName String className) {
+    Class<?> c = findLoadedClass(className);
+    // findLoadedClass also returns classes for which this loader was only the initiating loader.
+    return (c != null && c.getClassLoader() == this) ? c : null;
+  }
+
+  /**
+   * Defines and resolves (links) a class.
+   *
+   * @param className the expected binary name of the class to define
+   * @param classBytes the contents of a class file, from its position to its limit
+   * @return the {@code Class} object that was created
+   */
+  private Class<?> defineAndResolve(@BinaryName String className, ByteBuffer classBytes) {
+    // For a direct or mapped buffer, defineClass reads the bytes in place, without a heap copy.
+    Class<?> returnClass = defineClass(className, classBytes, null);
+    // ClassLoader.defineClass does not advance the position of a direct buffer or of an
+    // array-backed heap buffer, so advance it here, as ReflectionP.defineClassFromBuffer promises.
+    classBytes.position(classBytes.limit());
+    resolveClass(returnClass); // link the class
+    return returnClass;
+  }
+
+  /**
+   * Returns the contents of a file.
+   *
+   * @param pathname the file to read
+   * @return the contents of the file
+   * @throws FileNotFoundException if the file does not exist
+   * @throws IOException if there is trouble reading the file
+   */
+  private static byte[] readClassFile(String pathname) throws FileNotFoundException, IOException {
+    try {
+      return Files.readAllBytes(Path.of(pathname));
+    } catch (java.nio.file.NoSuchFileException e) {
+      throw new FileNotFoundException(pathname);
+    }
+  }
+
+  /**
+   * Memory-maps a file, read-only. The mapping remains valid after this method returns.
+   *
+   * @param pathname the file to map
+   * @return the contents of the file
+   * @throws FileNotFoundException if the file does not exist
+   * @throws IOException if there is trouble mapping the file
+   */
+  private static ByteBuffer mapClassFile(String pathname)
+      throws FileNotFoundException, IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(pathname), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (java.nio.file.NoSuchFileException e) {
+      throw new FileNotFoundException(pathname);
+    }
+  }
+
+  /**
+   * Defines every class in a directory or jar file. The binary name of each class is derived from
+   * the path of its class file relative to the directory or jar root; {@code module-info.class}
+   * and files under {@code META-INF} are skipped. The class files are read in parallel using the
+   * given executor.
+   *
+   * <p>The classes are defined in an order that tolerates dependencies among them. A class whose
+   * superclass or superinterface is another not-yet-defined class in the batch fails with {@link
+   * NoClassDefFoundError}; such classes are retried after the others, until a round defines no
+   * more classes.
+   *
+   * <p>The result records, for each class, the defined class or the reason it could not be
+   * defined, together with the time spent reading and defining it. A class that this loader has
+   * already defined is returned as is.
+   *
+   * @param pathname a directory, or a jar or zip file, containing .class files
+   * @param executor the executor used to read the class files
+   * @return a map from the binary name of each class to the outcome of defining it, in order of
+   *     binary name
+   * @throws IOException if there is trouble listing the contents of {@code pathname}
+   */
+  public Map<String, Resolution<Class<?>>> defineClasses(String pathname, Executor executor)
+      throws IOException {
+    Path path = Path.of(pathname);
+    // Maps each binary name to the outcome of reading its class file.
+    Map<@BinaryName String, Resolution<byte[]>> contents;
+    if (Files.isDirectory(path)) {
+      contents = readClassFiles(path, executor);
+    } else {
+      try (ZipFile zipFile = new ZipFile(path.toFile())) {
+        contents = readClassFiles(zipFile, executor);
+      }
+    }
+
+    // The outcome of defining each class, or of the latest attempt to define it.
+    Map<@BinaryName String, Resolution<Class<?>>> defined = new HashMap<>();
+    // The classes whose supertypes were not found by the latest attempt to define them.
+    List<@BinaryName String> pending = new ArrayList<>();
+    for (Map.Entry<@BinaryName String, Resolution<byte[]>> entry : contents.entrySet()) {
+      Resolution<byte[]> read = entry.getValue();
+      if (read.isSuccess()) {
+        pending.add(entry.getKey());
+      } else {
+        defined.put(
+            entry.getKey(), new Resolution<>(entry.getKey(), null, read.failure(), read.nanos()));
+      }
+    }
+    boolean progress = true;
+    while (progress && !pending.isEmpty()) {
+      progress = false;
+      List<@BinaryName String> retry = new ArrayList<>();
+      for (@BinaryName String className : pending) {
+        Resolution<byte[]> read = contents.get(className);
+        assert read != null : "@AssumeAssertion(nullness): pending names come from contents";
+        byte[] classBytes = read.get();
+        Resolution<Class<?>> previous = defined.get(className);
+        long nanos = (previous == null) ? read.nanos() : previous.nanos();
+        Resolution<Class<?>> attempt =
+            Resolution.of(
+                className,
+                () -> defineClassFromBuffer(className, ByteBuffer.wrap(classBytes)));
+        defined.put(
+            className,
+            new Resolution<>(
+                className, attempt.value(), attempt.failure(), nanos + attempt.nanos()));
+        if (attempt.isSuccess()) {
+          progress = true;
+        } else if (attempt.failure() instanceof NoClassDefFoundError) {
+          retry.add(className);
+        }
+      }
+      pending = retry;
+    }
+
+    Map<String, Resolution<Class<?>>> result = new LinkedHashMap<>(contents.size() * 4 / 3 + 1);
+    for (@BinaryName String className : contents.keySet()) {
+      Resolution<Class<?>> outcome = defined.get(className);
+      assert outcome != null : "@AssumeAssertion(nullness): every class was attempted";
+      result.put(className, outcome);
+    }
+    return result;
+  }
+
+  /**
+   * Reads, in parallel, the class files in a directory and its subdirectories.
+   *
+   * @param dir a directory
+   * @param executor the executor used to read the class files
+   * @return a map from binary name to the contents of the class file, sorted by binary name
+   * @throws IOException if there is trouble listing the directory
+   */
+  private static Map<@BinaryName String, Resolution<byte[]>> readClassFiles(
+      Path dir, Executor executor) throws IOException {
+    Map<@BinaryName String, CompletableFuture<Resolution<byte[]>>> futures = new TreeMap<>();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String relative = dir.relativize(file).toString();
+        if (isDefinableClassFile(relative) && Files.isRegularFile(file)) {
+          @BinaryName String className = Signatures.classfilenameToBinaryName(relative);
+          futures.put(
+              className,
+              CompletableFuture.supplyAsync(
+                  () -> Resolution.of(className, () -> readAllBytes(file)), executor));
+        }
+      }
+    }
+    return joinAll(futures);
+  }
+
+  /**
+   * Reads, in parallel, the class files in a jar or zip file.
+   *
+   * @param zipFile a jar or zip file
+   * @param executor the executor used to read the class files
+   * @return a map from binary name to the contents of the class file, sorted by binary name
+   */
+  private static Map<@BinaryName String, Resolution<byte[]>> readClassFiles(
+      ZipFile zipFile, Executor executor) {
+    Map<@BinaryName String, CompletableFuture<Resolution<byte[]>>> futures = new TreeMap<>();
+    for (ZipEntry entry : Collections.list(zipFile.entries())) {
+      String entryName = entry.getName();
+      if (!entry.isDirectory() && isDefinableClassFile(entryName)) {
+        @BinaryName String className = Signatures.classfilenameToBinaryName(entryName);
+        futures.put(
+            className,
+            CompletableFuture.supplyAsync(
+                () ->
+                    Resolution.of(
+                        className,
+                        () -> {
+                          try (InputStream in = zipFile.getInputStream(entry)) {
+                            return in.readAllBytes();
+                          } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                          }
+                        }),
+                executor));
+      }
+    }
+    // The futures must complete before the zip file is closed.
+    return joinAll(futures);
+  }
+
+  /**
+   * Returns true if the given file name, relative to a directory or jar root, is that of a class
+   * file that {@link #defineClasses} should define and that {@link ClassIndex} should index.
+   *
+   * @param relativeName a file name relative to a directory or jar root
+   * @return true if the file is a class file other than a module descriptor or a file under
+   *     META-INF
+   */
+  static boolean isDefinableClassFile(String relativeName) {
+    // No class name contains "-", so a name ending with "module-info.class" is a module descriptor.
+    return relativeName.endsWith(".class")
+        && !relativeName.endsWith("module-info.class")
+        && !relativeName.startsWith("META-INF");
+  }
+
+  /**
+   * Returns the contents of a file, wrapping any IOException in an unchecked exception.
+   *
+   * @param file the file to read
+   * @return the contents of the file
+   */
+  private static byte[] readAllBytes(Path file) {
+    try {
+      return Files.readAllBytes(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Waits for all the given futures, and returns their results.
+   *
+   * @param <T> the type of the results
+   * @param futures a map whose values are futures
+   * @return a map with the same keys, in the same order, whose values are the futures' results
+   */
+  private static <T> Map<@BinaryName String, Resolution<T>> joinAll(
+      Map<@BinaryName String, CompletableFuture<Resolution<T>>> futures) {
+    Map<@BinaryName String, Resolution<T>> result =
+        new LinkedHashMap<>(futures.size() * 4 / 3 + 1);
+    for (Map.Entry<@BinaryName String, CompletableFuture<Resolution<T>>> entry :
+        futures.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().join());
+    }
+    return result;
+  }
+}
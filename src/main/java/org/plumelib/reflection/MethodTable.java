@@ -0,0 +1,392 @@
+package org.plumelib.reflection;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The methods of a class, including those that it inherits from its superclasses and
+ * superinterfaces, indexed by name and by number of parameters.
+ *
+ * <p>A table is built the first time it is requested for a given class, and is then shared by all
+ * threads. The table for a class reuses the tables of its direct supertypes, so building the tables
+ * for a deep hierarchy calls {@link Class#getDeclaredMethods} only once per class.
+ */
+final class MethodTable {
+
+  /** The method table of each class. */
+  private static final ClassValue<MethodTable> tables =
+      new ClassValue<MethodTable>() {
+        @Override
+        protected MethodTable computeValue(Class<?> type) {
+          return new MethodTable(type);
+        }
+      };
+
+  /** The empty array of entries. */
+  private static final Entry[] NO_ENTRIES = new Entry[0];
+
+  /** The empty array of arrays of entries. */
+  private static final Entry[][] NO_ARITIES = new Entry[0][];
+
+  /**
+   * Maps a method name to the methods with that name. Element i of the array holds the methods
+   * with i parameters. The array is no longer than one more than the largest number of parameters.
+   */
+  private final Map<String, Entry[][]> byName;
+
+  /**
+   * A method, together with its parameter types. {@link Method#getParameterTypes} returns a fresh
+   * array each time it is called, so the parameter types are stored.
+   */
+  static final class Entry {
+
+    /** The method. */
+    final Method method;
+
+    /** The parameter types of the method. Clients must not side-effect this array. */
+    final Class<?>[] parameterTypes;
+
+    /**
+     * Creates a new Entry.
+     *
+     * @param method the method
+     */
+    Entry(Method method) {
+      this.method = method;
+      this.parameterTypes = method.getParameterTypes();
+    }
+  }
+
+  /**
+   * Creates the method table for the given class.
+   *
+   * @param c the class whose methods to index
+   */
+  private MethodTable(Class<?> c) {
+    // Maps a method name to the methods with that name, in order of precedence.
+    Map<String, List<Entry>> lists = new HashMap<>();
+    for (Method m : c.getDeclaredMethods()) {
+      lists.computeIfAbsent(m.getName(), k -> new ArrayList<>()).add(new Entry(m));
+    }
+    // Methods that the class declares take precedence over inherited ones; methods declared in a
+    // class take precedence over those declared in interfaces; and an interface method takes
+    // precedence over one declared in its superinterfaces (JLS section 9.4.1).
+    Class<?> superclass = c.getSuperclass();
+    if (superclass != null) {
+      addInherited(lists, of(superclass), false);
+    }
+    for (Class<?> ifc : c.getInterfaces()) {
+      addInherited(lists, of(ifc), true);
+    }
+
+    Map<String, Entry[][]> result = new HashMap<>(lists.size() * 4 / 3 + 1);
+    for (Map.Entry<String, List<Entry>> nameAndEntries : lists.entrySet()) {
+      List<Entry> entries = nameAndEntries.getValue();
+      int maxArity = 0;
+      for (Entry e : entries) {
+        maxArity = Math.max(maxArity, e.parameterTypes.length);
+      }
+      int[] counts = new int[maxArity + 1];
+      for (Entry e : entries) {
+        counts[e.parameterTypes.length]++;
+      }
+      Entry[][] byArity = new Entry[maxArity + 1][];
+      for (int i = 0; i <= maxArity; i++) {
+        byArity[i] = counts[i] == 0 ? NO_ENTRIES : new Entry[counts[i]];
+        counts[i] = 0;
+      }
+      for (Entry e : entries) {
+        int arity = e.parameterTypes.length;
+        byArity[arity][counts[arity]++] = e;
+      }
+      result.put(nameAndEntries.getKey(), byArity);
+    }
+    this.byName = result;
+  }
+
+  /**
+   * Adds to {@code lists} the methods of {@code supertable} that are inherited and are not
+   * overridden by a method already in {@code lists}. Private methods are not inherited. An
+   * interface method replaces a method already in {@code lists} that is declared in one of its
+   * superinterfaces.
+   *
+   * @param lists the methods found so far, indexed by name; is side-effected by this method
+   * @param supertable the method table of a direct supertype
+   * @param isInterface true if the supertype is an interface, whose static methods are not
+   *     inherited
+   */
+  private static void addInherited(
+      Map<String, List<Entry>> lists, MethodTable supertable, boolean isInterface) {
+    for (Map.Entry<String, Entry[][]> nameAndEntries : supertable.byName.entrySet()) {
+      List<Entry> entries = lists.computeIfAbsent(nameAndEntries.getKey(), k -> new ArrayList<>());
+      for (Entry[] sameArity : nameAndEntries.getValue()) {
+        for (Entry e : sameArity) {
+          int modifiers = e.method.getModifiers();
+          if (Modifier.isPrivate(modifiers) || (isInterface && Modifier.isStatic(modifiers))) {
+            continue;
+          }
+          int index = indexOf(entries, e.parameterTypes);
+          if (index == -1) {
+            entries.add(e);
+          } else if (isMoreSpecificInterface(e, entries.get(index))) {
+            entries.set(index, e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the entry whose parameter types are exactly the given ones.
+   *
+   * @param entries the entries to search
+   * @param params the parameter types to search for
+   * @return the index of the entry whose parameter types are {@code params}, or -1 if there is none
+   */
+  private static int indexOf(List<Entry> entries, Class<?>[] params) {
+    for (int i = 0; i < entries.size(); i++) {
+      if (Arrays.equals(entries.get(i).parameterTypes, params)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns true if both methods are declared in interfaces, and {@code a} is declared in a proper
+   * subinterface of the interface that declares {@code b}, so that {@code a} overrides {@code b}.
+   *
+   * @param a a method
+   * @param b a method with the same name and parameter types as {@code a}
+   * @return true if {@code a} is declared in a proper subinterface of the declarer of {@code b}
+   */
+  private static boolean isMoreSpecificInterface(Entry a, Entry b) {
+    Class<?> aDeclarer = a.method.getDeclaringClass();
+    Class<?> bDeclarer = b.method.getDeclaringClass();
+    return aDeclarer.isInterface()
+        && bDeclarer.isInterface()
+        && aDeclarer != bDeclarer
+        && bDeclarer.isAssignableFrom(aDeclarer);
+  }
+
+  /**
+   * Returns the method table of the given class.
+   *
+   * @param c a class
+   * @return the method table of the class
+   */
+  static MethodTable of(Class<?> c) {
+    return tables.get(c);
+  }
+
+  /**
+   * Returns the methods that have the given name and number of parameters. Clients must not
+   * side-effect the result.
+   *
+   * @param name a method name
+   * @param arity a number of parameters
+   * @return the methods with the given name and number of parameters, in order of precedence
+   */
+  Entry[] get(String name, int arity) {
+    Entry[][] byArity = byName.get(name);
+    if (byArity == null || arity >= byArity.length) {
+      return NO_ENTRIES;
+    }
+    return byArity[arity];
+  }
+
+  /**
+   * Returns the methods that have the given name, indexed by number of parameters. Clients must
+   * not side-effect the result.
+   *
+   * @param name a method name
+   * @return the methods with the given name; element i holds those with i parameters
+   */
+  Entry[][] get(String name) {
+    Entry[][] byArity = byName.get(name);
+    return byArity == null ? NO_ARITIES : byArity;
+  }
+
+  /**
+   * Returns the method that has the given name and exactly the given parameter types.
+   *
+   * @param name a method name
+   * @param params the parameter types
+   * @return the method with the given name and parameter types, or null if there is none
+   */
+  @Nullable Method find(String name, Class<?>[] params) {
+    for (Entry e : get(name, params.length)) {
+      if (Arrays.equals(e.parameterTypes, params)) {
+        return e.method;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the most specific method with the given name that is applicable to arguments of the
+   * given types. Like the Java compiler (JLS section 15.12.2), this first considers methods that
+   * are applicable without boxing, unboxing, or variable arity invocation; then methods that are
+   * applicable with boxing and unboxing; and finally variable arity methods. Bridge methods are
+   * not considered.
+   *
+   * @param name a method name
+   * @param argTypes the types of the arguments; a null element stands for the type of the {@code
+   *     null} literal
+   * @return the most specific applicable method, or null if no method is applicable
+   * @throws NoSuchMethodException if the call is ambiguous: no applicable method is more specific
+   *     than all the others
+   */
+  @Nullable Entry mostSpecific(String name, @Nullable Class<?>[] argTypes)
+      throws NoSuchMethodException {
+    Entry[][] byArity = get(name);
+    Entry[] sameArity = argTypes.length < byArity.length ? byArity[argTypes.length] : NO_ENTRIES;
+    List<Entry> applicable = new ArrayList<>();
+
+    // Phase 1: strict invocation.  Phase 2: loose invocation.
+    for (int phase = 1; phase <= 2; phase++) {
+      boolean loose = phase == 2;
+      for (Entry e : sameArity) {
+        if (!e.method.isBridge() && isApplicable(e, argTypes, loose, false)) {
+          applicable.add(e);
+        }
+      }
+      if (!applicable.isEmpty()) {
+        return select(name, applicable, argTypes.length, false);
+      }
+    }
+
+    // Phase 3: variable arity invocation.
+    for (int arity = 1; arity < byArity.length && arity <= argTypes.length + 1; arity++) {
+      for (Entry e : byArity[arity]) {
+        if (e.method.isVarArgs()
+            && !e.method.isBridge()
+            && isApplicable(e, argTypes, true, true)) {
+          applicable.add(e);
+        }
+      }
+    }
+    if (!applicable.isEmpty()) {
+      return select(name, applicable, argTypes.length, true);
+    }
+    return null;
+  }
+
+  /**
+   * Returns true if the given method is applicable to arguments of the given types.
+   *
+   * @param e a method
+   * @param argTypes the types of the arguments; a null element stands for the type of the {@code
+   *     null} literal
+   * @param loose if true, permit boxing and unboxing
+   * @param varargs if true, treat the method as a variable arity method
+   * @return true if the method is applicable to the arguments
+   */
+  private static boolean isApplicable(
+      Entry e, @Nullable Class<?>[] argTypes, boolean loose, boolean varargs) {
+    for (int i = 0; i < argTypes.length; i++) {
+      Class<?> paramType = parameterType(e, i, varargs);
+      if (loose
+          ? !Conversions.isConvertible(argTypes[i], paramType)
+          : !Conversions.isStrictlyConvertible(argTypes[i], paramType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the type of the given parameter of a method. For a variable arity invocation, the
+   * parameters at and after the last formal parameter have the component type of the last formal
+   * parameter.
+   *
+   * @param e a method
+   * @param i the index of a parameter
+   * @param varargs if true, treat the method as a variable arity method
+   * @return the type of parameter {@code i}
+   */
+  private static Class<?> parameterType(Entry e, int i, boolean varargs) {
+    Class<?>[] params = e.parameterTypes;
+    if (varargs && i >= params.length - 1) {
+      Class<?> component = params[params.length - 1].getComponentType();
+      assert component != null
+          : "@AssumeAssertion(nullness): the last parameter of a varargs method is an array";
+      return component;
+    }
+    return params[i];
+  }
+
+  /**
+   * Returns the most specific of the given applicable methods (JLS section 15.12.2.5).
+   *
+   * @param name the method name, for use in diagnostics
+   * @param applicable the applicable methods; is non-empty
+   * @param numArgs the number of arguments
+   * @param varargs if true, the methods are applicable by variable arity invocation
+   * @return the most specific of the methods
+   * @throws NoSuchMethodException if no method is more specific than all the others
+   */
+  private static Entry select(String name, List<Entry> applicable, int numArgs, boolean varargs)
+      throws NoSuchMethodException {
+    if (applicable.size() == 1) {
+      return applicable.get(0);
+    }
+    Entry result = null;
+    for (Entry candidate : applicable) {
+      boolean maximal = true;
+      for (Entry other : applicable) {
+        if (other != candidate
+            && isMoreSpecific(other, candidate, numArgs, varargs)
+            && !isMoreSpecific(candidate, other, numArgs, varargs)) {
+          maximal = false;
+          break;
+        }
+      }
+      if (maximal) {
+        if (result != null) {
+          throw new NoSuchMethodException(
+              "Ambiguous call to "
+                  + name
+                  + ": both "
+                  + result.method.toGenericString()
+                  + " and "
+                  + candidate.method.toGenericString()
+                  + " match");
+        }
+        result = candidate;
+      }
+    }
+    assert result != null : "@AssumeAssertion(nullness): a finite set has a maximal element";
+    return result;
+  }
+
+  /**
+   * Returns true if method {@code a} is at least as specific as method {@code b}: each of its
+   * parameter types is a subtype of the corresponding parameter type of {@code b}.
+   *
+   * @param a a method
+   * @param b a method
+   * @param numArgs the number of arguments
+   * @param varargs if true, the methods are applicable by variable arity invocation
+   * @return true if {@code a} is at least as specific as {@code b}
+   */
+  private static boolean isMoreSpecific(Entry a, Entry b, int numArgs, boolean varargs) {
+    int count =
+        varargs
+            ? Math.max(numArgs, Math.max(a.parameterTypes.length, b.parameterTypes.length))
+            : numArgs;
+    for (int i = 0; i < count; i++) {
+      if (!Conversions.isStrictlyConvertible(
+          parameterType(a, i, varargs), parameterType(b, i, varargs))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
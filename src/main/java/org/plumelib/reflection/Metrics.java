@@ -0,0 +1,601 @@
+package org.plumelib.reflection;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Counters and latency histograms for the lookups that this library performs. Counting is enabled
+ * unless the system property {@code org.plumelib.reflection.metrics} is {@code false}.
+ *
+ * <p>Each counter is a {@link LongAdder}, which spreads concurrent updates over several cells, so
+ * threads that resolve names at the same time do not contend on one counter. Reading a counter
+ * sums its cells, so {@link #snapshot} is much more expensive than an update.
+ *
+ * <p>The counters can be read programmatically, with {@link #snapshot}, or over JMX, after {@link
+ * #registerMBean} has registered a {@link MetricsMXBean} with the platform MBean server.
+ */
+public final class Metrics {
+
+  /** This class is a collection of methods; it does not represent anything. */
+  private Metrics() {
+    throw new Error("Do not instantiate");
+  }
+
+  /** True if counters are updated. */
+  static final boolean ENABLED =
+      !"false".equals(System.getProperty("org.plumelib.reflection.metrics"));
+
+  /** An operation whose calls are counted and timed. */
+  public enum Operation {
+    /** {@link ReflectionP#classForName}, for a name that is not a primitive type. */
+    CLASS_FOR_NAME("classForName"),
+    /** {@link ReflectionP#methodForName(String)}. */
+    METHOD_FOR_NAME("methodForName"),
+    /** {@code defineClassFromFile} and the other methods that define a class from a class file. */
+    DEFINE_CLASS("defineClass");
+
+    /** The name of the operation in a report and in the MBean's attributes. */
+    private final String key;
+
+    /**
+     * Creates an Operation.
+     *
+     * @param key the name of the operation in a report
+     */
+    Operation(String key) {
+      this.key = key;
+    }
+  }
+
+  /** A cache whose hits, misses, and evictions are counted. */
+  public enum Cache {
+    /** The argument lists that {@link ReflectionP#methodForName(String)} has resolved. */
+    ARGUMENT_LISTS("argumentLists"),
+    /** The classes that a loader has already defined, when asked to define one again. */
+    DEFINED_CLASSES("definedClasses"),
+    /** The package owners that a {@link ClassLoaderGroup} has learned. */
+    PACKAGE_OWNERS("packageOwners"),
+    /** The class names that {@link WarmUp} has recorded. */
+    RECORDED_CLASSES("recordedClasses"),
+    /** The method signatures that {@link WarmUp} has recorded. */
+    RECORDED_METHODS("recordedMethods"),
+    /** Whether one reference type is convertible to another, in method invocation. */
+    REFERENCE_CONVERSIONS("referenceConversions");
+
+    /** The name of the cache in a report and in the MBean's attributes. */
+    private final String key;
+
+    /**
+     * Creates a Cache.
+     *
+     * @param key the name of the cache in a report
+     */
+    Cache(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Returns the name of the cache in a report.
+     *
+     * @return the name of the cache in a report
+     */
+    String key() {
+      return key;
+    }
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Recording
+  //
+
+  /**
+   * The number of buckets in a latency histogram. Bucket {@code i} counts the durations {@code d}
+   * whose bit length is {@code i}, that is, {@code 2^(i-1) <= d < 2^i} nanoseconds. Bucket 0
+   * counts durations of 0.
+   */
+  static final int BUCKETS = 64;
+
+  /** The counters of one operation. */
+  private static final class OperationCounters {
+    /** The number of calls that threw an exception. */
+    final LongAdder failures = new LongAdder();
+
+    /** The total duration of all calls, in nanoseconds. */
+    final LongAdder totalNanos = new LongAdder();
+
+    /** The latency histogram; see {@link Metrics#BUCKETS}. */
+    final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    /** Creates the counters of one operation. */
+    OperationCounters() {
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = new LongAdder();
+      }
+    }
+  }
+
+  /** The counters of one cache. */
+  private static final class CacheCounters {
+    /** The number of lookups that found a value. */
+    final LongAdder hits = new LongAdder();
+
+    /** The number of lookups that found no value. */
+    final LongAdder misses = new LongAdder();
+
+    /** The number of values removed to make room for others. */
+    final LongAdder evictions = new LongAdder();
+
+    /** Creates the counters of one cache. */
+    CacheCounters() {}
+  }
+
+  /** The counters of each operation. */
+  private static final EnumMap<Operation, OperationCounters> operations =
+      new EnumMap<>(Operation.class);
+
+  /** The counters of each cache. */
+  private static final EnumMap<Cache, CacheCounters> caches = new EnumMap<>(Cache.class);
+
+  static {
+    for (Operation op : Operation.values()) {
+      operations.put(op, new OperationCounters());
+    }
+    for (Cache cache : Cache.values()) {
+      caches.put(cache, new CacheCounters());
+    }
+  }
+
+  /**
+   * An upper bound on the number of exceptions that lookups would have thrown and caught, had a
+   * cache not told them where to look. It is an upper bound because a loader that was skipped
+   * might have succeeded without throwing, for example by delegating to a shared parent.
+   */
+  private static final LongAdder maxExceptionsAvoided = new LongAdder();
+
+  /**
+   * Returns the start time of an operation, to be passed to {@link #recordCall}.
+   *
+   * @return the current value of {@link System#nanoTime}, or 0 if counting is disabled
+   */
+  static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records a call of an operation.
+   *
+   * @param op the operation
+   * @param startNanos the value of {@link #start} when the call began
+   * @param failed true if the call threw an exception
+   */
+  @SuppressWarnings({
+    "nullness:dereference.of.nullable", // every operation is in the map
+    "index" // the bucket is in [0, 63] because nanos >= 0
+  })
+  static void recordCall(Operation op, long startNanos, boolean failed) {
+    if (!ENABLED) {
+      return;
+    }
+    long nanos = Math.max(0, System.nanoTime() - startNanos);
+    OperationCounters counters = operations.get(op);
+    if (failed) {
+      counters.failures.increment();
+    }
+    counters.totalNanos.add(nanos);
+    counters.histogram[64 - Long.numberOfLeadingZeros(nanos)].increment();
+  }
+
+  /**
+   * Records a lookup in a cache.
+   *
+   * @param cache the cache
+   * @param hit true if the lookup found a value
+   */
+  @SuppressWarnings("nullness:dereference.of.nullable") // every cache is in the map
+  static void recordLookup(Cache cache, boolean hit) {
+    if (ENABLED) {
+      CacheCounters counters = caches.get(cache);
+      (hit ? counters.hits : counters.misses).increment();
+    }
+  }
+
+  /**
+   * Records the eviction of a value from a cache.
+   *
+   * @param cache the cache
+   */
+  @SuppressWarnings("nullness:dereference.of.nullable") // every cache is in the map
+  static void recordEviction(Cache cache) {
+    if (ENABLED) {
+      caches.get(cache).evictions.increment();
+    }
+  }
+
+  /**
+   * Records that a lookup, told by a cache where to look, skipped loaders that might otherwise have
+   * thrown an exception.
+   *
+   * @param count the number of loaders skipped, an upper bound on the number of exceptions avoided
+   */
+  static void recordMaxExceptionsAvoided(int count) {
+    if (ENABLED && count > 0) {
+      maxExceptionsAvoided.add(count);
+    }
+  }
+
+  /**
+   * Sets every counter to zero. Updates that are concurrent with this call may be lost or may be
+   * retained.
+   */
+  public static void reset() {
+    for (OperationCounters counters : operations.values()) {
+      counters.failures.reset();
+      counters.totalNanos.reset();
+      for (LongAdder bucket : counters.histogram) {
+        bucket.reset();
+      }
+    }
+    for (CacheCounters counters : caches.values()) {
+      counters.hits.reset();
+      counters.misses.reset();
+      counters.evictions.reset();
+    }
+    maxExceptionsAvoided.reset();
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Snapshots
+  //
+
+  /**
+   * Returns the current values of the counters. The counters are read one at a time, so if other
+   * threads are updating them, the snapshot need not correspond to any single moment.
+   *
+   * @return the current values of the counters
+   */
+  @SuppressWarnings("nullness:dereference.of.nullable") // every key is in the maps
+  public static Snapshot snapshot() {
+    EnumMap<Operation, OperationSnapshot> ops = new EnumMap<>(Operation.class);
+    for (Operation op : Operation.values()) {
+      OperationCounters counters = operations.get(op);
+      long[] histogram = new long[counters.histogram.length];
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = counters.histogram[i].sum();
+      }
+      ops.put(
+          op, new OperationSnapshot(counters.failures.sum(), counters.totalNanos.sum(), histogram));
+    }
+    EnumMap<Cache, CacheSnapshot> cs = new EnumMap<>(Cache.class);
+    for (Cache cache : Cache.values()) {
+      CacheCounters counters = caches.get(cache);
+      cs.put(
+          cache,
+          new CacheSnapshot(
+              counters.hits.sum(), counters.misses.sum(), counters.evictions.sum()));
+    }
+    return new Snapshot(ops, cs, maxExceptionsAvoided.sum());
+  }
+
+  /** The values of all the counters, at about the same time. */
+  public static final class Snapshot {
+    /** The counters of each operation. */
+    private final EnumMap<Operation, OperationSnapshot> operations;
+
+    /** The counters of each cache. */
+    private final EnumMap<Cache, CacheSnapshot> caches;
+
+    /** An upper bound on the number of exceptions avoided. */
+    private final long maxExceptionsAvoided;
+
+    /**
+     * Creates a Snapshot.
+     *
+     * @param operations the counters of each operation
+     * @param caches the counters of each cache
+     * @param maxExceptionsAvoided an upper bound on the number of exceptions avoided
+     */
+    private Snapshot(
+        EnumMap<Operation, OperationSnapshot> operations,
+        EnumMap<Cache, CacheSnapshot> caches,
+        long maxExceptionsAvoided) {
+      this.operations = operations;
+      this.caches = caches;
+      this.maxExceptionsAvoided = maxExceptionsAvoided;
+    }
+
+    /**
+     * Returns the counters of the given operation.
+     *
+     * @param op an operation
+     * @return the counters of {@code op}
+     */
+    @SuppressWarnings("nullness:return") // every operation is in the map
+    public OperationSnapshot operation(Operation op) {
+      return operations.get(op);
+    }
+
+    /**
+     * Returns the counters of the given cache.
+     *
+     * @param cache a cache
+     * @return the counters of {@code cache}
+     */
+    @SuppressWarnings("nullness:return") // every cache is in the map
+    public CacheSnapshot cache(Cache cache) {
+      return caches.get(cache);
+    }
+
+    /**
+     * Returns an upper bound on the number of exceptions that lookups did not throw and catch
+     * because a cache told them where to look. It counts every loader that a lookup skipped, but a
+     * skipped loader might have succeeded without throwing, for example by delegating to a parent
+     * that the loaders share. A guess that fails is not subtracted.
+     *
+     * @return an upper bound on the number of exceptions avoided
+     */
+    public long maxExceptionsAvoided() {
+      return maxExceptionsAvoided;
+    }
+
+    /**
+     * Returns the counters as a map from a name, such as "classForName.count" or
+     * "argumentLists.hits", to a value. Latencies are in nanoseconds.
+     *
+     * @return the counters, sorted by name
+     */
+    public Map<String, Long> toMap() {
+      Map<String, Long> result = new TreeMap<>();
+      for (Map.Entry<Operation, OperationSnapshot> entry : operations.entrySet()) {
+        String key = entry.getKey().key;
+        OperationSnapshot op = entry.getValue();
+        result.put(key + ".count", op.count());
+        result.put(key + ".failures", op.failures());
+        result.put(key + ".totalNanos", op.totalNanos());
+        result.put(key + ".p50Nanos", op.percentileNanos(50));
+        result.put(key + ".p99Nanos", op.percentileNanos(99));
+      }
+      for (Map.Entry<Cache, CacheSnapshot> entry : caches.entrySet()) {
+        String key = entry.getKey().key;
+        CacheSnapshot cache = entry.getValue();
+        result.put(key + ".hits", cache.hits());
+        result.put(key + ".misses", cache.misses());
+        result.put(key + ".evictions", cache.evictions());
+      }
+      result.put("maxExceptionsAvoided", maxExceptionsAvoided);
+      return result;
+    }
+
+    /**
+     * Returns a multi-line report of the counters, one per line.
+     *
+     * @return a report of the counters
+     */
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      for (Map.Entry<String, Long> entry : toMap().entrySet()) {
+        sb.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+      }
+      return sb.toString();
+    }
+  }
+
+  /** The counters of one operation, as of a {@link Snapshot}. */
+  public static final class OperationSnapshot {
+    /** The number of calls that threw an exception. */
+    private final long failures;
+
+    /** The total duration of all calls, in nanoseconds. */
+    private final long totalNanos;
+
+    /** The latency histogram; see {@link Metrics#BUCKETS}. */
+    private final long[] histogram;
+
+    /** The number of calls. */
+    private final long count;
+
+    /**
+     * Creates an OperationSnapshot.
+     *
+     * @param failures the number of calls that threw an exception
+     * @param totalNanos the total duration of all calls, in nanoseconds
+     * @param histogram the latency histogram; see {@link #BUCKETS}
+     */
+    private OperationSnapshot(long failures, long totalNanos, long[] histogram) {
+      this.failures = failures;
+      this.totalNanos = totalNanos;
+      this.histogram = histogram;
+      long sum = 0;
+      for (long bucket : histogram) {
+        sum += bucket;
+      }
+      this.count = sum;
+    }
+
+    /**
+     * Returns the number of calls.
+     *
+     * @return the number of calls
+     */
+    public long count() {
+      return count;
+    }
+
+    /**
+     * Returns the number of calls that threw an exception.
+     *
+     * @return the number of calls that threw an exception
+     */
+    public long failures() {
+      return failures;
+    }
+
+    /**
+     * Returns the total duration of all calls.
+     *
+     * @return the total duration of all calls, in nanoseconds
+     */
+    public long totalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * Returns an upper bound on the given percentile of the durations of the calls. The bound is
+     * within a factor of 2 of the true value.
+     *
+     * @param percentile a number between 0 and 100
+     * @return an upper bound on the duration, in nanoseconds, of the given percentage of calls; 0
+     *     if there were no calls
+     */
+    public long percentileNanos(double percentile) {
+      if (!(percentile >= 0 && percentile <= 100)) {
+        throw new IllegalArgumentException("Bad percentile: " + percentile);
+      }
+      double target = Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < histogram.length; i++) {
+        seen += histogram[i];
+        if (seen >= target && seen > 0) {
+          return i == histogram.length - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ROOT,
+          "count=%d failures=%d totalNanos=%d p50Nanos=%d p99Nanos=%d",
+          count,
+          failures,
+          totalNanos,
+          percentileNanos(50),
+          percentileNanos(99));
+    }
+  }
+
+  /** The counters of one cache, as of a {@link Snapshot}. */
+  public static final class CacheSnapshot {
+    /** The number of lookups that found a value. */
+    private final long hits;
+
+    /** The number of lookups that found no value. */
+    private final long misses;
+
+    /** The number of values removed to make room for others. */
+    private final long evictions;
+
+    /**
+     * Creates a CacheSnapshot.
+     *
+     * @param hits the number of lookups that found a value
+     * @param misses the number of lookups that found no value
+     * @param evictions the number of values removed to make room for others
+     */
+    private CacheSnapshot(long hits, long misses, long evictions) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the number of lookups that found a value
+     */
+    public long hits() {
+      return hits;
+    }
+
+    /**
+     * Returns the number of lookups that found no value.
+     *
+     * @return the number of lookups that found no value
+     */
+    public long misses() {
+      return misses;
+    }
+
+    /**
+     * Returns the number of values removed to make room for others.
+     *
+     * @return the number of values removed to make room for others
+     */
+    public long evictions() {
+      return evictions;
+    }
+
+    /**
+     * Returns the fraction of lookups that found a value.
+     *
+     * @return the fraction of lookups that found a value, or 0 if there were no lookups
+     */
+    public double hitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ROOT, "hits=%d misses=%d evictions=%d", hits, misses, evictions);
+    }
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // JMX
+  //
+
+  /** The name under which {@link #registerMBean} registers the MBean. */
+  public static final String MBEAN_NAME = "org.plumelib.reflection:type=Metrics";
+
+  /** The MBean, which reads the counters of this class. */
+  private static final class MBean implements MetricsMXBean {
+    /** Creates the MBean. */
+    MBean() {}
+
+    @Override
+    public Map<String, Long> getCounters() {
+      return snapshot().toMap();
+    }
+
+    @Override
+    public void reset() {
+      Metrics.reset();
+    }
+  }
+
+  /**
+   * Registers a {@link MetricsMXBean} with the platform MBean server, under the name {@link
+   * #MBEAN_NAME}, so that tools such as JConsole can read the counters. Does nothing if the MBean
+   * is already registered.
+   *
+   * @return the name of the MBean
+   */
+  public static ObjectName registerMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        try {
+          server.registerMBean(new StandardMBean(new MBean(), MetricsMXBean.class, true), name);
+        } catch (InstanceAlreadyExistsException e) {
+          // Another thread registered it.
+        }
+      }
+      return name;
+    } catch (JMException e) {
+      throw new Error("Cannot register " + MBEAN_NAME, e);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package org.plumelib.reflection;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link Metrics} counters. {@link Metrics#registerMBean}
+ * registers an implementation with the platform MBean server.
+ */
+public interface MetricsMXBean {
+
+  /**
+   * Returns the counters, as by {@link Metrics.Snapshot#toMap}.
+   *
+   * @return the counters, sorted by name
+   */
+  Map<String, Long> getCounters();
+
+  /** Sets every counter to zero, as by {@link Metrics#reset}. */
+  void reset();
+}
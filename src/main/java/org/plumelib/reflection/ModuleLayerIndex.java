@@ -0,0 +1,186 @@
+package org.plumelib.reflection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.signature.qual.ClassGetName;
+
+/**
+ * An index from package names to the modules, in a set of module layers, that contain them. It
+ * finds a class on the module path with a single lookup in the loader of the module that contains
+ * the class's package, so the cost of a lookup does not depend on the number of layers or modules.
+ *
+ * <p>The index includes the given layers and all their ancestor layers. If a package is in modules
+ * of several layers, the first layer wins, where the layers are ordered as given and each is
+ * followed by its parents, depth first. Thus a child layer takes precedence over its parents.
+ *
+ * <p>An index is a snapshot: it does not reflect layers created after it.
+ */
+public final class ModuleLayerIndex {
+
+  /** The layers that contain modules, in order of precedence. */
+  private final List<ModuleLayer> layers = new ArrayList<>();
+
+  /** The modules, in order of precedence. */
+  private final List<Module> modules = new ArrayList<>();
+
+  /** Maps each package name to the module that contains it. */
+  private final Map<String, Module> packages = new HashMap<>();
+
+  /**
+   * Creates an index of the given layers and their ancestors.
+   *
+   * @param layers the layers, in order of precedence
+   */
+  public ModuleLayerIndex(List<ModuleLayer> layers) {
+    Set<ModuleLayer> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (ModuleLayer layer : layers) {
+      // Depth-first traversal of the layer and its ancestors.
+      Deque<ModuleLayer> stack = new ArrayDeque<>();
+      stack.push(layer);
+      while (!stack.isEmpty()) {
+        ModuleLayer l = stack.pop();
+        if (!seen.add(l)) {
+          continue;
+        }
+        addModules(l);
+        List<ModuleLayer> parents = l.parents();
+        for (int i = parents.size() - 1; i >= 0; i--) {
+          stack.push(parents.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an index of the boot layer, which contains the modules of the JDK and of the
+   * application's module path.
+   *
+   * @return an index of the boot layer
+   */
+  public static ModuleLayerIndex ofBoot() {
+    return new ModuleLayerIndex(Collections.singletonList(ModuleLayer.boot()));
+  }
+
+  /**
+   * Adds the modules of one layer to this index. Packages already in the index are not changed.
+   *
+   * @param layer a module layer
+   */
+  private void addModules(ModuleLayer layer) {
+    if (layer.modules().isEmpty()) {
+      // Such as ModuleLayer.empty(), the parent of the boot layer.
+      return;
+    }
+    layers.add(layer);
+    // Layer.modules() is unordered; sort for a deterministic report. The modules of a layer are
+    // named, and no two have the same name, so the order is total.
+    List<Module> layerModules = new ArrayList<>(layer.modules());
+    layerModules.sort(Comparator.comparing(m -> String.valueOf(m.getName())));
+    for (Module m : layerModules) {
+      modules.add(m);
+      for (String p : m.getPackages()) {
+        packages.putIfAbsent(p, m);
+      }
+    }
+  }
+
+  /**
+   * Returns the module that contains the given package.
+   *
+   * @param packageName a package name
+   * @return the module that contains the package, or null if no module in the layers does
+   */
+  public @Nullable Module moduleOf(String packageName) {
+    return packages.get(packageName);
+  }
+
+  /**
+   * Returns the class with the given name. The class is loaded by the loader of the module that
+   * contains its package, and is initialized. The argument is a binary name for a non-array and a
+   * field descriptor for an array, as for {@link Class#forName(String)}.
+   *
+   * @param className the name of the class
+   * @return the class with the given name
+   * @throws ClassNotFoundException if no module in the layers contains the class's package, or
+   *     that module does not contain the class
+   */
+  public Class<?> forName(@ClassGetName String className) throws ClassNotFoundException {
+    String packageName = ClassLoaderGroup.packageName(className);
+    Module m = packages.get(packageName);
+    if (m == null) {
+      if (className.startsWith("[") && packageName.isEmpty()) {
+        // An array of primitives.
+        return Class.forName(className);
+      }
+      throw new ClassNotFoundException(
+          className + ": no module in the layers contains package " + packageName);
+    }
+    return Class.forName(className, true, m.getClassLoader());
+  }
+
+  /**
+   * Returns the modules in the layers, in order of precedence.
+   *
+   * @return the modules in the layers
+   */
+  public List<Module> modules() {
+    return Collections.unmodifiableList(modules);
+  }
+
+  /**
+   * Returns the packages of each module, as indexed. A package that is in several modules is
+   * listed only for the one that takes precedence. Modules of different layers are distinct keys,
+   * even if they have the same name.
+   *
+   * @return a map from each module to the names of its packages, in order of precedence
+   */
+  public Map<Module, SortedSet<String>> packagesByModule() {
+    Map<Module, SortedSet<String>> result = new LinkedHashMap<>();
+    for (Module m : modules) {
+      result.put(m, new TreeSet<>());
+    }
+    for (Map.Entry<String, Module> entry : packages.entrySet()) {
+      SortedSet<String> modulePackages = result.get(entry.getValue());
+      if (modulePackages != null) {
+        modulePackages.add(entry.getKey());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a multi-line report of the modules and their packages, in order of precedence. Each
+   * module is followed by the position of its layer in the order of precedence, not counting
+   * layers without modules, such as "java.base (layer 0)".
+   *
+   * @return a multi-line report of the modules and their packages
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<Module, SortedSet<String>> entry : packagesByModule().entrySet()) {
+      Module m = entry.getKey();
+      sb.append(m.isNamed() ? m.getName() : m.toString())
+          .append(" (layer ")
+          .append(layers.indexOf(m.getLayer()))
+          .append(")")
+          .append(System.lineSeparator());
+      for (String p : entry.getValue()) {
+        sb.append("  ").append(p).append(System.lineSeparator());
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,556 @@
+package org.plumelib.reflection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A read-only table of strings, such as type names and method descriptors, that is stored in a
+ * memory-mapped file rather than in the heap. It serves an analysis of more names than fit in the
+ * heap as Strings, even interned ones.
+ *
+ * <p>A table is written once, by a {@link Writer}, and then opened by {@link #open}. Each string
+ * has an {@code int} ID, which is its index in the order in which the strings were first added.
+ * The file contains the strings' UTF-8 bytes, their offsets, and a hash index, so {@link #lookup}
+ * finds a string's ID without reading the file into the heap. The bytes of a string are at {@link
+ * #offset} in {@link #bytes}, and can be tested by the {@code ByteBuffer} predicates of {@link
+ * Signatures}, such as {@link Signatures#isFieldDescriptor(ByteBuffer, int, int)}, without creating
+ * a String. {@link #get} creates a String for a single ID.
+ *
+ * <p>A file is limited to 2 GiB. A NameTable only reads its file, using absolute gets, so it may be
+ * used by multiple threads.
+ */
+public final class NameTable {
+
+  /** The first four bytes of a name table file: "NTBL". */
+  private static final int MAGIC = 0x4E54424C;
+
+  /** The version of the name table file format. */
+  private static final int VERSION = 1;
+
+  /** The number of bytes before the offsets: magic, version, count, slots, and string length. */
+  private static final int HEADER_SIZE = 20;
+
+  /*
+   * The format of a name table file is, using big-endian integers:
+   *
+   *   int    MAGIC
+   *   int    VERSION
+   *   int    number of strings, n
+   *   int    number of slots in the hash index, a power of 2 that is at least 2n
+   *   int    total length of the strings, in bytes
+   *   int    offset of each string in the strings section, followed by the total length (n + 1)
+   *   int    hash of each string (n)
+   *   int    each slot of the hash index: 0 if empty, otherwise 1 + the ID of a string
+   *   byte   the UTF-8 encodings of the strings, concatenated
+   *
+   * The hash index uses linear probing, starting at the slot given by the low bits of the hash.
+   */
+
+  /** The contents of the file. */
+  private final ByteBuffer file;
+
+  /** The number of strings. */
+  private final int size;
+
+  /** The number of slots in the hash index, a power of 2. */
+  private final int slots;
+
+  /** The index in {@link #file} of the offsets. */
+  private final int offsetsStart;
+
+  /** The index in {@link #file} of the hashes. */
+  private final int hashesStart;
+
+  /** The index in {@link #file} of the hash index. */
+  private final int indexStart;
+
+  /** The strings section, a read-only view of the end of {@link #file}. */
+  private final ByteBuffer strings;
+
+  /**
+   * Creates a NameTable from the contents of a file.
+   *
+   * @param file the contents of a name table file
+   * @param pathname the file, for error messages
+   * @throws IOException if the contents are malformed
+   */
+  private NameTable(ByteBuffer file, Path pathname) throws IOException {
+    this.file = file;
+    if (file.capacity() < HEADER_SIZE || file.getInt(0) != MAGIC || file.getInt(4) != VERSION) {
+      throw new IOException("Not a version " + VERSION + " name table: " + pathname);
+    }
+    this.size = file.getInt(8);
+    this.slots = file.getInt(12);
+    int stringsLength = file.getInt(16);
+    long stringsStart = HEADER_SIZE + 4L * (size + 1) + 4L * size + 4L * slots;
+    if (size < 0
+        || slots < 2 * (long) size
+        || Integer.bitCount(slots) != 1
+        || stringsLength < 0
+        || stringsStart + stringsLength != file.capacity()) {
+      throw new IOException("Malformed name table: " + pathname);
+    }
+    this.offsetsStart = HEADER_SIZE;
+    this.hashesStart = offsetsStart + 4 * (size + 1);
+    this.indexStart = hashesStart + 4 * size;
+    this.strings = file.slice((int) stringsStart, stringsLength).asReadOnlyBuffer();
+    checkOffsets(stringsLength, pathname);
+    checkIndex(pathname);
+  }
+
+  /**
+   * Checks that the offsets start at 0, do not decrease, and end at the length of the strings
+   * section, so that every string lies within the strings section.
+   *
+   * @param stringsLength the length of the strings section
+   * @param pathname the file, for error messages
+   * @throws IOException if the offsets are malformed
+   */
+  private void checkOffsets(int stringsLength, Path pathname) throws IOException {
+    int previous = 0;
+    for (int id = 0; id <= size; id++) {
+      int offset = file.getInt(offsetsStart + 4 * id);
+      if (offset < previous || (id == 0 && offset != 0)) {
+        throw new IOException("Malformed offset of string " + id + " in name table: " + pathname);
+      }
+      previous = offset;
+    }
+    if (previous != stringsLength) {
+      throw new IOException("Malformed strings length in name table: " + pathname);
+    }
+  }
+
+  /**
+   * Checks that each slot of the hash index is empty or holds an ID, and that at most {@link
+   * #size} slots are used. Since there are at least twice as many slots, every probe sequence
+   * reaches an empty slot, and so every lookup terminates.
+   *
+   * @param pathname the file, for error messages
+   * @throws IOException if the hash index is malformed
+   */
+  private void checkIndex(Path pathname) throws IOException {
+    int used = 0;
+    for (int slot = 0; slot < slots; slot++) {
+      int entry = file.getInt(indexStart + 4 * slot);
+      if (entry < 0 || entry > size) {
+        throw new IOException("Malformed hash index slot " + slot + " in name table: " + pathname);
+      }
+      if (entry != 0) {
+        used++;
+      }
+    }
+    if (used > size) {
+      throw new IOException("Malformed hash index in name table: " + pathname);
+    }
+  }
+
+  /**
+   * Opens a name table file. The file is memory-mapped, so opening it takes constant heap space,
+   * whatever its size. Opening reads the offsets and the hash index to check them, but not the
+   * strings.
+   *
+   * @param tableFile a file written by {@link Writer#write}
+   * @return the name table in the file
+   * @throws IOException if the file does not exist, there is trouble reading it, or it is
+   *     malformed
+   */
+  public static NameTable open(Path tableFile) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(tableFile, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Name table is larger than 2 GiB: " + tableFile);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    return new NameTable(buffer, tableFile);
+  }
+
+  /**
+   * Returns the number of strings in the table. The IDs are 0 through {@code size() - 1}.
+   *
+   * @return the number of strings
+   */
+  public int size() {
+    return size;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Access by ID
+  //
+
+  /**
+   * Checks that an ID is in the table.
+   *
+   * @param id an ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   */
+  private void checkId(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No string with ID " + id + "; size is " + size);
+    }
+  }
+
+  /**
+   * Returns the strings section of the file: the UTF-8 bytes of all the strings, concatenated.
+   * The string with ID {@code id} occupies {@code length(id)} bytes starting at {@code offset(id)}.
+   *
+   * @return a read-only view of the strings section, which shares the mapped file
+   */
+  public ByteBuffer bytes() {
+    return strings.duplicate();
+  }
+
+  /**
+   * Returns the index in {@link #bytes} of the first byte of a string.
+   *
+   * @param id an ID
+   * @return the index of the first byte of the string with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   */
+  public int offset(int id) {
+    checkId(id);
+    return file.getInt(offsetsStart + 4 * id);
+  }
+
+  /**
+   * Returns the length, in bytes, of a string's UTF-8 encoding.
+   *
+   * @param id an ID
+   * @return the number of bytes in the string with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   */
+  public int length(int id) {
+    checkId(id);
+    int pos = offsetsStart + 4 * id;
+    return file.getInt(pos + 4) - file.getInt(pos);
+  }
+
+  /**
+   * Returns a string. Unlike the other methods of this class, this copies the string into the
+   * heap.
+   *
+   * @param id an ID
+   * @return the string with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   */
+  public String get(int id) {
+    int offset = offset(id);
+    return StandardCharsets.UTF_8.decode(strings.slice(offset, length(id))).toString();
+  }
+
+  /**
+   * Returns true if the string with the given ID is a binary name.
+   *
+   * @param id an ID
+   * @return true if the string with the given ID is a binary name
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   * @see Signatures#isBinaryName(ByteBuffer, int, int)
+   */
+  public boolean isBinaryName(int id) {
+    return Signatures.isBinaryName(strings, offset(id), length(id));
+  }
+
+  /**
+   * Returns true if the string with the given ID is a field descriptor.
+   *
+   * @param id an ID
+   * @return true if the string with the given ID is a field descriptor
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   * @see Signatures#isFieldDescriptor(ByteBuffer, int, int)
+   */
+  public boolean isFieldDescriptor(int id) {
+    return Signatures.isFieldDescriptor(strings, offset(id), length(id));
+  }
+
+  /**
+   * Returns true if the string with the given ID is a method descriptor.
+   *
+   * @param id an ID
+   * @return true if the string with the given ID is a method descriptor
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in the table
+   * @see Signatures#isMethodDescriptor(ByteBuffer, int, int)
+   */
+  public boolean isMethodDescriptor(int id) {
+    return Signatures.isMethodDescriptor(strings, offset(id), length(id));
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Lookup
+  //
+
+  /**
+   * Returns the ID of the given string, or -1 if it is not in the table.
+   *
+   * @param s a string
+   * @return the ID of the string, or -1
+   */
+  public int lookup(String s) {
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      if (s.charAt(i) >= 0x80) {
+        byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+        return lookup(ByteBuffer.wrap(encoded), 0, encoded.length);
+      }
+    }
+    // The string is ASCII, so its characters are its UTF-8 bytes.
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + s.charAt(i);
+    }
+    int mask = slots - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = file.getInt(indexStart + 4 * slot);
+      if (entry == 0) {
+        return -1;
+      }
+      int id = entry - 1;
+      if (file.getInt(hashesStart + 4 * id) == hash && asciiEquals(id, s)) {
+        return id;
+      }
+    }
+  }
+
+  /**
+   * Returns the ID of the string with the given UTF-8 encoding, or -1 if it is not in the table.
+   *
+   * @param bytes a buffer; its position is ignored and not changed
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return the ID of the string, or -1
+   */
+  public int lookup(ByteBuffer bytes, int offset, int length) {
+    int hash = hash(bytes, offset, length);
+    int mask = slots - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = file.getInt(indexStart + 4 * slot);
+      if (entry == 0) {
+        return -1;
+      }
+      int id = entry - 1;
+      if (file.getInt(hashesStart + 4 * id) == hash && bytesEqual(id, bytes, offset, length)) {
+        return id;
+      }
+    }
+  }
+
+  /**
+   * Returns the hash of a string, given its UTF-8 encoding. For an ASCII string, it is the same as
+   * {@link String#hashCode}.
+   *
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return the hash of the bytes
+   */
+  private static int hash(ByteBuffer bytes, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + (bytes.get(i) & 0xFF);
+    }
+    return hash;
+  }
+
+  /**
+   * Returns true if the string with the given ID is the given ASCII string.
+   *
+   * @param id an ID
+   * @param s an ASCII string
+   * @return true if the string with ID {@code id} is {@code s}
+   */
+  private boolean asciiEquals(int id, String s) {
+    int length = s.length();
+    if (length(id) != length) {
+      return false;
+    }
+    int offset = offset(id);
+    for (int i = 0; i < length; i++) {
+      if (strings.get(offset + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the string with the given ID has the given bytes.
+   *
+   * @param id an ID
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return true if the string with ID {@code id} consists of the given bytes
+   */
+  private boolean bytesEqual(int id, ByteBuffer bytes, int offset, int length) {
+    if (length(id) != length) {
+      return false;
+    }
+    int start = offset(id);
+    for (int i = 0; i < length; i++) {
+      if (strings.get(start + i) != bytes.get(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Writing
+  //
+
+  /**
+   * Accumulates strings and writes them as a name table file. Duplicates are stored once.
+   *
+   * <p>A Writer is not thread-safe.
+   */
+  public static final class Writer {
+
+    /** The UTF-8 encodings of the strings, concatenated. */
+    private byte[] bytes = new byte[1024];
+
+    /** The number of bytes of {@link #bytes} that are in use. */
+    private int bytesUsed = 0;
+
+    /** The start of each string in {@link #bytes}, followed by {@link #bytesUsed}. */
+    private int[] offsets = new int[65];
+
+    /** The hash of each string; see {@link NameTable#hash}. */
+    private int[] hashes = new int[64];
+
+    /** The number of strings. */
+    private int size = 0;
+
+    /**
+     * The hash index: each element is 0 for an empty slot or one more than an ID. Its length is a
+     * power of 2, and at most half the slots are used.
+     */
+    private int[] table = new int[128];
+
+    /** Creates an empty Writer. */
+    public Writer() {}
+
+    /**
+     * Returns the number of distinct strings that have been added.
+     *
+     * @return the number of distinct strings
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Adds a string, if it has not already been added.
+     *
+     * @param s a string, such as a type name or a method descriptor
+     * @return the ID of the string in the table
+     */
+    @SuppressWarnings("index") // the per-ID arrays grow together
+    public int add(String s) {
+      byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer wrapped = ByteBuffer.wrap(encoded);
+      int hash = hash(wrapped, 0, encoded.length);
+      int mask = table.length - 1;
+      int slot = hash & mask;
+      while (table[slot] != 0) {
+        int id = table[slot] - 1;
+        if (hashes[id] == hash
+            && Arrays.equals(bytes, offsets[id], offsets[id + 1], encoded, 0, encoded.length)) {
+          return id;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (bytesUsed + encoded.length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesUsed + encoded.length));
+      }
+      System.arraycopy(encoded, 0, bytes, bytesUsed, encoded.length);
+      bytesUsed += encoded.length;
+      if (size == hashes.length) {
+        offsets = Arrays.copyOf(offsets, 2 * size + 1);
+        hashes = Arrays.copyOf(hashes, 2 * size);
+      }
+      int id = size++;
+      offsets[id + 1] = bytesUsed;
+      hashes[id] = hash;
+      table[slot] = id + 1;
+      if (size * 2 > table.length) {
+        rehash(table.length * 2);
+      }
+      return id;
+    }
+
+    /**
+     * Replaces the hash index by one of the given size.
+     *
+     * @param length the length of the new index, a power of 2
+     */
+    @SuppressWarnings("index") // every ID is less than size
+    private void rehash(int length) {
+      table = new int[length];
+      int mask = length - 1;
+      for (int id = 0; id < size; id++) {
+        int slot = hashes[id] & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+      }
+    }
+
+    /**
+     * Writes the strings that have been added to a file. The file is written to a temporary file
+     * that is then renamed, so a concurrent reader never sees a partially-written file.
+     *
+     * @param tableFile the file to write
+     * @throws IOException if there is trouble writing the file, or it would exceed 2 GiB
+     */
+    public void write(Path tableFile) throws IOException {
+      long fileSize = HEADER_SIZE + 4L * (size + 1) + 4L * size + 4L * table.length + bytesUsed;
+      if (fileSize > Integer.MAX_VALUE) {
+        throw new IOException("Name table would be larger than 2 GiB: " + tableFile);
+      }
+      Path absolute = tableFile.toAbsolutePath();
+      Path dir = absolute.getParent();
+      if (dir == null) {
+        throw new IOException("No parent directory: " + tableFile);
+      }
+      Path tmp = Files.createTempFile(dir, absolute.getFileName() + "-", ".tmp");
+      try {
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          out.writeInt(size);
+          out.writeInt(table.length);
+          out.writeInt(bytesUsed);
+          for (int i = 0; i <= size; i++) {
+            out.writeInt(offsets[i]);
+          }
+          for (int i = 0; i < size; i++) {
+            out.writeInt(hashes[i]);
+          }
+          for (int entry : table) {
+            out.writeInt(entry);
+          }
+          out.write(bytes, 0, bytesUsed);
+        }
+        try {
+          Files.move(
+              tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+  }
+}
@@ -5,15 +5,22 @@ package org.plumelib.reflection;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import org.checkerframework.checker.interning.qual.Interned;
 import org.checkerframework.checker.mustcall.qual.MustCallUnknown;
 import org.checkerframework.checker.mustcall.qual.PolyMustCall;
@@ -24,6 +31,8 @@ import org.checkerframework.checker.nullness.qual.PolyNull;
 import org.checkerframework.checker.signature.qual.BinaryName;
 import org.checkerframework.checker.signature.qual.ClassGetName;
 import org.checkerframework.checker.signature.qual.ClassGetSimpleName;
+import org.checkerframework.checker.signature.qual.FieldDescriptor;
+import org.checkerframework.checker.signature.qual.FqBinaryName;
 import org.checkerframework.checker.signature.qual.FullyQualifiedName;
 import org.checkerframework.dataflow.qual.Pure;
 
@@ -112,27 +121,102 @@ public final class ReflectionP {
   // fully-qualified name (only for a non-array).
   public static Class<?> classForName(@ClassGetName String className)
       throws ClassNotFoundException {
+    Class<?> result = classForName(className, Class::forName);
+    WarmUp.recordClass(className);
+    return result;
+  }
+
+  /**
+   * Like {@link #classForName(String)}, but finds the class using the given group of class
+   * loaders. The loader that owns the class's package is asked first, so a lookup usually does not
+   * cause any {@link ClassNotFoundException}; see {@link ClassLoaderGroup}.
+   *
+   * @param className name of the class
+   * @param loaders the class loaders to search
+   * @return the Class corresponding to className
+   * @throws ClassNotFoundException if the class is not found by any of the loaders
+   */
+  public static Class<?> classForName(@ClassGetName String className, ClassLoaderGroup loaders)
+      throws ClassNotFoundException {
+    return classForName(className, loaders::forName);
+  }
+
+  /**
+   * Like {@link #classForName(String)}, but finds the class on the module path, in the loader of
+   * the module that contains the class's package; see {@link ModuleLayerIndex}.
+   *
+   * @param className name of the class
+   * @param layers the module layers to search
+   * @return the Class corresponding to className
+   * @throws ClassNotFoundException if the class is not found in the module layers
+   */
+  public static Class<?> classForName(@ClassGetName String className, ModuleLayerIndex layers)
+      throws ClassNotFoundException {
+    return classForName(className, layers::forName);
+  }
+
+  /** Finds a class by name. */
+  @FunctionalInterface
+  private interface ClassFinder {
+    /**
+     * Returns the class with the given name.
+     *
+     * @param className a binary name or, for an array, a field descriptor
+     * @return the class with the given name
+     * @throws ClassNotFoundException if the class is not found
+     */
+    Class<?> find(@ClassGetName String className) throws ClassNotFoundException;
+  }
+
+  /**
+   * Implements {@link #classForName(String)}, using the given way to find a class by its name.
+   *
+   * @param className name of the class
+   * @param finder finds a class, given its binary name or field descriptor
+   * @return the Class corresponding to className
+   * @throws ClassNotFoundException if the class is not found
+   */
+  private static Class<?> classForName(@ClassGetName String className, ClassFinder finder)
+      throws ClassNotFoundException {
     Class<?> result = primitiveClasses.get(className);
     if (result != null) {
       return result;
     }
+    long start = Metrics.start();
+    ResolutionEvents.ClassForName event = new ResolutionEvents.ClassForName();
+    event.begin();
+    int retries = 0;
     try {
-      return Class.forName(className);
-    } catch (ClassNotFoundException e) {
-      while (true) {
-        int pos = className.lastIndexOf('.');
-        if (pos < 0) {
-          throw e;
-        }
-        @SuppressWarnings("signature") // checked below & exception is handled
-        @ClassGetName String innerName = className.substring(0, pos) + "$" + className.substring(pos + 1);
-        className = innerName;
-        try {
-          return Class.forName(className);
-        } catch (ClassNotFoundException ee) {
-          // nothing to do
+      try {
+        result = finder.find(className);
+      } catch (ClassNotFoundException e) {
+        String name = className;
+        while (true) {
+          int pos = name.lastIndexOf('.');
+          if (pos < 0) {
+            throw e;
+          }
+          @SuppressWarnings("signature") // checked below & exception is handled
+          @ClassGetName String innerName = name.substring(0, pos) + "$" + name.substring(pos + 1);
+          name = innerName;
+          retries++;
+          try {
+            result = finder.find(name);
+            break;
+          } catch (ClassNotFoundException ee) {
+            // nothing to do
+          }
         }
       }
+      return result;
+    } finally {
+      Metrics.recordCall(Metrics.Operation.CLASS_FOR_NAME, start, result == null);
+      if (event.shouldCommit()) {
+        event.className = className;
+        event.found = result != null;
+        event.nestedClassRetries = retries;
+        event.commit();
+      }
     }
   }
 
@@ -164,101 +248,242 @@ public final class ReflectionP {
    * @return the class name, including outer classes but without the package
    */
   public static String nameWithoutPackage(Class<?> c) {
-    Class<?> enclosing = c.getEnclosingClass();
-    if (enclosing == null) {
-      return c.getSimpleName();
-    }
-
-    ArrayDeque<String> parts = new ArrayDeque<>();
-    Class<?> current = c;
-    while (current != null) {
-      parts.addFirst(current.getSimpleName());
-      current = current.getEnclosingClass();
-    }
-    return String.join(".", parts);
+    return namesWithoutPackage.get(c);
   }
 
-  // //////////////////////////////////////////////////////////////////////
-  // ClassLoader
-  //
+  /** Memoizes {@link #nameWithoutPackage}. */
+  private static final ClassValue<String> namesWithoutPackage =
+      new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> c) {
+          Class<?> enclosing = c.getEnclosingClass();
+          if (enclosing == null) {
+            return c.getSimpleName();
+          }
+          return nameWithoutPackage(enclosing) + "." + c.getSimpleName();
+        }
+      };
 
   /**
-   * This static nested class has no purpose but to define defineClassFromFile.
-   * ClassLoader.defineClass is protected, so I subclass ClassLoader in order to call defineClass.
+   * Returns the binary name of the class, with "[]" appended for each array dimension. For
+   * example, returns "java.util.Map$Entry[]" for {@code Map.Entry[].class}. The result is
+   * memoized, so this is cheaper than {@link Class#getTypeName}.
+   *
+   * @param c a class
+   * @return the binary name of the class
    */
-  private static class PromiscuousLoader extends ClassLoader {
+  public static @FqBinaryName String fqBinaryName(Class<?> c) {
+    return fqBinaryNames.get(c);
+  }
 
-    /** Create a new PromiscuousLoader. */
-    public PromiscuousLoader() {}
+  /** Memoizes {@link #fqBinaryName}. */
+  private static final ClassValue<@FqBinaryName String> fqBinaryNames =
+      new ClassValue<@FqBinaryName String>() {
+        @Override
+        @SuppressWarnings("signature") // Class.getTypeName returns a @FqBinaryName
+        protected @FqBinaryName String computeValue(Class<?> c) {
+          return c.getTypeName();
+        }
+      };
 
-    /**
-     * Converts the bytes in a file into an instance of class Class, and also resolves (links) the
-     * class. Delegates the real work to defineClass.
-     *
-     * @see ClassLoader#defineClass(String,byte[],int,int)
-     * @param className the expected binary name of the class to define, or null if not known
-     * @param pathname the file from which to load the class
-     * @return the {@code Class} object that was created
-     * @throws FileNotFoundException if the file does not exist
-     * @throws IOException if there is trouble reading the file
-     */
-    public Class<?> defineClassFromFile(@BinaryName String className, String pathname)
-        throws FileNotFoundException, IOException {
-      byte[] classBytes;
-      try {
-        classBytes = Files.readAllBytes(Path.of(pathname));
-      } catch (java.nio.file.NoSuchFileException e) {
-        throw new FileNotFoundException(pathname);
-      }
-      Class<?> returnClass = defineClass(className, classBytes, 0, classBytes.length);
-      resolveClass(returnClass); // link the class
-      return returnClass;
-    }
+  /**
+   * Returns the field descriptor of the class, such as "I" or "[Ljava/lang/String;". The result
+   * is memoized, so this is cheaper than {@link Class#descriptorString} or converting the class's
+   * name with {@link Signatures#binaryNameToFieldDescriptor}.
+   *
+   * @param c a class, which is not a hidden class
+   * @return the field descriptor of the class
+   */
+  public static @FieldDescriptor String fieldDescriptor(Class<?> c) {
+    return fieldDescriptors.get(c);
   }
 
-  /** A ClassLoader that can call defineClassFromFile. */
-  private static final PromiscuousLoader thePromiscuousLoader = new PromiscuousLoader();
+  /** Memoizes {@link #fieldDescriptor}. */
+  private static final ClassValue<@FieldDescriptor String> fieldDescriptors =
+      new ClassValue<@FieldDescriptor String>() {
+        @Override
+        @SuppressWarnings("signature") // Class.descriptorString returns a @FieldDescriptor
+        protected @FieldDescriptor String computeValue(Class<?> c) {
+          return c.descriptorString();
+        }
+      };
+
+  // //////////////////////////////////////////////////////////////////////
+  // ClassLoader
+  //
+
+  /**
+   * The loader into which defineClassFromFile and similar methods define classes. It is never
+   * garbage-collected, so neither are the classes that it defines.
+   */
+  private static final DefiningClassLoader thePromiscuousLoader = new DefiningClassLoader();
 
   /**
    * Converts the bytes in a file into an instance of class Class, and resolves (links) the class.
    * Like {@link ClassLoader#defineClass(String,byte[],int,int)}, but takes a file name rather than
    * an array of bytes as an argument, and also resolves (links) the class.
    *
+   * <p>This method is thread-safe. If a class with the given name has already been defined by
+   * this method, that class is returned and the file is not read.
+   *
    * @see ClassLoader#defineClass(String,byte[],int,int)
-   * @param className the name of the class to define, or null if not known
+   * @param className the name of the class to define, or null to read it from the class file
    * @param pathname the pathname of a .class file
    * @return a Java Object corresponding to the Class defined in the .class file
    * @throws FileNotFoundException if the file cannot be found
    * @throws IOException if there is trouble reading the file
    */
   // Also throws UnsupportedClassVersionError and some other exceptions.
-  public static Class<?> defineClassFromFile(@BinaryName String className, String pathname)
+  public static Class<?> defineClassFromFile(
+      @Nullable @BinaryName String className, String pathname)
       throws FileNotFoundException, IOException {
     return thePromiscuousLoader.defineClassFromFile(className, pathname);
   }
 
+  /**
+   * Converts the bytes in a file into an instance of class Class, and resolves (links) the class.
+   * The name of the class is read from the {@code this_class} item of the class file, so the
+   * caller need not know it.
+   *
+   * <p>This method is thread-safe. If a class with the same name has already been defined by
+   * this method or a similar one in this class, that class is returned.
+   *
+   * @param pathname the pathname of a .class file
+   * @return a Java Object corresponding to the Class defined in the .class file
+   * @throws FileNotFoundException if the file cannot be found
+   * @throws IOException if there is trouble reading the file
+   */
+  // Also throws ClassFormatError and some other exceptions.
+  public static Class<?> defineClassFromFile(String pathname)
+      throws FileNotFoundException, IOException {
+    return thePromiscuousLoader.defineClassFromFile(pathname);
+  }
+
+  /**
+   * Like {@link #defineClassFromFile}, but memory-maps the file rather than reading it into a
+   * fresh array. This avoids copying the class file into the heap, which matters when defining
+   * many classes.
+   *
+   * <p>This method is thread-safe. If a class with the given name has already been defined by
+   * this method or a similar one in this class, that class is returned and the file is not mapped.
+   *
+   * @param className the name of the class to define, or null to read it from the class file
+   * @param pathname the pathname of a .class file
+   * @return a Java Object corresponding to the Class defined in the .class file
+   * @throws FileNotFoundException if the file cannot be found
+   * @throws IOException if there is trouble reading the file
+   */
+  public static Class<?> defineClassFromMappedFile(
+      @Nullable @BinaryName String className, String pathname)
+      throws FileNotFoundException, IOException {
+    return thePromiscuousLoader.defineClassFromMappedFile(className, pathname);
+  }
+
+  /**
+   * Converts the bytes in a buffer into an instance of class Class, and resolves (links) the class.
+   * Like {@link ClassLoader#defineClass(String,ByteBuffer,java.security.ProtectionDomain)}, but
+   * also resolves the class. The bytes from the buffer's position to its limit are used, and the
+   * position is advanced to the limit. A direct buffer is read in place, without being copied into
+   * the heap.
+   *
+   * <p>This method is thread-safe. If a class with the given name has already been defined by
+   * this method or a similar one in this class, that class is returned and the buffer is not read.
+   *
+   * @param className the name of the class to define, or null to read it from the class file
+   * @param classBytes the contents of a .class file
+   * @return a Java Object corresponding to the Class defined by the bytes
+   */
+  // Also throws ClassFormatError and some other exceptions.
+  public static Class<?> defineClassFromBuffer(
+      @Nullable @BinaryName String className, ByteBuffer classBytes) {
+    return thePromiscuousLoader.defineClassFromBuffer(className, classBytes);
+  }
+
+  /**
+   * Defines a hidden class (JVMS section 5.3.6) from the bytes in a file. A hidden class has no
+   * name by which other classes can refer to it, and it is unloaded once it becomes unreachable,
+   * even if the lookup class is not. Thus, unlike {@link #defineClassFromFile}, calling this method
+   * repeatedly does not fill metaspace.
+   *
+   * <p>The class must be in the same package as the lookup class of {@code lookup}, and {@code
+   * lookup} must have full privilege access. The class is initialized.
+   *
+   * @see MethodHandles.Lookup#defineHiddenClass
+   * @param lookup the lookup whose lookup class is the nestmate host and determines the package
+   * @param pathname the pathname of a .class file
+   * @return the hidden class
+   * @throws FileNotFoundException if the file cannot be found
+   * @throws IOException if there is trouble reading the file
+   * @throws IllegalAccessException if {@code lookup} does not have full privilege access
+   */
+  // Also throws ClassFormatError and some other exceptions.
+  public static Class<?> defineHiddenClassFromFile(MethodHandles.Lookup lookup, String pathname)
+      throws FileNotFoundException, IOException, IllegalAccessException {
+    byte[] classBytes;
+    try {
+      classBytes = Files.readAllBytes(Path.of(pathname));
+    } catch (java.nio.file.NoSuchFileException e) {
+      throw new FileNotFoundException(pathname);
+    }
+    return lookup.defineHiddenClass(classBytes, true).lookupClass();
+  }
+
+  /**
+   * Defines every class in a directory or jar file. The binary name of each class is derived from
+   * the path of its class file relative to the directory or jar root; {@code module-info.class}
+   * and files under {@code META-INF} are skipped. The class files are read in parallel using the
+   * given executor.
+   *
+   * <p>The classes are defined in an order that tolerates dependencies among them. A class whose
+   * superclass or superinterface is another not-yet-defined class in the batch fails with {@link
+   * NoClassDefFoundError}; such classes are retried after the others, until a round defines no
+   * more classes.
+   *
+   * <p>The result records, for each class, the defined class or the reason it could not be
+   * defined, together with the time spent reading and defining it. A class that was already
+   * defined by {@link #defineClassFromFile} or a similar method is returned as is.
+   *
+   * <p>The classes can never be unloaded. To define a batch of classes that can be unloaded, use
+   * {@link ScopedClassLoader#defineClasses}.
+   *
+   * @param pathname a directory, or a jar or zip file, containing .class files
+   * @param executor the executor used to read the class files
+   * @return a map from the binary name of each class to the outcome of defining it, in order of
+   *     binary name
+   * @throws IOException if there is trouble listing the contents of {@code pathname}
+   */
+  public static Map<String, Resolution<Class<?>>> defineClasses(
+      String pathname, Executor executor) throws IOException {
+    return thePromiscuousLoader.defineClasses(pathname, executor);
+  }
+
   // //////////////////////////////////////////////////////////////////////
   // Classpath
   //
 
-  // Perhaps abstract out the simpler addToPath from this
   /**
    * Add the directory to the system classpath.
    *
+   * <p>To add many directories, use {@link #addToClasspath(Collection)}, which sets the system
+   * property only once.
+   *
    * @param dir directory to add to the system classpath
    */
   public static void addToClasspath(String dir) {
     // If the dir isn't on CLASSPATH, add it.
-    String pathSep = System.getProperty("path.separator");
-    String cp = System.getProperty("java.class.path", ".").replace('\\', '/');
-    StringTokenizer tokenizer = new StringTokenizer(cp, pathSep, false);
-    boolean found = false;
-    while (tokenizer.hasMoreTokens() && !found) {
-      found = tokenizer.nextToken().equals(dir);
-    }
-    if (!found) {
-      System.setProperty("java.class.path", dir + pathSep + cp);
-    }
+    Classpath.addAllFirstToSystemClasspath(List.of(dir));
+  }
+
+  /**
+   * Add the directories to the system classpath. Each one that is not already on the classpath is
+   * added at the front, as if by calling {@link #addToClasspath(String)} on each in turn, but the
+   * {@code java.class.path} system property is set only once.
+   *
+   * @param dirs directories to add to the system classpath
+   * @see Classpath
+   */
+  public static void addToClasspath(Collection<String> dirs) {
+    Classpath.addAllFirstToSystemClasspath(dirs);
   }
 
   /**
@@ -279,8 +504,13 @@ public final class ReflectionP {
    * Maps from a comma-delimited string of arg types, such as appears in a method signature, to an
    * array of Class objects, one for each arg type. Example keys include: "java.lang.String,
    * java.lang.String, java.lang.Class[]" and "int,int".
+   *
+   * <p>Reads do not lock, so many threads can look up argument lists at once. An entry is written
+   * only when an argument list is resolved for the first time. The capacity can be set by the
+   * system property {@code org.plumelib.reflection.cache.argumentLists.capacity}.
    */
-  private static final ConcurrentHashMap<String, Class<?>[]> argsSeen = new ConcurrentHashMap<>();
+  private static final BoundedCache<String, Class<?>[]> argsSeen =
+      BoundedCache.builder(Metrics.Cache.ARGUMENT_LISTS).capacity(4096).build();
 
   /**
    * Given a method signature, return the method.
@@ -303,34 +533,104 @@ public final class ReflectionP {
    */
   public static Method methodForName(String method)
       throws ClassNotFoundException, NoSuchMethodException {
-
-    int oparenpos = method.indexOf('(');
-    int dotpos = method.lastIndexOf('.', oparenpos);
-    int cparenpos = method.indexOf(')', oparenpos);
-    if ((dotpos == -1) || (oparenpos == -1) || (cparenpos == -1)) {
-      throw new Error(
-          "malformed method name should contain a period, open paren, and close paren: "
-              + method
-              + " <<"
-              + dotpos
-              + ","
-              + oparenpos
-              + ","
-              + cparenpos
-              + ">>");
+    MethodSignature sig;
+    try {
+      sig = MethodSignature.parse(method);
+    } catch (IllegalArgumentException e) {
+      throw new Error(e.getMessage(), e);
     }
-    for (int i = cparenpos + 1; i < method.length(); i++) {
-      if (!Character.isWhitespace(method.charAt(i))) {
-        throw new Error(
-            "malformed method name should contain only whitespace following close paren: "
-                + method);
+    long start = Metrics.start();
+    ResolutionEvents.MethodForName event = new ResolutionEvents.MethodForName();
+    event.begin();
+    // Check the cache only if the event will be recorded.
+    boolean argumentCacheHit = event.isEnabled() && argsSeen.containsKey(sig.argnames());
+    boolean found = false;
+    try {
+      Class<?>[] argclasses = argClassesForName(sig.argnames());
+      Method result = methodForName(sig.classname(), sig.methodname(), argclasses);
+      found = true;
+      WarmUp.recordMethod(method);
+      return result;
+    } finally {
+      Metrics.recordCall(Metrics.Operation.METHOD_FOR_NAME, start, !found);
+      if (event.shouldCommit()) {
+        event.method = method;
+        event.found = found;
+        event.argumentCacheHit = argumentCacheHit;
+        event.commit();
       }
     }
+  }
 
-    @SuppressWarnings("signature") // throws exception if class does not exist
-    @BinaryName String classname = method.substring(0, dotpos);
-    String methodname = method.substring(dotpos + 1, oparenpos);
-    String allArgnames = method.substring(oparenpos + 1, cparenpos).trim();
+  /**
+   * Returns the argument lists that {@link #methodForName(String)} has resolved, such as
+   * "java.lang.String, int".
+   *
+   * @return the argument lists that have been resolved
+   */
+  static Set<String> argListsSeen() {
+    return argsSeen.keys();
+  }
+
+  /**
+   * The parts of a method signature such as {@code "java.lang.Math.min(int, int)"}.
+   *
+   * @param classname the class, such as {@code "java.lang.Math"}
+   * @param methodname the method name, such as {@code "min"}
+   * @param argnames the comma-delimited argument types, such as {@code "int, int"}
+   */
+  static record MethodSignature(
+      @BinaryName String classname, String methodname, String argnames) {
+
+    /**
+     * Splits a method signature into its parts.
+     *
+     * @param method a method signature
+     * @return the parts of the method signature
+     * @throws IllegalArgumentException if the method signature is malformed
+     */
+    static MethodSignature parse(String method) {
+      int oparenpos = method.indexOf('(');
+      int dotpos = method.lastIndexOf('.', oparenpos);
+      int cparenpos = method.indexOf(')', oparenpos);
+      if ((dotpos == -1) || (oparenpos == -1) || (cparenpos == -1)) {
+        throw new IllegalArgumentException(
+            "malformed method name should contain a period, open paren, and close paren: "
+                + method
+                + " <<"
+                + dotpos
+                + ","
+                + oparenpos
+                + ","
+                + cparenpos
+                + ">>");
+      }
+      for (int i = cparenpos + 1; i < method.length(); i++) {
+        if (!Character.isWhitespace(method.charAt(i))) {
+          throw new IllegalArgumentException(
+              "malformed method name should contain only whitespace following close paren: "
+                  + method);
+        }
+      }
+
+      @SuppressWarnings("signature") // throws exception if class does not exist
+      @BinaryName String classname = method.substring(0, dotpos);
+      String methodname = method.substring(dotpos + 1, oparenpos);
+      String argnames = method.substring(oparenpos + 1, cparenpos).trim();
+      return new MethodSignature(classname, methodname, argnames);
+    }
+  }
+
+  /**
+   * Given a comma-delimited string of argument types, such as appears in a method signature,
+   * returns an array of Class objects, one for each argument type. Uses and updates {@link
+   * #argsSeen}.
+   *
+   * @param allArgnames the argument types, such as "java.lang.String, int"
+   * @return the classes of the argument types
+   * @throws ClassNotFoundException if one of the classes is not found
+   */
+  static Class<?>[] argClassesForName(String allArgnames) throws ClassNotFoundException {
     Class<?>[] argclasses = argsSeen.get(allArgnames);
     if (argclasses == null) {
       @BinaryName String[] argnames;
@@ -350,14 +650,93 @@ public final class ReflectionP {
       }
       // TODO: Shouldn't this require a warning suppression?
       Class<?>[] argclassesRes = (@NonNull Class<?>[]) argclassesTmp;
-      argclasses = argclassesRes;
-      argsSeen.put(allArgnames, argclassesRes);
+      // If another thread resolved the same argument list first, use its array, so that every
+      // caller sees the same one.
+      argclasses = argsSeen.putIfAbsent(allArgnames, argclassesRes);
     }
-    return methodForName(classname, methodname, argclasses);
+    return argclasses;
   }
 
   /**
-   * Given a class name and a method name in that class, return the method.
+   * Given method signatures, returns the methods. This is like calling {@link
+   * #methodForName(String)} on each signature, but the work is done in parallel on the given
+   * executor, and each declaring class and each argument list that occurs in several signatures is
+   * resolved only once.
+   *
+   * <p>A failure to resolve one signature does not affect the others: it is reported in that
+   * signature's {@link Resolution}. The time recorded for a signature includes the time to resolve
+   * its declaring class and its argument types, even if those were shared with other signatures.
+   *
+   * <p>This method blocks until every signature has been resolved, so it should not be called from
+   * a task that runs on {@code executor} itself unless the executor can create threads as needed,
+   * as a virtual-thread-per-task executor does.
+   *
+   * @param methods method signatures, in the format accepted by {@link #methodForName(String)}
+   * @param executor the executor on which to resolve classes and methods
+   * @return a map from each distinct signature, in iteration order, to the result of resolving it
+   */
+  public static Map<String, Resolution<Method>> methodsForNames(
+      Collection<String> methods, Executor executor) {
+    Map<String, CompletableFuture<Resolution<Class<?>>>> classes = new HashMap<>();
+    Map<String, CompletableFuture<Resolution<Class<?>[]>>> arglists = new HashMap<>();
+    Map<String, CompletableFuture<Resolution<Method>>> futures = new LinkedHashMap<>();
+    for (String method : methods) {
+      if (futures.containsKey(method)) {
+        continue;
+      }
+      MethodSignature sig;
+      try {
+        sig = MethodSignature.parse(method);
+      } catch (IllegalArgumentException e) {
+        futures.put(
+            method, CompletableFuture.completedFuture(new Resolution<>(method, null, e, 0)));
+        continue;
+      }
+      CompletableFuture<Resolution<Class<?>>> classFuture =
+          classes.computeIfAbsent(
+              sig.classname(),
+              classname ->
+                  CompletableFuture.supplyAsync(
+                      () -> Resolution.of(classname, () -> Class.forName(classname)), executor));
+      CompletableFuture<Resolution<Class<?>[]>> argsFuture =
+          arglists.computeIfAbsent(
+              sig.argnames(),
+              argnames ->
+                  CompletableFuture.supplyAsync(
+                      () -> Resolution.of(argnames, () -> argClassesForName(argnames)), executor));
+      futures.put(
+          method,
+          classFuture.thenCombineAsync(
+              argsFuture,
+              (classRes, argsRes) -> {
+                long sharedNanos = classRes.nanos() + argsRes.nanos();
+                Throwable failure = classRes.failure();
+                if (failure == null) {
+                  failure = argsRes.failure();
+                }
+                if (failure != null) {
+                  return new Resolution<>(method, null, failure, sharedNanos);
+                }
+                Resolution<Method> res =
+                    Resolution.of(
+                        method, () -> findMethod(classRes.get(), sig.methodname(), argsRes.get()));
+                return new Resolution<>(
+                    method, res.value(), res.failure(), res.nanos() + sharedNanos);
+              },
+              executor));
+    }
+
+    Map<String, Resolution<Method>> result = new LinkedHashMap<>(futures.size() * 4 / 3 + 1);
+    for (Map.Entry<String, CompletableFuture<Resolution<Method>>> entry : futures.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().join());
+    }
+    return result;
+  }
+
+  /**
+   * Given a class name and a method name in that class, return the method. The method may be
+   * declared in the class or inherited from a superclass or superinterface; see {@link
+   * #findMethod}.
    *
    * @param classname class in which to find the method
    * @param methodname the method name
@@ -371,8 +750,93 @@ public final class ReflectionP {
       throws ClassNotFoundException, NoSuchMethodException {
 
     Class<?> c = Class.forName(classname);
-    Method m = c.getDeclaredMethod(methodname, params);
-    return m;
+    return findMethod(c, methodname, params);
+  }
+
+  /**
+   * Returns the method of the given class that has the given name and parameter types. Unlike
+   * {@link Class#getDeclaredMethod}, the method may be declared in a superclass or a
+   * superinterface. Unlike {@link Class#getMethod}, the method need not be public.
+   *
+   * <p>A method declared in {@code c} takes precedence over an inherited one, and a method
+   * declared in a class takes precedence over one declared in an interface. Among methods declared
+   * in interfaces, the maximally specific one is found: a default method of an interface takes
+   * precedence over one of its superinterfaces. Private methods of supertypes and static methods
+   * of interfaces are not inherited.
+   *
+   * <p>The methods of each class are indexed the first time that the class is searched, so later
+   * searches do not call {@link Class#getDeclaredMethods}. Like {@link Class#getDeclaredMethod},
+   * this returns a new {@code Method} object on each call, so setting its accessibility does not
+   * affect other callers.
+   *
+   * @param c the class in which to find the method
+   * @param methodname the method name
+   * @param params the parameter types of the method
+   * @return the method of {@code c} named {@code methodname} with parameter types {@code params}
+   * @throws NoSuchMethodException if the method is not found
+   */
+  public static Method findMethod(Class<?> c, String methodname, Class<?>... params)
+      throws NoSuchMethodException {
+    Method m = MethodTable.of(c).find(methodname, params);
+    if (m == null) {
+      StringJoiner paramNames = new StringJoiner(",", "(", ")");
+      for (Class<?> param : params) {
+        paramNames.add(param.getName());
+      }
+      throw new NoSuchMethodException(c.getName() + "." + methodname + paramNames);
+    }
+    return m.getDeclaringClass().getDeclaredMethod(methodname, params);
+  }
+
+  /**
+   * Returns the method of the given class that a Java call with arguments of the given types would
+   * invoke. Methods inherited from superclasses and superinterfaces are considered, as in {@link
+   * #findMethod}.
+   *
+   * <p>Like the Java compiler, this first considers methods that are applicable without boxing,
+   * unboxing, or variable arity invocation; then methods that are applicable with boxing and
+   * unboxing; and finally variable arity methods. Among the applicable methods in the first
+   * successful phase, it chooses the most specific one. See JLS section 15.12.2.
+   *
+   * @param c the class in which to find the method
+   * @param methodname the method name
+   * @param argTypes the types of the arguments; a null element stands for the type of the {@code
+   *     null} literal, which is convertible to any reference type
+   * @return the most specific method of {@code c} that is applicable to the arguments
+   * @throws NoSuchMethodException if no method is applicable, or if the call is ambiguous
+   */
+  public static Method findMethodForArguments(
+      Class<?> c, String methodname, @Nullable Class<?>... argTypes) throws NoSuchMethodException {
+    MethodTable.Entry e = MethodTable.of(c).mostSpecific(methodname, argTypes);
+    if (e == null) {
+      StringJoiner argNames = new StringJoiner(",", "(", ")");
+      for (Class<?> argType : argTypes) {
+        argNames.add(argType == null ? "null" : argType.getName());
+      }
+      throw new NoSuchMethodException(
+          "No method applicable to " + c.getName() + "." + methodname + argNames);
+    }
+    return e.method.getDeclaringClass().getDeclaredMethod(methodname, e.parameterTypes);
+  }
+
+  /**
+   * Returns true if an argument of type {@code from} can be passed to a parameter of type {@code
+   * to}, by a conversion permitted in a loose invocation context (JLS section 5.3). Those are:
+   * identity, widening primitive, and widening reference conversion; boxing, optionally followed
+   * by widening reference conversion; and unboxing, optionally followed by widening primitive
+   * conversion.
+   *
+   * <p>Unlike {@link #isSubtype} and {@link Class#isAssignableFrom}, this handles primitive types.
+   * For example, {@code int} is convertible to {@code long}, {@code Integer}, {@code Number}, and
+   * {@code double}, and {@code Integer} is convertible to {@code long}.
+   *
+   * @param from the type of an argument, or null for the type of the {@code null} literal
+   * @param to the type of a parameter
+   * @return true if an argument of type {@code from} can be passed to a parameter of type {@code
+   *     to}
+   */
+  public static boolean isMethodInvocationConvertible(@Nullable Class<?> from, Class<?> to) {
+    return Conversions.isConvertible(from, to);
   }
 
   // //////////////////////////////////////////////////////////////////////
@@ -421,7 +885,28 @@ public final class ReflectionP {
   }
 
   /**
-   * Reads the given field, which may be private. Restores the field's original accessibility.
+   * For each class, the fields that {@link #getPrivateField} has found for objects of that class,
+   * by name. Each value is a copy of a field of the class or of a superclass, made accessible when
+   * it was found. The copies are never passed to clients, so making them accessible does not
+   * affect the accessibility of any other {@code Field} object.
+   *
+   * <p>Unlike the other memos, this one is not a {@link BoundedCache}: only fields that exist are
+   * stored, so each map holds at most one entry per field of the class and its superclasses, and
+   * it is discarded with the class.
+   */
+  private static final ClassValue<ConcurrentHashMap<String, Field>> accessibleFields =
+      new ClassValue<ConcurrentHashMap<String, Field>>() {
+        @Override
+        protected ConcurrentHashMap<String, Field> computeValue(Class<?> c) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  /**
+   * Reads the given field, which may be private and may be declared in a superclass.
+   *
+   * <p>The field is looked up only on the first call for a given class and field name. Later calls,
+   * including concurrent ones, read a cached, accessible copy of the field without locking.
    *
    * @param o object in which to get the field
    * @param fieldName name of field to get
@@ -430,20 +915,40 @@ public final class ReflectionP {
    */
   public static @Nullable Object getPrivateField(Object o, String fieldName)
       throws NoSuchFieldException {
-    Class<?> c = o.getClass();
+    ConcurrentHashMap<String, Field> fields = accessibleFields.get(o.getClass());
+    Field f = fields.get(fieldName);
+    if (f == null) {
+      f = findAccessibleField(o.getClass(), fieldName);
+      // If another thread found the field first, this one's copy is discarded.
+      Field previous = fields.putIfAbsent(fieldName, f);
+      if (previous != null) {
+        f = previous;
+      }
+    }
+    try {
+      return f.get(o);
+    } catch (IllegalAccessException e) {
+      throw new Error("This can't happen: " + e);
+    }
+  }
+
+  /**
+   * Returns an accessible copy of the field with the given name, declared in the given class or
+   * in one of its superclasses other than Object.
+   *
+   * @param start the class in which to start searching
+   * @param fieldName name of field to find
+   * @return the field, which has been made accessible
+   * @throws NoSuchFieldException if the field does not exist
+   */
+  private static Field findAccessibleField(Class<?> start, String fieldName)
+      throws NoSuchFieldException {
+    Class<?> c = start;
     while (c != Object.class) { // Class is interned
       try {
         Field f = c.getDeclaredField(fieldName);
-        @SuppressWarnings("deprecation") // No non-deprecated alternative to query accessible flag.
-        boolean originalAccessible = f.isAccessible();
-        try {
-          f.setAccessible(true);
-          return f.get(o);
-        } finally {
-          f.setAccessible(originalAccessible);
-        }
-      } catch (IllegalAccessException e) {
-        throw new Error("This can't happen: " + e);
+        f.setAccessible(true);
+        return f;
       } catch (NoSuchFieldException e) {
         if (c.getSuperclass() == Object.class) { // Class is interned
           throw e;
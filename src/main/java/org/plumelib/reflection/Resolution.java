@@ -0,0 +1,92 @@
+package org.plumelib.reflection;
+
+import java.util.Objects;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The outcome of resolving one name, such as a class name or a method signature, as part of a
+ * batch. Exactly one of {@link #value} and {@link #failure} is non-null.
+ *
+ * @param <T> the type of the result of a successful resolution
+ * @param name the name that was resolved
+ * @param value the result of resolving the name, or null if resolution failed
+ * @param failure the reason that resolution failed, or null if it succeeded
+ * @param nanos the time spent resolving the name, in nanoseconds
+ */
+public record Resolution<T>(
+    String name, @Nullable T value, @Nullable Throwable failure, long nanos) {
+
+  /**
+   * Creates a new Resolution.
+   *
+   * @param name the name that was resolved
+   * @param value the result of resolving the name, or null if resolution failed
+   * @param failure the reason that resolution failed, or null if it succeeded
+   * @param nanos the time spent resolving the name, in nanoseconds
+   */
+  public Resolution {
+    if ((value == null) == (failure == null)) {
+      throw new IllegalArgumentException(
+          "Exactly one of value and failure must be non-null: " + value + ", " + failure);
+    }
+  }
+
+  /**
+   * A computation that resolves a name.
+   *
+   * @param <T> the type of the result of a successful resolution
+   */
+  @FunctionalInterface
+  public interface Resolver<T> {
+    /**
+     * Resolves a name.
+     *
+     * @return the result of resolving the name
+     * @throws ReflectiveOperationException if the name cannot be resolved
+     */
+    T resolve() throws ReflectiveOperationException;
+  }
+
+  /**
+   * Runs the given resolver, and records its result or its failure and how long it took. A
+   * failure is an exception that a class lookup may throw: a {@link ReflectiveOperationException},
+   * a {@link LinkageError} such as {@link ExceptionInInitializerError}, or a {@link
+   * RuntimeException}.
+   *
+   * @param <T> the type of the result of a successful resolution
+   * @param name the name being resolved
+   * @param resolver the computation that resolves the name
+   * @return the outcome of running the resolver
+   */
+  public static <T> Resolution<T> of(String name, Resolver<? extends T> resolver) {
+    long start = System.nanoTime();
+    try {
+      T value = Objects.requireNonNull(resolver.resolve(), "resolver result");
+      return new Resolution<>(name, value, null, System.nanoTime() - start);
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      return new Resolution<>(name, null, e, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Returns true if the name was resolved successfully.
+   *
+   * @return true if the name was resolved successfully
+   */
+  public boolean isSuccess() {
+    return value != null;
+  }
+
+  /**
+   * Returns the result of a successful resolution, or throws an exception if it failed.
+   *
+   * @return the result of resolving the name
+   * @throws IllegalStateException if resolution failed; its cause is {@link #failure}
+   */
+  public T get() {
+    if (value == null) {
+      throw new IllegalStateException("Could not resolve " + name, failure);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,100 @@
+package org.plumelib.reflection;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events that record how this library resolves classes and methods and defines
+ * classes. Each event records the duration of one call. To record them, start a recording with,
+ * for example, {@code java -XX:StartFlightRecording:filename=rec.jfr}, or enable the events by name
+ * in a {@link jdk.jfr.Recording}.
+ *
+ * <p>When no recording is enabled, JFR does not instrument these classes, so creating an event and
+ * calling its {@code begin} and {@code shouldCommit} methods costs almost nothing. Callers set an
+ * event's fields only if {@code shouldCommit} returns true.
+ */
+final class ResolutionEvents {
+
+  /** This class is a collection of event types; it has no instances. */
+  private ResolutionEvents() {
+    throw new Error("Do not instantiate");
+  }
+
+  /** The category of every event. */
+  private static final String CATEGORY = "plume-lib";
+
+  /** Records a call of {@link ReflectionP#classForName} that does not name a primitive type. */
+  @Name("org.plumelib.reflection.ClassForName")
+  @Label("Class For Name")
+  @Category({CATEGORY, "Reflection"})
+  @Description("Finding a class by name, retrying with '$' for nested classes")
+  @StackTrace(false)
+  static final class ClassForName extends Event {
+    /** The name that was looked up. */
+    @Label("Class Name")
+    String className = "";
+
+    /** True if the class was found. */
+    @Label("Found")
+    boolean found;
+
+    /**
+     * How many times a "." was replaced by "$" and the lookup retried. Zero if the name was found
+     * on the first attempt.
+     */
+    @Label("Nested-Class Retries")
+    int nestedClassRetries;
+
+    /** Creates a new ClassForName event. */
+    ClassForName() {}
+  }
+
+  /** Records a call of {@link ReflectionP#methodForName(String)}. */
+  @Name("org.plumelib.reflection.MethodForName")
+  @Label("Method For Name")
+  @Category({CATEGORY, "Reflection"})
+  @Description("Finding a method by its signature")
+  @StackTrace(false)
+  static final class MethodForName extends Event {
+    /** The method signature that was looked up. */
+    @Label("Method")
+    String method = "";
+
+    /** True if the method was found. */
+    @Label("Found")
+    boolean found;
+
+    /** True if the argument types had already been resolved, by an earlier call. */
+    @Label("Argument Cache Hit")
+    boolean argumentCacheHit;
+
+    /** Creates a new MethodForName event. */
+    MethodForName() {}
+  }
+
+  /**
+   * Records a call of {@code defineClassFromFile} or a similar method that completes normally. The
+   * duration includes reading the class file.
+   */
+  @Name("org.plumelib.reflection.DefineClass")
+  @Label("Define Class")
+  @Category({CATEGORY, "Reflection"})
+  @Description("Defining a class from a class file")
+  @StackTrace(false)
+  static final class DefineClass extends Event {
+    /** The binary name of the class. */
+    @Label("Class Name")
+    String className = "";
+
+    /** True if the loader had already defined the class, so the existing class was returned. */
+    @Label("Already Defined")
+    boolean alreadyDefined;
+
+    /** Creates a new DefineClass event. */
+    DefineClass() {}
+  }
+}
@@ -0,0 +1,81 @@
+package org.plumelib.reflection;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A class loader for a batch of classes that should be unloaded together. Unlike the classes
+ * defined by {@link ReflectionP#defineClassFromFile}, which live as long as the JVM, the classes
+ * defined by a ScopedClassLoader can be garbage-collected, and their metadata reclaimed, once
+ * neither the loader nor any of its classes or their instances is reachable.
+ *
+ * <p>Typical use is:
+ *
+ * <pre>{@code
+ * try (ScopedClassLoader loader = new ScopedClassLoader()) {
+ *   Map<String, Resolution<Class<?>>> classes = loader.defineClasses(dir, executor);
+ *   ... use the classes ...
+ * }
+ * }</pre>
+ *
+ * <p>Closing the loader prevents it from defining more classes, which guards against accidentally
+ * adding to a batch that is meant to be discarded. Closing does not itself unload anything: the
+ * classes remain usable until they become unreachable. Classes that the loader has already
+ * defined are still found by {@link #loadClass} after it is closed, and a define method that is
+ * asked for such a class still returns it.
+ *
+ * <p>Like the other methods of this package, the define methods are thread-safe, and defining a
+ * class whose name this loader has already defined returns the existing class.
+ */
+public final class ScopedClassLoader extends DefiningClassLoader implements Closeable {
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  /** True if this loader has been closed. */
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  /**
+   * Creates a new ScopedClassLoader whose parent is the system class loader. Classes in the batch
+   * can refer to each other and to classes visible to the system class loader.
+   */
+  public ScopedClassLoader() {}
+
+  /**
+   * Creates a new ScopedClassLoader with the given parent.
+   *
+   * @param parent the parent class loader, or null for the bootstrap class loader
+   */
+  public ScopedClassLoader(@Nullable ClassLoader parent) {
+    super(parent);
+  }
+
+  /**
+   * Throws an exception if this loader is closed.
+   *
+   * @throws IllegalStateException if this loader is closed
+   */
+  @Override
+  void beforeDefine() {
+    if (closed.get()) {
+      throw new IllegalStateException("ScopedClassLoader is closed");
+    }
+  }
+
+  /**
+   * Returns true if this loader has been closed.
+   *
+   * @return true if this loader has been closed
+   */
+  public boolean isClosed() {
+    return closed.get();
+  }
+
+  /** Prevents this loader from defining more classes. Closing a closed loader has no effect. */
+  @Override
+  public void close() {
+    closed.set(true);
+  }
+}
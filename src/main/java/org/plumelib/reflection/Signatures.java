@@ -1,11 +1,16 @@
 package org.plumelib.reflection;
 
 import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.StringJoiner;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.index.qual.IndexFor;
 import org.checkerframework.checker.index.qual.NonNegative;
@@ -149,7 +154,8 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = ArrayWithoutPackage.class)
   public static boolean isArrayWithoutPackage(String s) {
-    return SignatureRegexes.ArrayWithoutPackagePattern.matcher(s).matches();
+    int end = arrayBracketsStart(s);
+    return end != 0 && isIdentifierOrPrimitiveType(s, 0, end);
   }
 
   /**
@@ -162,7 +168,7 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = BinaryName.class)
   public static boolean isBinaryName(String s) {
-    return SignatureRegexes.BinaryNamePattern.matcher(s).matches();
+    return dotSeparatedIdentifiersEnd(s, 0, '.') == s.length();
   }
 
   /**
@@ -175,7 +181,7 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = BinaryNameOrPrimitiveType.class)
   public static boolean isBinaryNameOrPrimitiveType(String s) {
-    return SignatureRegexes.BinaryNameOrPrimitiveTypePattern.matcher(s).matches();
+    return dotSeparatedIdentifiersEnd(s, 0, '.') == s.length() || isPrimitiveType(s, 0, s.length());
   }
 
   /**
@@ -188,7 +194,22 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = ClassGetName.class)
   public static boolean isClassGetName(String s) {
-    return SignatureRegexes.ClassGetNamePattern.matcher(s).matches();
+    int length = s.length();
+    if (length == 0 || s.charAt(0) != '[') {
+      return dotSeparatedIdentifiersEnd(s, 0, '.') == length || isPrimitiveType(s, 0, length);
+    }
+    int dims = 1;
+    while (dims < length && s.charAt(dims) == '[') {
+      dims++;
+    }
+    if (dims == length) {
+      return false;
+    } else if (dims == length - 1) {
+      return isFieldDescriptorForPrimitive(s.charAt(dims));
+    }
+    return s.charAt(dims) == 'L'
+        && s.charAt(length - 1) == ';'
+        && dotSeparatedIdentifiersEnd(s, dims + 1, '.') == length - 1;
   }
 
   /**
@@ -201,7 +222,8 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = ClassGetSimpleName.class)
   public static boolean isClassGetSimpleName(String s) {
-    return SignatureRegexes.ClassGetSimpleNamePattern.matcher(s).matches();
+    int end = arrayBracketsStart(s);
+    return end == 0 || isIdentifierOrPrimitiveType(s, 0, end);
   }
 
   /**
@@ -214,7 +236,7 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = DotSeparatedIdentifiers.class)
   public static boolean isDotSeparatedIdentifiers(String s) {
-    return SignatureRegexes.DotSeparatedIdentifiersPattern.matcher(s).matches();
+    return dotSeparatedIdentifiersEnd(s, 0, '.') == s.length();
   }
 
   /**
@@ -230,7 +252,7 @@ public final class Signatures {
       expression = "#1",
       qualifier = DotSeparatedIdentifiersOrPrimitiveType.class)
   public static boolean isDotSeparatedIdentifiersOrPrimitiveType(String s) {
-    return SignatureRegexes.DotSeparatedIdentifiersOrPrimitiveTypePattern.matcher(s).matches();
+    return dotSeparatedIdentifiersEnd(s, 0, '.') == s.length() || isPrimitiveType(s, 0, s.length());
   }
 
   /**
@@ -243,7 +265,19 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = FieldDescriptor.class)
   public static boolean isFieldDescriptor(String s) {
-    return SignatureRegexes.FieldDescriptorPattern.matcher(s).matches();
+    int length = s.length();
+    int dims = 0;
+    while (dims < length && s.charAt(dims) == '[') {
+      dims++;
+    }
+    if (dims == length) {
+      return false;
+    } else if (dims == length - 1) {
+      return isFieldDescriptorForPrimitive(s.charAt(dims));
+    }
+    return s.charAt(dims) == 'L'
+        && s.charAt(length - 1) == ';'
+        && dotSeparatedIdentifiersEnd(s, dims + 1, '/') == length - 1;
   }
 
   /**
@@ -259,7 +293,20 @@ public final class Signatures {
       expression = "#1",
       qualifier = FieldDescriptorWithoutPackage.class)
   public static boolean isFieldDescriptorWithoutPackage(String s) {
-    return SignatureRegexes.FieldDescriptorWithoutPackagePattern.matcher(s).matches();
+    int length = s.length();
+    int dims = 0;
+    while (dims < length && s.charAt(dims) == '[') {
+      dims++;
+    }
+    if (dims == length) {
+      return false;
+    } else if (dims == length - 1) {
+      return isFieldDescriptorForPrimitive(s.charAt(dims));
+    }
+    return dims != 0
+        && s.charAt(dims) == 'L'
+        && s.charAt(length - 1) == ';'
+        && identifierEnd(s, dims + 1) == length - 1;
   }
 
   /**
@@ -274,7 +321,7 @@ public final class Signatures {
       expression = "#1",
       qualifier = FieldDescriptorForPrimitive.class)
   public static boolean isFieldDescriptorForPrimitive(String s) {
-    return SignatureRegexes.FieldDescriptorForPrimitivePattern.matcher(s).matches();
+    return s.length() == 1 && isFieldDescriptorForPrimitive(s.charAt(0));
   }
 
   /**
@@ -290,7 +337,8 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = FqBinaryName.class)
   public static boolean isFqBinaryName(String s) {
-    return SignatureRegexes.FullyQualifiedNamePattern.matcher(s).matches();
+    int end = arrayBracketsStart(s);
+    return dotSeparatedIdentifiersEnd(s, 0, '.') == end || isPrimitiveType(s, 0, end);
   }
 
   /**
@@ -306,7 +354,8 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = FullyQualifiedName.class)
   public static boolean isFullyQualifiedName(String s) {
-    return SignatureRegexes.FullyQualifiedNamePattern.matcher(s).matches();
+    int end = arrayBracketsStart(s);
+    return dotSeparatedIdentifiersEnd(s, 0, '.') == end || isPrimitiveType(s, 0, end);
   }
 
   /**
@@ -319,7 +368,7 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = Identifier.class)
   public static boolean isIdentifier(String s) {
-    return SignatureRegexes.IdentifierPattern.matcher(s).matches();
+    return identifierEnd(s, 0) == s.length();
   }
 
   /**
@@ -332,7 +381,7 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = IdentifierOrPrimitiveType.class)
   public static boolean isIdentifierOrPrimitiveType(String s) {
-    return SignatureRegexes.IdentifierOrPrimitiveTypePattern.matcher(s).matches();
+    return isIdentifierOrPrimitiveType(s, 0, s.length());
   }
 
   /**
@@ -345,7 +394,35 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = InternalForm.class)
   public static boolean isInternalForm(String s) {
-    return SignatureRegexes.InternalFormPattern.matcher(s).matches();
+    return dotSeparatedIdentifiersEnd(s, 0, '/') == s.length();
+  }
+
+  /**
+   * Returns true if the argument has the format of a MethodDescriptor, such as
+   * "(ILjava/lang/String;)V". The types it refers to might or might not exist.
+   *
+   * @param s a string
+   * @return true if the string is a @MethodDescriptor
+   */
+  @SuppressWarnings("signature")
+  @EnsuresQualifierIf(result = true, expression = "#1", qualifier = MethodDescriptor.class)
+  public static boolean isMethodDescriptor(String s) {
+    int length = s.length();
+    if (length == 0 || s.charAt(0) != '(') {
+      return false;
+    }
+    int pos = 1;
+    while (pos < length && s.charAt(pos) != ')') {
+      pos = fieldDescriptorEnd(s, pos);
+      if (pos == -1) {
+        return false;
+      }
+    }
+    if (pos >= length - 1) {
+      return false;
+    }
+    pos++;
+    return (pos == length - 1 && s.charAt(pos) == 'V') || fieldDescriptorEnd(s, pos) == length;
   }
 
   /**
@@ -357,15 +434,716 @@ public final class Signatures {
   @SuppressWarnings("signature")
   @EnsuresQualifierIf(result = true, expression = "#1", qualifier = PrimitiveType.class)
   public static boolean isPrimitiveType(String s) {
-    return SignatureRegexes.PrimitiveTypePattern.matcher(s).matches();
+    return isPrimitiveType(s, 0, s.length());
   }
 
   // ///////////////////////////////////////////////////////////////////////////
-  // Type conversions
+  // Scanning
+  //
+
+  // The predicates above scan their argument directly rather than use the patterns in
+  // SignatureRegexes, so that they do not allocate.  They accept exactly the same strings.
+
+  /**
+   * The keywords, boolean literals, and null literal, which are not identifiers, indexed by length.
+   */
+  private static final String[][] keywordsByLength = {
+    {},
+    {},
+    {"do", "if"},
+    {"for", "int", "new", "try"},
+    {"byte", "case", "char", "else", "enum", "goto", "long", "null", "this", "true", "void"},
+    {
+      "break", "catch", "class", "const", "false", "final", "float", "short", "super", "throw",
+      "while"
+    },
+    {"assert", "double", "import", "native", "public", "return", "static", "switch", "throws"},
+    {"boolean", "default", "extends", "finally", "package", "private"},
+    {"abstract", "continue", "strictfp", "volatile"},
+    {"interface", "protected", "transient"},
+    {"implements", "instanceof"},
+    {},
+    {"synchronized"},
+  };
+
+  /** The primitive types. */
+  private static final @PrimitiveType String[] primitiveTypes = {
+    "boolean", "byte", "char", "double", "float", "int", "long", "short"
+  };
+
+  /** The field descriptors of the primitive types, in the same order as {@link #primitiveTypes}. */
+  private static final String primitiveFieldDescriptors = "ZBCDFIJS";
+
+  /**
+   * Returns true if the given character may start an identifier.
+   *
+   * @param c a character
+   * @return true if {@code c} may start an identifier
+   */
+  private static boolean isIdentifierStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+  }
+
+  /**
+   * Returns true if the given character may be part of an identifier.
+   *
+   * @param c a character
+   * @return true if {@code c} may be part of an identifier
+   */
+  private static boolean isIdentifierPart(char c) {
+    return isIdentifierStart(c) || (c >= '0' && c <= '9');
+  }
+
+  /**
+   * Returns true if the given character is the field descriptor of a primitive type.
+   *
+   * @param c a character
+   * @return true if {@code c} is the field descriptor of a primitive type
+   */
+  private static boolean isFieldDescriptorForPrimitive(char c) {
+    return primitiveFieldDescriptors.indexOf(c) != -1;
+  }
+
+  /**
+   * Returns the end of the identifier that starts at the given index.
+   *
+   * <p>A Java identifier must not be a keyword or literal. As in {@link SignatureRegexes}, an
+   * identifier that contains "$" must not be a keyword or literal up to its first "$".
+   *
+   * @param s a string
+   * @param start an index into {@code s}
+   * @return the index just past the identifier that starts at {@code start}, or -1 if none does
+   */
+  private static int identifierEnd(String s, int start) {
+    int length = s.length();
+    if (start >= length || !isIdentifierStart(s.charAt(start))) {
+      return -1;
+    }
+    int end = start + 1;
+    while (end < length && isIdentifierPart(s.charAt(end))) {
+      end++;
+    }
+    int wordEnd = start;
+    while (wordEnd < end && s.charAt(wordEnd) != '$') {
+      wordEnd++;
+    }
+    int wordLength = wordEnd - start;
+    if (wordLength < keywordsByLength.length) {
+      for (String keyword : keywordsByLength[wordLength]) {
+        if (s.startsWith(keyword, start)) {
+          return -1;
+        }
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Returns the end of the identifiers, separated by the given character, that start at the given
+   * index.
+   *
+   * @param s a string
+   * @param start an index into {@code s}
+   * @param separator the separator, such as '.' or '/'
+   * @return the index just past the identifiers that start at {@code start}, or -1 if there is no
+   *     identifier at {@code start} or after some separator
+   */
+  private static int dotSeparatedIdentifiersEnd(String s, int start, char separator) {
+    int end = identifierEnd(s, start);
+    while (end != -1 && end < s.length() && s.charAt(end) == separator) {
+      end = identifierEnd(s, end + 1);
+    }
+    return end;
+  }
+
+  /**
+   * Returns true if the given part of a string is a primitive type.
+   *
+   * @param s a string
+   * @param start the start of the part, inclusive
+   * @param end the end of the part, exclusive
+   * @return true if {@code s[start, end)} is a primitive type
+   */
+  private static boolean isPrimitiveType(String s, int start, int end) {
+    return primitiveTypeIndex(s, start, end) != -1;
+  }
+
+  /**
+   * Returns the index in {@link #primitiveTypes} of the given part of a string.
+   *
+   * @param s a string
+   * @param start the start of the part, inclusive
+   * @param end the end of the part, exclusive
+   * @return the index of {@code s[start, end)} in {@link #primitiveTypes}, or -1 if it is not a
+   *     primitive type
+   */
+  private static int primitiveTypeIndex(String s, int start, int end) {
+    int length = end - start;
+    for (int i = 0; i < primitiveTypes.length; i++) {
+      if (primitiveTypes[i].length() == length && s.startsWith(primitiveTypes[i], start)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns true if the given part of a string is an identifier or a primitive type.
+   *
+   * @param s a string
+   * @param start the start of the part, inclusive
+   * @param end the end of the part, exclusive; no identifier may continue past it
+   * @return true if {@code s[start, end)} is an identifier or a primitive type
+   */
+  private static boolean isIdentifierOrPrimitiveType(String s, int start, int end) {
+    return identifierEnd(s, start) == end || isPrimitiveType(s, start, end);
+  }
+
+  /**
+   * Returns the end of the field descriptor that starts at the given index.
+   *
+   * @param s a string
+   * @param start an index into {@code s}
+   * @return the index just past the field descriptor that starts at {@code start}, or -1 if none
+   *     does
+   */
+  private static int fieldDescriptorEnd(String s, int start) {
+    int length = s.length();
+    int pos = start;
+    while (pos < length && s.charAt(pos) == '[') {
+      pos++;
+    }
+    if (pos == length) {
+      return -1;
+    }
+    char c = s.charAt(pos);
+    if (c == 'L') {
+      int end = dotSeparatedIdentifiersEnd(s, pos + 1, '/');
+      return (end != -1 && end < length && s.charAt(end) == ';') ? end + 1 : -1;
+    }
+    return isFieldDescriptorForPrimitive(c) ? pos + 1 : -1;
+  }
+
+  /**
+   * Returns the start of the "[][]..." suffix of a string.
+   *
+   * @param s a string
+   * @return the index of the first "[]" of the suffix of {@code s} that consists of "[]" pairs, or
+   *     {@code s.length()} if there is no such suffix
+   */
+  private static int arrayBracketsStart(String s) {
+    int end = s.length();
+    while (end >= 2 && s.charAt(end - 1) == ']' && s.charAt(end - 2) == '[') {
+      end -= 2;
+    }
+    return end;
+  }
+
+  /**
+   * Returns the number of "[" characters at the start of a string.
+   *
+   * @param s a string
+   * @return the number of "[" characters at the start of {@code s}
+   */
+  private static int leadingBrackets(String s) {
+    int result = 0;
+    while (result < s.length() && s.charAt(result) == '[') {
+      result++;
+    }
+    return result;
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Testing bytes
   //
 
-  /** Matches the "[][][]" at the end of a Java array type. */
-  private static Pattern arrayBracketsPattern = Pattern.compile("(\\[\\])+$");
+  // These predicates test a name that is stored as bytes, such as in a memory-mapped file, without
+  // decoding it to a String.  They accept exactly the bytes of the ASCII strings that the String
+  // predicates accept; every name in these formats is ASCII.  They read the buffer with absolute
+  // gets, so its position is ignored and not changed.  For a byte[], use ByteBuffer.wrap.
+
+  /**
+   * Returns true if the given bytes have the format of a BinaryName.
+   *
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return true if the bytes are a @BinaryName
+   * @see #isBinaryName(String)
+   */
+  public static boolean isBinaryName(ByteBuffer bytes, int offset, int length) {
+    int end = offset + length;
+    return dotSeparatedIdentifiersEnd(bytes, offset, end, '.') == end;
+  }
+
+  /**
+   * Returns true if the given bytes have the format of a FieldDescriptor.
+   *
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return true if the bytes are a @FieldDescriptor
+   * @see #isFieldDescriptor(String)
+   */
+  public static boolean isFieldDescriptor(ByteBuffer bytes, int offset, int length) {
+    return length > 0 && fieldDescriptorEnd(bytes, offset, offset + length) == offset + length;
+  }
+
+  /**
+   * Returns true if the given bytes have the format of a FqBinaryName.
+   *
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return true if the bytes are a @FqBinaryName
+   * @see #isFqBinaryName(String)
+   */
+  public static boolean isFqBinaryName(ByteBuffer bytes, int offset, int length) {
+    int end = offset + length;
+    while (end - offset >= 2 && bytes.get(end - 1) == ']' && bytes.get(end - 2) == '[') {
+      end -= 2;
+    }
+    return dotSeparatedIdentifiersEnd(bytes, offset, end, '.') == end
+        || isPrimitiveType(bytes, offset, end);
+  }
+
+  /**
+   * Returns true if the given bytes have the format of an InternalForm.
+   *
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return true if the bytes are an @InternalForm
+   * @see #isInternalForm(String)
+   */
+  public static boolean isInternalForm(ByteBuffer bytes, int offset, int length) {
+    int end = offset + length;
+    return dotSeparatedIdentifiersEnd(bytes, offset, end, '/') == end;
+  }
+
+  /**
+   * Returns true if the given bytes have the format of a MethodDescriptor.
+   *
+   * @param bytes a buffer
+   * @param offset the index of the first byte in {@code bytes}
+   * @param length the number of bytes
+   * @return true if the bytes are a @MethodDescriptor
+   * @see #isMethodDescriptor(String)
+   */
+  public static boolean isMethodDescriptor(ByteBuffer bytes, int offset, int length) {
+    int end = offset + length;
+    if (length <= 0 || bytes.get(offset) != '(') {
+      return false;
+    }
+    int pos = offset + 1;
+    while (pos < end && bytes.get(pos) != ')') {
+      pos = fieldDescriptorEnd(bytes, pos, end);
+      if (pos == -1) {
+        return false;
+      }
+    }
+    if (pos >= end - 1) {
+      return false;
+    }
+    pos++;
+    return (pos == end - 1 && bytes.get(pos) == 'V') || fieldDescriptorEnd(bytes, pos, end) == end;
+  }
+
+  /**
+   * Returns the character that a byte encodes, if it is ASCII.
+   *
+   * @param b a byte
+   * @return the character {@code b}, or a non-ASCII character if {@code b} is not ASCII
+   */
+  private static char toChar(byte b) {
+    return (char) (b & 0xFF);
+  }
+
+  /**
+   * Returns the end of the identifier that starts at the given index of a buffer. Like {@link
+   * #identifierEnd(String, int)}, but for bytes.
+   *
+   * @param bytes a buffer
+   * @param start an index into {@code bytes}
+   * @param limit the index at which the identifier must end, if not before
+   * @return the index just past the identifier that starts at {@code start}, or -1 if none does
+   */
+  private static int identifierEnd(ByteBuffer bytes, int start, int limit) {
+    if (start >= limit || !isIdentifierStart(toChar(bytes.get(start)))) {
+      return -1;
+    }
+    int end = start + 1;
+    while (end < limit && isIdentifierPart(toChar(bytes.get(end)))) {
+      end++;
+    }
+    int wordEnd = start;
+    while (wordEnd < end && bytes.get(wordEnd) != '$') {
+      wordEnd++;
+    }
+    int wordLength = wordEnd - start;
+    if (wordLength < keywordsByLength.length) {
+      for (String keyword : keywordsByLength[wordLength]) {
+        if (regionMatches(bytes, start, keyword)) {
+          return -1;
+        }
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Returns the end of the identifiers, separated by the given character, that start at the given
+   * index of a buffer. Like {@link #dotSeparatedIdentifiersEnd(String, int, char)}, but for bytes.
+   *
+   * @param bytes a buffer
+   * @param start an index into {@code bytes}
+   * @param limit the index at which the identifiers must end, if not before
+   * @param separator the separator, such as '.' or '/'
+   * @return the index just past the identifiers that start at {@code start}, or -1 if there is no
+   *     identifier at {@code start} or after some separator
+   */
+  private static int dotSeparatedIdentifiersEnd(
+      ByteBuffer bytes, int start, int limit, char separator) {
+    int end = identifierEnd(bytes, start, limit);
+    while (end != -1 && end < limit && bytes.get(end) == separator) {
+      end = identifierEnd(bytes, end + 1, limit);
+    }
+    return end;
+  }
+
+  /**
+   * Returns the end of the field descriptor that starts at the given index of a buffer. Like
+   * {@link #fieldDescriptorEnd(String, int)}, but for bytes.
+   *
+   * @param bytes a buffer
+   * @param start an index into {@code bytes}
+   * @param limit the index at which the field descriptor must end, if not before
+   * @return the index just past the field descriptor that starts at {@code start}, or -1 if none
+   *     does
+   */
+  private static int fieldDescriptorEnd(ByteBuffer bytes, int start, int limit) {
+    int pos = start;
+    while (pos < limit && bytes.get(pos) == '[') {
+      pos++;
+    }
+    if (pos >= limit) {
+      return -1;
+    }
+    char c = toChar(bytes.get(pos));
+    if (c == 'L') {
+      int end = dotSeparatedIdentifiersEnd(bytes, pos + 1, limit, '/');
+      return (end != -1 && end < limit && bytes.get(end) == ';') ? end + 1 : -1;
+    }
+    return isFieldDescriptorForPrimitive(c) ? pos + 1 : -1;
+  }
+
+  /**
+   * Returns true if the given part of a buffer is a primitive type.
+   *
+   * @param bytes a buffer
+   * @param start the start of the part, inclusive
+   * @param end the end of the part, exclusive
+   * @return true if {@code bytes[start, end)} is a primitive type
+   */
+  private static boolean isPrimitiveType(ByteBuffer bytes, int start, int end) {
+    int length = end - start;
+    for (String primitiveType : primitiveTypes) {
+      if (primitiveType.length() == length && regionMatches(bytes, start, primitiveType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if the given ASCII string occurs in a buffer at the given index.
+   *
+   * @param bytes a buffer
+   * @param start an index into {@code bytes}
+   * @param s an ASCII string
+   * @return true if the bytes at {@code start} are {@code s}
+   */
+  private static boolean regionMatches(ByteBuffer bytes, int start, String s) {
+    int length = s.length();
+    if (start + length > bytes.limit()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (bytes.get(start + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Converting bytes in bulk
+  //
+
+  // These methods convert a region of bytes, such as the names of a class file's constant pool or
+  // of a NameTable, between internal form and binary name in place.  They process 8 bytes at a
+  // time, as a long: a byte is matched, tested against a range, or flipped by arithmetic on the
+  // whole long whose results have their high bit set in each selected byte ("SIMD within a
+  // register").  The remaining bytes are processed one at a time.
+  //
+  // The region is processed in blocks that fit in the L1 cache, and each block is converted and
+  // then checked in two separate loops: each loop is simple enough for the JIT compiler to keep
+  // its constants in registers, which makes the two loops much faster than one.
+
+  /** Reads and writes 8 bytes of a {@code byte[]} at a time. */
+  private static final VarHandle LONGS_IN_ARRAY =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** Reads and writes 8 bytes of a direct {@code ByteBuffer} at a time. */
+  private static final VarHandle LONGS_IN_BUFFER =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** The number of bytes that are converted and then checked together. */
+  private static final int BLOCK_SIZE = 4096;
+
+  /** A long whose every byte is 0x01. Multiplying a byte by it copies the byte to every byte. */
+  private static final long EVERY_BYTE = 0x0101010101010101L;
+
+  /** The high bit of every byte of a long. */
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  /** The low 7 bits of every byte of a long. */
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+  /**
+   * Replaces each '/' by '.' in a region of bytes, converting internal forms to binary names and
+   * the internal forms of array classes to {@link Class#getName} form. Also checks that every
+   * byte can occur in such a name: an ASCII letter or digit, or one of "_$./[;".
+   *
+   * @param bytes the bytes to convert in place
+   * @param offset the index of the first byte to convert
+   * @param length the number of bytes to convert
+   * @return the index of the first byte that cannot occur in a name, or -1 if every byte can; the
+   *     whole region is converted in either case
+   * @throws IndexOutOfBoundsException if the region is not within {@code bytes}
+   */
+  public static int internalFormToBinaryName(byte[] bytes, int offset, int length) {
+    return flipSeparators(bytes, offset, length, '/');
+  }
+
+  /**
+   * Replaces each '.' by '/' in a region of bytes, converting binary names to internal forms and
+   * {@link Class#getName} names of array classes to internal forms. Also checks that every byte
+   * can occur in such a name: an ASCII letter or digit, or one of "_$./[;".
+   *
+   * @param bytes the bytes to convert in place
+   * @param offset the index of the first byte to convert
+   * @param length the number of bytes to convert
+   * @return the index of the first byte that cannot occur in a name, or -1 if every byte can; the
+   *     whole region is converted in either case
+   * @throws IndexOutOfBoundsException if the region is not within {@code bytes}
+   */
+  public static int binaryNameToInternalForm(byte[] bytes, int offset, int length) {
+    return flipSeparators(bytes, offset, length, '.');
+  }
+
+  /**
+   * Like {@link #internalFormToBinaryName(byte[], int, int)}, but for a buffer, which may be
+   * direct or memory-mapped. The buffer's position is ignored and not changed.
+   *
+   * @param bytes the bytes to convert in place
+   * @param offset the index of the first byte to convert
+   * @param length the number of bytes to convert
+   * @return the index of the first byte that cannot occur in a name, or -1 if every byte can
+   * @throws IndexOutOfBoundsException if the region is not within the limit of {@code bytes}
+   * @throws ReadOnlyBufferException if {@code bytes} is read-only
+   */
+  public static int internalFormToBinaryName(ByteBuffer bytes, int offset, int length) {
+    return flipSeparators(bytes, offset, length, '/');
+  }
+
+  /**
+   * Like {@link #binaryNameToInternalForm(byte[], int, int)}, but for a buffer, which may be
+   * direct or memory-mapped. The buffer's position is ignored and not changed.
+   *
+   * @param bytes the bytes to convert in place
+   * @param offset the index of the first byte to convert
+   * @param length the number of bytes to convert
+   * @return the index of the first byte that cannot occur in a name, or -1 if every byte can
+   * @throws IndexOutOfBoundsException if the region is not within the limit of {@code bytes}
+   * @throws ReadOnlyBufferException if {@code bytes} is read-only
+   */
+  public static int binaryNameToInternalForm(ByteBuffer bytes, int offset, int length) {
+    return flipSeparators(bytes, offset, length, '.');
+  }
+
+  /**
+   * Replaces each occurrence of the given separator by the other one, and finds the first byte
+   * that cannot occur in a name. The separators '.' and '/' differ only in their lowest bit, so
+   * flipping that bit replaces one by the other.
+   *
+   * @param bytes the bytes to convert in place
+   * @param offset the index of the first byte to convert
+   * @param length the number of bytes to convert
+   * @param from the separator to replace, '.' or '/'
+   * @return the index of the first byte that cannot occur in a name, or -1 if every byte can
+   */
+  private static int flipSeparators(byte[] bytes, int offset, int length, char from) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    int end = offset + length;
+    int firstInvalid = -1;
+    for (int start = offset; start < end; start += BLOCK_SIZE) {
+      int blockEnd = (end - start > BLOCK_SIZE) ? start + BLOCK_SIZE : end;
+      long fromBytes = EVERY_BYTE * from;
+      int i = start;
+      for (; i <= blockEnd - 8; i += 8) {
+        long word = (long) LONGS_IN_ARRAY.get(bytes, i);
+        long matches = zeroBytes(word ^ fromBytes);
+        if (matches != 0) {
+          LONGS_IN_ARRAY.set(bytes, i, word ^ (matches >>> 7));
+        }
+      }
+      for (; i < blockEnd; i++) {
+        if (bytes[i] == from) {
+          bytes[i] ^= 1;
+        }
+      }
+      if (firstInvalid == -1) {
+        long invalid = 0;
+        i = start;
+        for (; i <= blockEnd - 8; i += 8) {
+          invalid |= invalidBytes((long) LONGS_IN_ARRAY.get(bytes, i));
+        }
+        for (; i < blockEnd; i++) {
+          invalid |= isNameByte(bytes[i]) ? 0 : HIGH_BITS;
+        }
+        if (invalid != 0) {
+          firstInvalid = start;
+          while (isNameByte(bytes[firstInvalid])) {
+            firstInvalid++;
+          }
+        }
+      }
+    }
+    return firstInvalid;
+  }
+
+  /**
+   * Like {@link #flipSeparators(byte[], int, int, char)}, but for a buffer.
+   *
+   * @param bytes the bytes to convert in place
+   * @param offset the index of the first byte to convert
+   * @param length the number of bytes to convert
+   * @param from the separator to replace, '.' or '/'
+   * @return the index of the first byte that cannot occur in a name, or -1 if every byte can
+   */
+  private static int flipSeparators(ByteBuffer bytes, int offset, int length, char from) {
+    if (bytes.isReadOnly()) {
+      throw new ReadOnlyBufferException();
+    }
+    Objects.checkFromIndexSize(offset, length, bytes.limit());
+    // A heap buffer is converted through its array, so that LONGS_IN_BUFFER sees only direct
+    // buffers and the JIT compiler can specialize it for them.
+    if (bytes.hasArray()) {
+      int arrayOffset = bytes.arrayOffset();
+      int result = flipSeparators(bytes.array(), arrayOffset + offset, length, from);
+      return (result == -1) ? -1 : result - arrayOffset;
+    }
+    int end = offset + length;
+    int firstInvalid = -1;
+    for (int start = offset; start < end; start += BLOCK_SIZE) {
+      int blockEnd = (end - start > BLOCK_SIZE) ? start + BLOCK_SIZE : end;
+      long fromBytes = EVERY_BYTE * from;
+      int i = start;
+      for (; i <= blockEnd - 8; i += 8) {
+        long word = (long) LONGS_IN_BUFFER.get(bytes, i);
+        long matches = zeroBytes(word ^ fromBytes);
+        if (matches != 0) {
+          LONGS_IN_BUFFER.set(bytes, i, word ^ (matches >>> 7));
+        }
+      }
+      for (; i < blockEnd; i++) {
+        if (bytes.get(i) == from) {
+          bytes.put(i, (byte) (from ^ 1));
+        }
+      }
+      if (firstInvalid == -1) {
+        long invalid = 0;
+        i = start;
+        for (; i <= blockEnd - 8; i += 8) {
+          invalid |= invalidBytes((long) LONGS_IN_BUFFER.get(bytes, i));
+        }
+        for (; i < blockEnd; i++) {
+          invalid |= isNameByte(bytes.get(i)) ? 0 : HIGH_BITS;
+        }
+        if (invalid != 0) {
+          firstInvalid = start;
+          while (isNameByte(bytes.get(firstInvalid))) {
+            firstInvalid++;
+          }
+        }
+      }
+    }
+    return firstInvalid;
+  }
+
+  /**
+   * Returns a long whose high bit is set in exactly the bytes that are zero in the argument.
+   *
+   * @param word 8 bytes
+   * @return the high bit of each byte that is zero in {@code word}
+   */
+  private static long zeroBytes(long word) {
+    // Adding 0x7F to the low 7 bits of a byte sets its high bit iff they are nonzero.
+    return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+  }
+
+  /**
+   * Returns a long whose high bit is set in exactly the bytes of the argument that are in the
+   * given range. Every byte of the argument must be ASCII.
+   *
+   * @param ascii 8 ASCII bytes
+   * @param lo the least byte in the range, at least 1
+   * @param hi the greatest byte in the range, at most 0x7F
+   * @return the high bit of each byte of {@code ascii} that is in {@code [lo, hi]}
+   */
+  private static long inRange(long ascii, char lo, char hi) {
+    // Each sum is at most 0xFF per byte, so no carry crosses into the next byte.
+    long atLeastLo = ascii + EVERY_BYTE * (0x80 - lo);
+    long aboveHi = ascii + EVERY_BYTE * (0x7F - hi);
+    return atLeastLo & ~aboveHi & HIGH_BITS;
+  }
+
+  /**
+   * Returns a long whose high bit is set in exactly the bytes of the argument that cannot occur in
+   * a name.
+   *
+   * @param word 8 bytes
+   * @return the high bit of each byte of {@code word} that is not an ASCII letter or digit, or one
+   *     of "_$./[;"
+   */
+  private static long invalidBytes(long word) {
+    long ascii = word & LOW_BITS;
+    long valid =
+        inRange(ascii, '.', '9') // "./0123456789"
+            | inRange(ascii, 'A', '[')
+            | inRange(ascii, 'a', 'z')
+            | inRange(ascii, '_', '_')
+            | inRange(ascii, '$', '$')
+            | inRange(ascii, ';', ';');
+    // A byte whose high bit is set is not ASCII.
+    return (~valid | word) & HIGH_BITS;
+  }
+
+  /**
+   * Returns true if the given byte can occur in an internal form, binary name, or {@link
+   * Class#getName} name.
+   *
+   * @param b a byte
+   * @return true if {@code b} is an ASCII letter or digit, or one of "_$./[;"
+   */
+  private static boolean isNameByte(byte b) {
+    return isIdentifierPart(toChar(b)) || b == '.' || b == '/' || b == '[' || b == ';';
+  }
+
+  // ///////////////////////////////////////////////////////////////////////////
+  // Type conversions
+  //
 
   /**
    * A representation of an array: A pair of class name (a binary name or primitive) and the number
@@ -385,13 +1163,14 @@ public final class Signatures {
      * @return the result of parsing the type name
      */
     public static ClassnameAndDimensions parseFqBinaryName(@FqBinaryName String typename) {
-      Matcher m = arrayBracketsPattern.matcher(typename);
+      int end = arrayBracketsStart(typename);
       @SuppressWarnings(
           "signature:assignment" // classname is a @ClassGetName for a non-array; equivalently, a
       // binary name for a non-array
       )
-      @BinaryNameOrPrimitiveType String classname = m.replaceFirst("");
-      int dimensions = (typename.length() - classname.length()) / 2;
+      @BinaryNameOrPrimitiveType String classname =
+          (end == typename.length()) ? typename : typename.substring(0, end);
+      int dimensions = (typename.length() - end) / 2;
       return new ClassnameAndDimensions(classname, dimensions);
     }
   }
@@ -421,16 +1200,44 @@ public final class Signatures {
    */
   @SuppressWarnings("signature") // conversion routine
   public static @FieldDescriptor String binaryNameToFieldDescriptor(@FqBinaryName String typename) {
-    ClassnameAndDimensions cad = ClassnameAndDimensions.parseFqBinaryName(typename);
-    String result = primitiveToFieldDescriptor.get(cad.classname);
-    if (result == null) {
-      result = "L" + cad.classname + ";";
+    int end = arrayBracketsStart(typename);
+    int dimensions = (typename.length() - end) / 2;
+    if (dimensions == 0) {
+      String primitive = primitiveToFieldDescriptor.get(typename);
+      if (primitive != null) {
+        return primitive;
+      }
     }
-    result = result.replace('.', '/');
-    if (cad.dimensions == 0) {
-      return result;
+    StringBuilder result = new StringBuilder(dimensions + end + 2);
+    for (int i = 0; i < dimensions; i++) {
+      result.append('[');
+    }
+    int primitive = primitiveTypeIndex(typename, 0, end);
+    if (primitive != -1) {
+      result.append(primitiveFieldDescriptors.charAt(primitive));
     } else {
-      return "[".repeat(cad.dimensions) + result;
+      result.append('L');
+      appendReplacing(result, typename, 0, end, '.', '/');
+      result.append(';');
+    }
+    return result.toString();
+  }
+
+  /**
+   * Appends part of a string to a StringBuilder, replacing one character by another.
+   *
+   * @param sb where to append
+   * @param s the string
+   * @param start the start of the part of {@code s} to append, inclusive
+   * @param end the end of the part of {@code s} to append, exclusive
+   * @param from the character to replace
+   * @param to the replacement
+   */
+  private static void appendReplacing(
+      StringBuilder sb, String s, int start, int end, char from, char to) {
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      sb.append(c == from ? to : c);
     }
   }
 
@@ -463,11 +1270,22 @@ public final class Signatures {
    */
   @SuppressWarnings("signature") // conversion routine
   public static @ClassGetName String binaryNameToClassGetName(@BinaryName String bn) {
-    if (bn.endsWith("[]")) {
-      return binaryNameToFieldDescriptor(bn).replace('/', '.');
-    } else {
+    int end = arrayBracketsStart(bn);
+    if (end == bn.length()) {
       return bn;
     }
+    int dimensions = (bn.length() - end) / 2;
+    StringBuilder result = new StringBuilder(dimensions + end + 2);
+    for (int i = 0; i < dimensions; i++) {
+      result.append('[');
+    }
+    int primitive = primitiveTypeIndex(bn, 0, end);
+    if (primitive != -1) {
+      result.append(primitiveFieldDescriptors.charAt(primitive));
+    } else {
+      result.append('L').append(bn, 0, end).append(';');
+    }
+    return result.toString();
   }
 
   /**
@@ -501,20 +1319,21 @@ public final class Signatures {
     }
   }
 
-  /** A map from field descriptor (such as "I") to Java primitive type (such as "int"). */
-  private static final Map<String, String> fieldDescriptorToPrimitive =
-      Map.of(
-          "Z", "boolean",
-          "B", "byte",
-          "C", "char",
-          "D", "double",
-          "F", "float",
-          "I", "int",
-          "J", "long",
-          "S", "short");
-
-  /** Matches the "[[[" prefix of a field descriptor for an array. */
-  private static Pattern fdArrayBracketsPattern = Pattern.compile("^\\[+");
+  /**
+   * Returns the primitive type whose field descriptor is the rest of the given string.
+   *
+   * @param s a string
+   * @param start an index into {@code s}
+   * @return the primitive type, such as "int", whose field descriptor, such as "I", is {@code
+   *     s[start, s.length())}, or null if there is none
+   */
+  private static @Nullable @PrimitiveType String primitiveForFieldDescriptor(String s, int start) {
+    if (start != s.length() - 1) {
+      return null;
+    }
+    int index = primitiveFieldDescriptors.indexOf(s.charAt(start));
+    return (index == -1) ? null : primitiveTypes[index];
+  }
 
   // does not convert "V" to "void".  Should it?
   /**
@@ -533,25 +1352,29 @@ public final class Signatures {
     if (typename.isEmpty()) {
       throw new Error("Empty string passed to fieldDescriptorToBinaryName");
     }
-    Matcher m = fdArrayBracketsPattern.matcher(typename);
-    String classname = m.replaceFirst("");
-    String result;
-    if (classname.startsWith("L") && classname.endsWith(";")) {
-      result = classname.substring(1, classname.length() - 1);
+    int dimensions = leadingBrackets(typename);
+    int length = typename.length();
+    StringBuilder result;
+    if (typename.charAt(length - 1) == ';' && typename.startsWith("L", dimensions)) {
+      result = new StringBuilder(length + dimensions);
+      appendReplacing(result, typename, dimensions + 1, length - 1, '/', '.');
     } else {
-      result = fieldDescriptorToPrimitive.get(classname);
-      if (result == null) {
+      String primitive = primitiveForFieldDescriptor(typename, dimensions);
+      if (primitive == null) {
         throw new Error(
-            "Malformed field descriptor should be \"L...;\" or a primitive: " + classname);
+            "Malformed field descriptor should be \"L...;\" or a primitive: "
+                + typename.substring(dimensions));
+      }
+      if (dimensions == 0) {
+        return primitive;
       }
+      result = new StringBuilder(primitive.length() + 2 * dimensions);
+      result.append(primitive);
     }
-    result = result.replace('/', '.');
-    int dimensions = typename.length() - classname.length();
-    if (dimensions == 0) {
-      return result;
-    } else {
-      return result + "[]".repeat(dimensions);
+    for (int i = 0; i < dimensions; i++) {
+      result.append("[]");
     }
+    return result.toString();
   }
 
   /**
@@ -566,26 +1389,29 @@ public final class Signatures {
     if (typename.isEmpty()) {
       throw new Error("Empty string passed to classGetNameToBinaryName");
     }
-    Matcher m = fdArrayBracketsPattern.matcher(typename);
-    String classname = m.replaceFirst("");
-    int dimensions = typename.length() - classname.length();
-    String result;
+    int dimensions = leadingBrackets(typename);
     if (dimensions == 0) {
-      return classname;
+      return typename;
+    }
+    int length = typename.length();
+    StringBuilder result;
+    if (typename.charAt(length - 1) == ';' && typename.startsWith("L", dimensions)) {
+      result = new StringBuilder(length + dimensions);
+      result.append(typename, dimensions + 1, length - 1);
     } else {
-      if (classname.startsWith("L") && classname.endsWith(";")) {
-        result = classname.substring(1, classname.length() - 1);
-      } else {
-        result = fieldDescriptorToPrimitive.get(classname);
-        if (result == null) {
-          throw new Error(
-              "Malformed Class.getName array base type should be \"L...;\" or a primitive: "
-                  + classname);
-        }
+      String primitive = primitiveForFieldDescriptor(typename, dimensions);
+      if (primitive == null) {
+        throw new Error(
+            "Malformed Class.getName array base type should be \"L...;\" or a primitive: "
+                + typename.substring(dimensions));
       }
-      // dimensions != 0, per `if` test above.
-      return result + "[]".repeat(dimensions);
+      result = new StringBuilder(primitive.length() + 2 * dimensions);
+      result.append(primitive);
     }
+    for (int i = 0; i < dimensions; i++) {
+      result.append("[]");
+    }
+    return result.toString();
   }
 
   /**
@@ -0,0 +1,388 @@
+package org.plumelib.reflection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.checker.signature.qual.ClassGetName;
+import org.checkerframework.checker.signature.qual.FieldDescriptor;
+import org.checkerframework.checker.signature.qual.FqBinaryName;
+import org.checkerframework.checker.signature.qual.InternalForm;
+
+/**
+ * A dictionary that assigns each distinct type name a dense {@code int} ID: 0 for the first name
+ * interned, 1 for the second, and so on. Code that holds many references to type names, such as
+ * a bytecode analysis, can store IDs in an {@code int[]} instead of Strings in a {@code String[]}.
+ *
+ * <p>Names are stored as fully-qualified binary names, such as "java.util.Map$Entry[]" or "int",
+ * one byte per (ASCII) character, in one shared byte array. The index from names to IDs is an
+ * open-addressing hash table in an {@code int[]}. Thus, each distinct name is stored once, in a
+ * few primitive arrays rather than in a String object, and each reference to it is a 4-byte
+ * {@code int}.
+ *
+ * <p>A name can be converted by ID to a binary name, a field descriptor, a {@link Class#getName}
+ * name, or an internal form. Each conversion of an ID is computed when first requested and then
+ * cached, so a repeated conversion returns the same String. Interning a name never retains the
+ * String that was passed in. {@link #clearConversionCaches} releases the cached Strings.
+ *
+ * <p>A TypeNameDictionary is not thread-safe.
+ */
+@SuppressWarnings("index") // every ID is checked, and the per-ID arrays grow together
+public final class TypeNameDictionary {
+
+  /** The fully-qualified binary names, one byte per character, concatenated. */
+  private byte[] bytes;
+
+  /** The number of bytes of {@link #bytes} that are in use. */
+  private int bytesUsed = 0;
+
+  /**
+   * The start of each name in {@link #bytes}. Name {@code id} occupies {@code [offsets[id],
+   * offsets[id + 1])}, so the array has one more used element than there are names.
+   */
+  private int[] offsets;
+
+  /** The {@link String#hashCode} of each name. */
+  private int[] hashes;
+
+  /** The number of names. */
+  private int size = 0;
+
+  /**
+   * The hash index: each element is 0 for an empty slot or one more than an ID. Its length is a
+   * power of 2, and at most half the slots are used.
+   */
+  private int[] table;
+
+  /** For each ID, its fully-qualified binary name, or null if not yet computed. */
+  private @Nullable String[] fqBinaryNames;
+
+  /** For each ID, its field descriptor, or null if not yet computed. */
+  private @Nullable String[] fieldDescriptors;
+
+  /** For each ID, its {@link Class#getName} form, or null if not yet computed. */
+  private @Nullable String[] classGetNames;
+
+  /** For each ID, its internal form, or null if not yet computed. */
+  private @Nullable String[] internalForms;
+
+  /** Creates an empty dictionary. */
+  public TypeNameDictionary() {
+    this(64);
+  }
+
+  /**
+   * Creates an empty dictionary with room for the given number of names.
+   *
+   * @param expectedSize the number of names that the dictionary is expected to hold
+   */
+  public TypeNameDictionary(int expectedSize) {
+    int capacity = Math.max(16, expectedSize);
+    bytes = new byte[capacity * 16];
+    offsets = new int[capacity + 1];
+    hashes = new int[capacity];
+    table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    fqBinaryNames = new String[capacity];
+    fieldDescriptors = new String[capacity];
+    classGetNames = new String[capacity];
+    internalForms = new String[capacity];
+  }
+
+  /**
+   * Returns the number of names in this dictionary. The IDs are 0 through {@code size() - 1}.
+   *
+   * @return the number of names
+   */
+  public int size() {
+    return size;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Interning
+  //
+
+  /**
+   * Returns the ID of the given name, adding it to this dictionary if it is not already present.
+   *
+   * @param fqBinaryName a fully-qualified binary name, such as "java.util.Map$Entry[]" or "int"
+   * @return the ID of the name
+   * @throws IllegalArgumentException if the argument is not a fully-qualified binary name
+   */
+  public int intern(String fqBinaryName) {
+    int id = lookup(fqBinaryName);
+    if (id != -1) {
+      return id;
+    }
+    if (!Signatures.isFqBinaryName(fqBinaryName)) {
+      throw new IllegalArgumentException("Not a fully-qualified binary name: " + fqBinaryName);
+    }
+    return add(fqBinaryName);
+  }
+
+  /**
+   * Returns the ID of the type with the given field descriptor, adding its name to this dictionary
+   * if it is not already present.
+   *
+   * @param fd a field descriptor, such as "[Ljava/util/Map$Entry;" or "I"
+   * @return the ID of the type
+   * @throws IllegalArgumentException if the argument is not a field descriptor
+   */
+  public int internFieldDescriptor(String fd) {
+    if (!Signatures.isFieldDescriptor(fd)) {
+      throw new IllegalArgumentException("Not a field descriptor: " + fd);
+    }
+    return intern(Signatures.fieldDescriptorToBinaryName(fd));
+  }
+
+  /**
+   * Returns the ID of the type with the given name, adding it to this dictionary if it is not
+   * already present.
+   *
+   * @param name a name in the format of {@link Class#getName}, such as "[Ljava.lang.String;"
+   * @return the ID of the type
+   * @throws IllegalArgumentException if the argument is not in the format of {@link Class#getName}
+   */
+  public int internClassGetName(String name) {
+    if (!Signatures.isClassGetName(name)) {
+      throw new IllegalArgumentException("Not a Class.getName name: " + name);
+    }
+    return intern(Signatures.classGetNameToBinaryName(name));
+  }
+
+  /**
+   * Interns each of the given names.
+   *
+   * @param fqBinaryNames fully-qualified binary names
+   * @return the ID of each name
+   * @throws IllegalArgumentException if an element is not a fully-qualified binary name
+   */
+  public int[] internAll(String... fqBinaryNames) {
+    int[] result = new int[fqBinaryNames.length];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = intern(fqBinaryNames[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ID of the given name, or -1 if it is not in this dictionary.
+   *
+   * @param fqBinaryName a fully-qualified binary name
+   * @return the ID of the name, or -1
+   */
+  public int lookup(String fqBinaryName) {
+    int hash = fqBinaryName.hashCode();
+    int mask = table.length - 1;
+    for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+      int entry = table[slot];
+      if (entry == 0) {
+        return -1;
+      }
+      int id = entry - 1;
+      if (hashes[id] == hash && nameEquals(id, fqBinaryName)) {
+        return id;
+      }
+    }
+  }
+
+  /**
+   * Returns a slot number for a hash code, mixing its high bits into its low bits.
+   *
+   * @param hash a hash code
+   * @return the hash code, with its bits mixed
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns true if the name with the given ID is the given string.
+   *
+   * @param id an ID
+   * @param s a string
+   * @return true if name {@code id} equals {@code s}
+   */
+  private boolean nameEquals(int id, String s) {
+    int start = offsets[id];
+    int length = s.length();
+    if (offsets[id + 1] - start != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      // A stored byte is never negative, so a non-ASCII character never matches.
+      if (bytes[start + i] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds a name that is not in this dictionary.
+   *
+   * @param fqBinaryName a fully-qualified binary name that is not in this dictionary
+   * @return the ID of the name
+   */
+  private int add(String fqBinaryName) {
+    byte[] encoded = fqBinaryName.getBytes(StandardCharsets.US_ASCII);
+    if (bytesUsed + encoded.length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesUsed + encoded.length));
+    }
+    if (size == hashes.length) {
+      int capacity = size * 2;
+      offsets = Arrays.copyOf(offsets, capacity + 1);
+      hashes = Arrays.copyOf(hashes, capacity);
+      fqBinaryNames = Arrays.copyOf(fqBinaryNames, capacity);
+      fieldDescriptors = Arrays.copyOf(fieldDescriptors, capacity);
+      classGetNames = Arrays.copyOf(classGetNames, capacity);
+      internalForms = Arrays.copyOf(internalForms, capacity);
+    }
+    if ((size + 1) * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    System.arraycopy(encoded, 0, bytes, bytesUsed, encoded.length);
+    bytesUsed += encoded.length;
+    int id = size;
+    offsets[id + 1] = bytesUsed;
+    hashes[id] = fqBinaryName.hashCode();
+    size++;
+    insert(id);
+    return id;
+  }
+
+  /**
+   * Replaces the hash index by one of the given size.
+   *
+   * @param length the length of the new index, a power of 2
+   */
+  private void rehash(int length) {
+    table = new int[length];
+    for (int id = 0; id < size; id++) {
+      insert(id);
+    }
+  }
+
+  /**
+   * Adds an ID to the hash index.
+   *
+   * @param id an ID that is not in the index
+   */
+  private void insert(int id) {
+    int mask = table.length - 1;
+    int slot = spread(hashes[id]) & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = id + 1;
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Conversions
+  //
+
+  /**
+   * Discards the cached results of conversions, so that this dictionary refers to no String. IDs
+   * are unchanged, and a later conversion computes a new String.
+   */
+  public void clearConversionCaches() {
+    Arrays.fill(fqBinaryNames, null);
+    Arrays.fill(fieldDescriptors, null);
+    Arrays.fill(classGetNames, null);
+    Arrays.fill(internalForms, null);
+  }
+
+  /**
+   * Checks that an ID is in this dictionary.
+   *
+   * @param id an ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in this dictionary
+   */
+  private void checkId(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No name with ID " + id + "; size is " + size);
+    }
+  }
+
+  /**
+   * Returns the fully-qualified binary name with the given ID, such as "java.util.Map$Entry[]".
+   *
+   * @param id an ID
+   * @return the name with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in this dictionary
+   */
+  @SuppressWarnings("signature") // only fully-qualified binary names are stored
+  public @FqBinaryName String fqBinaryName(int id) {
+    checkId(id);
+    String result = fqBinaryNames[id];
+    if (result == null) {
+      int start = offsets[id];
+      result = new String(bytes, start, offsets[id + 1] - start, StandardCharsets.US_ASCII);
+      fqBinaryNames[id] = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the field descriptor of the type with the given ID, such as "[Ljava/util/Map$Entry;".
+   *
+   * @param id an ID
+   * @return the field descriptor of the type with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in this dictionary
+   */
+  @SuppressWarnings("signature") // only field descriptors are stored in fieldDescriptors
+  public @FieldDescriptor String fieldDescriptor(int id) {
+    checkId(id);
+    String result = fieldDescriptors[id];
+    if (result == null) {
+      result = Signatures.binaryNameToFieldDescriptor(fqBinaryName(id));
+      fieldDescriptors[id] = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the name of the type with the given ID, in the format of {@link Class#getName}, such
+   * as "[Ljava.util.Map$Entry;".
+   *
+   * @param id an ID
+   * @return the {@link Class#getName} name of the type with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in this dictionary
+   */
+  @SuppressWarnings("signature") // conversion routine
+  public @ClassGetName String classGetName(int id) {
+    checkId(id);
+    String result = classGetNames[id];
+    if (result == null) {
+      result = Signatures.binaryNameToClassGetName(fqBinaryName(id));
+      classGetNames[id] = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the internal form of the type with the given ID, as it appears in a {@code
+   * CONSTANT_Class} entry of a class file. That is "java/util/Map$Entry" for a class or interface,
+   * and the field descriptor, such as "[Ljava/util/Map$Entry;", for an array.
+   *
+   * @param id an ID
+   * @return the internal form of the type with the given ID
+   * @throws IndexOutOfBoundsException if {@code id} is not an ID in this dictionary
+   * @throws IllegalArgumentException if the type is primitive, and so has no internal form
+   */
+  @SuppressWarnings("signature") // conversion routine
+  public @InternalForm String internalForm(int id) {
+    checkId(id);
+    String result = internalForms[id];
+    if (result == null) {
+      String name = fqBinaryName(id);
+      if (name.endsWith("[]")) {
+        result = fieldDescriptor(id);
+      } else if (Signatures.isPrimitiveType(name)) {
+        throw new IllegalArgumentException("A primitive type has no internal form: " + name);
+      } else {
+        result = Signatures.binaryNameToInternalForm(name);
+      }
+      internalForms[id] = result;
+    }
+    return result;
+  }
+}
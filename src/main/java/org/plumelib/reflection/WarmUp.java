@@ -0,0 +1,418 @@
+package org.plumelib.reflection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.checkerframework.checker.signature.qual.ClassGetName;
+
+/**
+ * Resolves classes and methods ahead of time, so that the first calls to {@link
+ * ReflectionP#classForName} and {@link ReflectionP#methodForName(String)} on a latency-sensitive
+ * path do not pay for class loading, linking, and initialization.
+ */
+public final class WarmUp {
+
+  /** Do not instantiate. */
+  private WarmUp() {
+    throw new Error("Do not instantiate");
+  }
+
+  /**
+   * The result of preloading: for each class name, argument list, and method signature, its
+   * resolution, including how long it took.
+   *
+   * @param classes a map from each class name to the result of resolving and initializing it
+   * @param argLists a map from each argument list, such as "java.lang.String, int", to the result
+   *     of resolving its types
+   * @param methods a map from each method signature to the result of resolving it
+   */
+  public static record Report(
+      Map<String, Resolution<Class<?>>> classes,
+      Map<String, Resolution<Class<?>[]>> argLists,
+      Map<String, Resolution<Method>> methods) {
+
+    /**
+     * Returns the number of names that could not be resolved.
+     *
+     * @return the number of names that could not be resolved
+     */
+    public int failures() {
+      int result = 0;
+      for (Resolution<Class<?>> r : classes.values()) {
+        if (!r.isSuccess()) {
+          result++;
+        }
+      }
+      for (Resolution<Class<?>[]> r : argLists.values()) {
+        if (!r.isSuccess()) {
+          result++;
+        }
+      }
+      for (Resolution<Method> r : methods.values()) {
+        if (!r.isSuccess()) {
+          result++;
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Asynchronously resolves and initializes the given classes, and resolves the given methods
+   * (which initializes their declaring classes and the classes of their parameters). Each name is
+   * resolved by a separate task on {@code executor}, so the executor bounds the parallelism.
+   *
+   * <p>Classes are resolved with {@link ReflectionP#classForName} and methods with {@link
+   * ReflectionP#methodForName(String)}, so this also fills the caches that those methods use. A
+   * name that cannot be resolved, including a malformed method signature, is reported in the
+   * result; it does not affect other names.
+   *
+   * @param classNames names of classes, in the format accepted by {@link ReflectionP#classForName}
+   * @param methods method signatures, in the format accepted by {@link
+   *     ReflectionP#methodForName(String)}
+   * @param executor the executor on which to resolve the names
+   * @return a future that completes when every name has been resolved
+   */
+  public static CompletableFuture<Report> preload(
+      Collection<@ClassGetName String> classNames, Collection<String> methods, Executor executor) {
+    return preload(classNames, List.of(), methods, executor);
+  }
+
+  /**
+   * Implementation of {@link #preload(Collection, Collection, Executor)} that also resolves
+   * argument lists, filling the cache used by {@link ReflectionP#methodForName(String)}.
+   *
+   * @param classNames names of classes, in the format accepted by {@link ReflectionP#classForName}
+   * @param argLists argument lists, such as "java.lang.String, int"
+   * @param methods method signatures, in the format accepted by {@link
+   *     ReflectionP#methodForName(String)}
+   * @param executor the executor on which to resolve the names
+   * @return a future that completes when every name has been resolved
+   */
+  private static CompletableFuture<Report> preload(
+      Collection<@ClassGetName String> classNames,
+      Collection<String> argLists,
+      Collection<String> methods,
+      Executor executor) {
+    List<CompletableFuture<Resolution<Class<?>>>> classFutures = new ArrayList<>();
+    for (@ClassGetName String className : new LinkedHashSet<>(classNames)) {
+      classFutures.add(
+          CompletableFuture.supplyAsync(
+              () -> Resolution.of(className, () -> ReflectionP.classForName(className)),
+              executor));
+    }
+    List<CompletableFuture<Resolution<Class<?>[]>>> argListFutures = new ArrayList<>();
+    for (String argList : new LinkedHashSet<>(argLists)) {
+      argListFutures.add(
+          CompletableFuture.supplyAsync(
+              () -> Resolution.of(argList, () -> ReflectionP.argClassesForName(argList)),
+              executor));
+    }
+    List<CompletableFuture<Resolution<Method>>> methodFutures = new ArrayList<>();
+    for (String method : new LinkedHashSet<>(methods)) {
+      // ReflectionP.methodForName throws Error for a malformed signature, so report it here.
+      try {
+        ReflectionP.MethodSignature.parse(method);
+      } catch (IllegalArgumentException e) {
+        methodFutures.add(
+            CompletableFuture.completedFuture(new Resolution<>(method, null, e, 0)));
+        continue;
+      }
+      methodFutures.add(
+          CompletableFuture.supplyAsync(
+              () -> Resolution.of(method, () -> ReflectionP.methodForName(method)), executor));
+    }
+
+    List<CompletableFuture<?>> all = new ArrayList<>(classFutures);
+    all.addAll(argListFutures);
+    all.addAll(methodFutures);
+    return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            unused ->
+                new Report(
+                    joinAll(classFutures), joinAll(argListFutures), joinAll(methodFutures)));
+  }
+
+  /**
+   * Like {@link #preload(Collection, Collection, Executor)}, but uses a new pool of {@code
+   * parallelism} daemon threads, which is shut down when preloading completes.
+   *
+   * @param classNames names of classes, in the format accepted by {@link ReflectionP#classForName}
+   * @param methods method signatures, in the format accepted by {@link
+   *     ReflectionP#methodForName(String)}
+   * @param parallelism the maximum number of names to resolve concurrently
+   * @return a future that completes when every name has been resolved
+   */
+  public static CompletableFuture<Report> preload(
+      Collection<@ClassGetName String> classNames, Collection<String> methods, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, daemonThreadFactory());
+    try {
+      return preload(classNames, methods, executor)
+          .whenComplete((report, exception) -> executor.shutdown());
+    } catch (RuntimeException e) {
+      executor.shutdown();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a factory for daemon threads whose names start with "reflection-util-warmup-". Daemon
+   * threads do not prevent the JVM from exiting if preloading is still underway.
+   *
+   * @return a factory for daemon threads
+   */
+  private static ThreadFactory daemonThreadFactory() {
+    AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, "reflection-util-warmup-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+
+  /**
+   * Returns the results of the given completed futures, as a map from name to resolution.
+   *
+   * @param <T> the type of the result of a successful resolution
+   * @param futures completed futures
+   * @return a map from each resolved name to its resolution, in the order of {@code futures}
+   */
+  private static <T> Map<String, Resolution<T>> joinAll(
+      List<CompletableFuture<Resolution<T>>> futures) {
+    Map<String, Resolution<T>> result = new LinkedHashMap<>(futures.size() * 4 / 3 + 1);
+    for (CompletableFuture<Resolution<T>> future : futures) {
+      Resolution<T> r = future.join();
+      result.put(r.name(), r);
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  // //////////////////////////////////////////////////////////////////////
+  // Snapshots
+  //
+
+  /** The first line of a snapshot file. */
+  private static final String SNAPSHOT_HEADER = "# reflection-util warm-up snapshot, version 1";
+
+  /** True if {@link ReflectionP} records the names that it resolves. */
+  private static final AtomicBoolean recording = new AtomicBoolean(false);
+
+  /**
+   * The class names that {@link ReflectionP#classForName} has resolved while recording. The value
+   * of each is {@code Boolean.TRUE}. If more names are resolved than fit, the least-used ones are
+   * dropped from the snapshot.
+   */
+  private static final BoundedCache<String, Boolean> recordedClasses =
+      BoundedCache.builder(Metrics.Cache.RECORDED_CLASSES).capacity(4096).build();
+
+  /**
+   * The method signatures that {@link ReflectionP#methodForName(String)} has resolved while
+   * recording. The value of each is {@code Boolean.TRUE}.
+   */
+  private static final BoundedCache<String, Boolean> recordedMethods =
+      BoundedCache.builder(Metrics.Cache.RECORDED_METHODS).capacity(4096).build();
+
+  /**
+   * Starts recording the names of the classes and methods that {@link ReflectionP#classForName}
+   * and {@link ReflectionP#methodForName(String)} resolve, so that {@link #writeSnapshot} can save
+   * them. Argument lists are always recorded. Recording costs one extra cache lookup per
+   * successful lookup of a name. At most 4096 classes and 4096 methods are recorded; when more are
+   * resolved, the least-used ones are dropped.
+   */
+  public static void startRecording() {
+    recording.set(true);
+  }
+
+  /**
+   * Stops recording, and discards the class and method names recorded so far, so that they no
+   * longer occupy memory. To save them, call {@link #writeSnapshot} before calling this method.
+   * Recording can be started again with {@link #startRecording}.
+   */
+  public static void stopRecording() {
+    recording.set(false);
+    recordedClasses.clear();
+    recordedMethods.clear();
+  }
+
+  /**
+   * Records that {@link ReflectionP#classForName} resolved the given name, if recording.
+   *
+   * @param className a class name that was resolved
+   */
+  static void recordClass(String className) {
+    if (recording.get() && recordedClasses.get(className) == null) {
+      recordedClasses.putIfAbsent(className, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Records that {@link ReflectionP#methodForName(String)} resolved the given signature, if
+   * recording.
+   *
+   * @param method a method signature that was resolved
+   */
+  static void recordMethod(String method) {
+    if (recording.get() && recordedMethods.get(method) == null) {
+      recordedMethods.putIfAbsent(method, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Writes the names that have been resolved so far to a file, which {@link #replaySnapshot} can
+   * read on the next run. The file contains the argument lists that {@link
+   * ReflectionP#methodForName(String)} has cached and, if {@link #startRecording} has been called,
+   * the classes and methods resolved since then. The file is written atomically where the file
+   * system permits, so a concurrent reader sees either the old or the new snapshot.
+   *
+   * @param file the file to write; it is overwritten if it exists
+   * @throws IOException if the file cannot be written
+   */
+  public static void writeSnapshot(Path file) throws IOException {
+    Path absolute = file.toAbsolutePath();
+    Path dir = absolute.getParent();
+    if (dir == null) {
+      throw new IOException("No parent directory: " + file);
+    }
+    Path tmp = Files.createTempFile(dir, absolute.getFileName() + "-", ".tmp");
+    try {
+      try (BufferedWriter w =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+        w.write(SNAPSHOT_HEADER);
+        w.newLine();
+        writeSection(w, 'C', recordedClasses.keys());
+        writeSection(w, 'A', ReflectionP.argListsSeen());
+        writeSection(w, 'M', recordedMethods.keys());
+      }
+      try {
+        Files.move(
+            tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Writes one line per name, each prefixed by the given kind and a space.
+   *
+   * @param w where to write
+   * @param kind the kind of the names: 'C' for classes, 'A' for argument lists, 'M' for methods
+   * @param names the names to write
+   * @throws IOException if there is trouble writing
+   */
+  private static void writeSection(BufferedWriter w, char kind, Collection<String> names)
+      throws IOException {
+    for (String name : new TreeSet<>(names)) {
+      w.write(kind);
+      w.write(' ');
+      w.write(name);
+      w.newLine();
+    }
+  }
+
+  /**
+   * Starts recording (see {@link #startRecording}), and arranges for {@link #writeSnapshot} to be
+   * called on the given file when the JVM shuts down normally. A failure to write the snapshot at
+   * shutdown is reported on standard error.
+   *
+   * @param file the file to write at shutdown
+   */
+  public static void writeSnapshotOnExit(Path file) {
+    startRecording();
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  try {
+                    writeSnapshot(file);
+                  } catch (IOException e) {
+                    System.err.println("Could not write warm-up snapshot " + file + ": " + e);
+                  }
+                },
+                "reflection-util-warmup-snapshot"));
+  }
+
+  /**
+   * Reads a file written by {@link #writeSnapshot} and preloads, in parallel, every class,
+   * argument list, and method that it names; see {@link #preload(Collection, Collection,
+   * Executor)}. If the file does not exist, as on the first run, the result is an empty report.
+   * Names that can no longer be resolved are reported in the result, and do not affect other
+   * names.
+   *
+   * @param file a snapshot file
+   * @param executor the executor on which to resolve the names
+   * @return a future that completes when every name in the snapshot has been resolved
+   * @throws IOException if the file exists but cannot be read or is not a snapshot file
+   */
+  public static CompletableFuture<Report> replaySnapshot(Path file, Executor executor)
+      throws IOException {
+    List<@ClassGetName String> classNames = new ArrayList<>();
+    List<String> argLists = new ArrayList<>();
+    List<String> methods = new ArrayList<>();
+    if (Files.exists(file)) {
+      try (BufferedReader r =
+          new BufferedReader(
+              new InputStreamReader(
+                  new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+        String header = r.readLine();
+        if (!SNAPSHOT_HEADER.equals(header)) {
+          throw new IOException("Not a warm-up snapshot: " + file);
+        }
+        for (String line = r.readLine(); line != null; line = r.readLine()) {
+          if (line.length() < 2 || line.charAt(1) != ' ') {
+            throw new IOException("Malformed line in warm-up snapshot " + file + ": " + line);
+          }
+          String name = line.substring(2);
+          switch (line.charAt(0)) {
+            case 'C':
+              @SuppressWarnings("signature:assignment") // written by writeSnapshot
+              @ClassGetName String className = name;
+              classNames.add(className);
+              break;
+            case 'A':
+              argLists.add(name);
+              break;
+            case 'M':
+              methods.add(name);
+              break;
+            default:
+              throw new IOException("Malformed line in warm-up snapshot " + file + ": " + line);
+          }
+        }
+      }
+    }
+    return preload(classNames, argLists, methods, executor);
+  }
+}
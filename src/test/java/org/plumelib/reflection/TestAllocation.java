@@ -0,0 +1,189 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the number of bytes that hot-path methods allocate per call. A predicate or a cached
+ * lookup should allocate nothing, and a conversion should allocate little more than its result. A
+ * change that makes such a method use a {@code Matcher} or an intermediate substring exceeds its
+ * budget.
+ */
+public final class TestAllocation {
+
+  /** Measures the bytes allocated by the current thread. */
+  private static final com.sun.management.ThreadMXBean threadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** The number of calls to measure, after warming up. */
+  private static final int CALLS = 10_000;
+
+  /** Holds the latest result, so that a call cannot be optimized away. */
+  @SuppressWarnings("UnusedVariable") // written but not read
+  private static Object sink;
+
+  @BeforeAll
+  static void checkSupported() {
+    assumeTrue(
+        threadBean.isThreadAllocatedMemorySupported()
+            && threadBean.isThreadAllocatedMemoryEnabled(),
+        "The JVM cannot measure allocation");
+  }
+
+  /**
+   * Returns the number of bytes that the current thread allocates per call of the given operation.
+   *
+   * @param operation the operation to measure
+   * @return the average number of bytes allocated per call
+   */
+  static double bytesPerCall(Supplier<?> operation) {
+    for (int i = 0; i < CALLS; i++) {
+      sink = operation.get();
+    }
+    long before = threadBean.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < CALLS; i++) {
+      sink = operation.get();
+    }
+    long after = threadBean.getCurrentThreadAllocatedBytes();
+    return (double) (after - before) / CALLS;
+  }
+
+  /**
+   * Returns the number of bytes that a String of the given length occupies, if its characters are
+   * Latin-1, allowing for 16-byte headers and 8-byte alignment.
+   *
+   * @param length the length of the string
+   * @return the size of the string, including its byte array
+   */
+  static long stringSize(int length) {
+    return 24 + ((16 + length + 7) & ~7);
+  }
+
+  /**
+   * Asserts that the given operation allocates at most the given number of bytes per call. Less
+   * than one byte per call is tolerated, because the runtime occasionally allocates on the
+   * measured thread, for example when a method is compiled.
+   *
+   * @param budget the maximum number of bytes per call
+   * @param description a description of the operation
+   * @param operation the operation to measure
+   */
+  static void assertBudget(long budget, String description, Supplier<?> operation) {
+    double actual = bytesPerCall(operation);
+    assertTrue(
+        actual < budget + 1,
+        () -> description + " allocates " + actual + " bytes per call; budget is " + budget);
+  }
+
+  /**
+   * Asserts that a conversion allocates no more than its result, plus one StringBuilder of the
+   * result's size.
+   *
+   * @param description a description of the conversion
+   * @param conversion the conversion
+   */
+  static void assertConversionBudget(String description, Supplier<String> conversion) {
+    int length = conversion.get().length();
+    assertBudget(2 * stringSize(length) + 48, description, conversion);
+  }
+
+  @Test
+  void test_predicates() {
+    String[] inputs = {
+      "java.lang.String",
+      "java.util.Map$Entry[][]",
+      "[Ljava/util/Map$Entry;",
+      "java/util/Map$Entry",
+      "[[Ljava.lang.String;",
+      "int",
+      "[I",
+      "java.lang.int",
+      "not a name",
+      "",
+    };
+    for (String s : inputs) {
+      assertBudget(0, "isArrayWithoutPackage", () -> Signatures.isArrayWithoutPackage(s));
+      assertBudget(0, "isBinaryName", () -> Signatures.isBinaryName(s));
+      assertBudget(
+          0, "isBinaryNameOrPrimitiveType", () -> Signatures.isBinaryNameOrPrimitiveType(s));
+      assertBudget(0, "isClassGetName", () -> Signatures.isClassGetName(s));
+      assertBudget(0, "isClassGetSimpleName", () -> Signatures.isClassGetSimpleName(s));
+      assertBudget(0, "isDotSeparatedIdentifiers", () -> Signatures.isDotSeparatedIdentifiers(s));
+      assertBudget(
+          0,
+          "isDotSeparatedIdentifiersOrPrimitiveType",
+          () -> Signatures.isDotSeparatedIdentifiersOrPrimitiveType(s));
+      assertBudget(0, "isFieldDescriptor", () -> Signatures.isFieldDescriptor(s));
+      assertBudget(
+          0,
+          "isFieldDescriptorWithoutPackage",
+          () -> Signatures.isFieldDescriptorWithoutPackage(s));
+      assertBudget(
+          0, "isFieldDescriptorForPrimitive", () -> Signatures.isFieldDescriptorForPrimitive(s));
+      assertBudget(0, "isFqBinaryName", () -> Signatures.isFqBinaryName(s));
+      assertBudget(0, "isFullyQualifiedName", () -> Signatures.isFullyQualifiedName(s));
+      assertBudget(0, "isIdentifier", () -> Signatures.isIdentifier(s));
+      assertBudget(
+          0, "isIdentifierOrPrimitiveType", () -> Signatures.isIdentifierOrPrimitiveType(s));
+      assertBudget(0, "isInternalForm", () -> Signatures.isInternalForm(s));
+      assertBudget(0, "isPrimitiveType", () -> Signatures.isPrimitiveType(s));
+    }
+  }
+
+  @Test
+  void test_conversions() {
+    assertConversionBudget(
+        "binaryNameToFieldDescriptor",
+        () -> Signatures.binaryNameToFieldDescriptor("java.util.Map$Entry[][]"));
+    assertBudget(
+        0, "binaryNameToFieldDescriptor", () -> Signatures.binaryNameToFieldDescriptor("int"));
+    assertConversionBudget(
+        "binaryNameToClassGetName",
+        () -> Signatures.binaryNameToClassGetName("java.util.Map$Entry[][]"));
+    assertBudget(
+        0,
+        "binaryNameToClassGetName",
+        () -> Signatures.binaryNameToClassGetName("java.lang.Object"));
+    assertConversionBudget(
+        "fieldDescriptorToBinaryName",
+        () -> Signatures.fieldDescriptorToBinaryName("[[Ljava/util/Map$Entry;"));
+    assertConversionBudget(
+        "fieldDescriptorToBinaryName", () -> Signatures.fieldDescriptorToBinaryName("[[I"));
+    assertBudget(
+        0, "fieldDescriptorToBinaryName", () -> Signatures.fieldDescriptorToBinaryName("I"));
+    assertConversionBudget(
+        "classGetNameToBinaryName",
+        () -> Signatures.classGetNameToBinaryName("[[Ljava.util.Map$Entry;"));
+    assertBudget(
+        0,
+        "classGetNameToBinaryName",
+        () -> Signatures.classGetNameToBinaryName("java.lang.Object"));
+    // The only allocation is the result record.
+    assertBudget(
+        32,
+        "parseFqBinaryName",
+        () -> Signatures.ClassnameAndDimensions.parseFqBinaryName("java.lang.Object"));
+    assertConversionBudget(
+        "internalFormToBinaryName",
+        () -> Signatures.internalFormToBinaryName("java/util/Map$Entry"));
+    assertConversionBudget(
+        "binaryNameToInternalForm",
+        () -> Signatures.binaryNameToInternalForm("java.util.Map$Entry"));
+  }
+
+  @Test
+  void test_cachedLookups() {
+    assertBudget(
+        0, "nameWithoutPackage", () -> ReflectionP.nameWithoutPackage(java.util.Map.Entry.class));
+    assertBudget(0, "fqBinaryName", () -> ReflectionP.fqBinaryName(java.util.Map.Entry[].class));
+    assertBudget(
+        0, "fieldDescriptor", () -> ReflectionP.fieldDescriptor(java.util.Map.Entry[].class));
+    // A memo whose keys are held weakly.
+    assertBudget(0, "isConvertible", () -> Conversions.isConvertible(Integer.class, Number.class));
+  }
+}
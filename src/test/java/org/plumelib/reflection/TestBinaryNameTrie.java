@@ -0,0 +1,119 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Test code for the BinaryNameTrie class. */
+public final class TestBinaryNameTrie {
+
+  @Test
+  void test_addAndLookup() {
+    BinaryNameTrie trie = new BinaryNameTrie();
+    int list = trie.add("java.util.List");
+    int entry = trie.add("java.util.Map$Entry");
+    assertEquals(list, trie.add("java.util.List"));
+    int main = trie.add("Main");
+    assertEquals(3, trie.size());
+
+    assertEquals(list, trie.lookup("java.util.List"));
+    assertEquals(entry, trie.lookup("java.util.Map$Entry"));
+    assertEquals(main, trie.lookup("Main"));
+    // A prefix of a name is not in the set unless it was added.
+    assertEquals(-1, trie.lookup("java.util"));
+    assertEquals(-1, trie.lookup("java.util.Map"));
+    assertEquals(-1, trie.lookup("java.util.Lis"));
+    assertEquals(-1, trie.lookup("java.util.List.Sub"));
+    assertEquals(-1, trie.lookup(""));
+    assertEquals(-1, trie.lookup("java..util"));
+    assertFalse(trie.contains("java"));
+    int util = trie.add("java.util");
+    assertEquals(util, trie.lookup("java.util"));
+    assertTrue(trie.contains("java.util"));
+    assertEquals(4, trie.size());
+
+    assertThrows(IllegalArgumentException.class, () -> trie.add(""));
+    assertThrows(IllegalArgumentException.class, () -> trie.add("java.util."));
+    assertThrows(IllegalArgumentException.class, () -> trie.add("java/util/List"));
+    assertThrows(IllegalArgumentException.class, () -> trie.add("int[]"));
+    assertThrows(IllegalArgumentException.class, () -> trie.add("caf\u00e9.Caf\u00e9"));
+    assertEquals(4, trie.size());
+  }
+
+  @Test
+  void test_names() {
+    BinaryNameTrie trie = new BinaryNameTrie();
+    int entry = trie.add("java.util.Map$Entry");
+    int main = trie.add("Main");
+    int util = trie.add("java.util");
+    assertEquals("java.util.Map$Entry", trie.name(entry));
+    assertEquals("java.util", trie.packageName(entry));
+    assertEquals("Main", trie.name(main));
+    assertEquals("", trie.packageName(main));
+    assertEquals("java.util", trie.name(util));
+    assertEquals("java", trie.packageName(util));
+
+    // An ID must be the ID of a name, not merely of a package.
+    assertThrows(IndexOutOfBoundsException.class, () -> trie.name(0));
+    assertThrows(IndexOutOfBoundsException.class, () -> trie.name(-1));
+    assertThrows(IndexOutOfBoundsException.class, () -> trie.name(100));
+    // The first node added is that of the package "java".
+    assertThrows(IndexOutOfBoundsException.class, () -> trie.name(1));
+  }
+
+  @Test
+  void test_enumeration() {
+    BinaryNameTrie trie = new BinaryNameTrie();
+    trie.addAll(
+        List.of(
+            "java.util.List",
+            "java.util.Map",
+            "java.util.Map$Entry",
+            "java.util.concurrent.Future",
+            "java.util.concurrent.atomic.AtomicLong",
+            "Main"));
+    assertEquals(
+        Set.of("java.util.List", "java.util.Map", "java.util.Map$Entry"),
+        new HashSet<>(trie.namesInPackage("java.util")));
+    assertEquals(Set.of("Main"), new HashSet<>(trie.namesInPackage("")));
+    assertEquals(List.of(), trie.namesInPackage("java"));
+    assertEquals(List.of(), trie.namesInPackage("javax.swing"));
+    assertEquals(
+        Set.of("", "java.util", "java.util.concurrent", "java.util.concurrent.atomic"),
+        new HashSet<>(trie.packages()));
+    assertEquals(
+        Set.of(
+            "java.util.List",
+            "java.util.Map",
+            "java.util.Map$Entry",
+            "java.util.concurrent.Future",
+            "java.util.concurrent.atomic.AtomicLong",
+            "Main"),
+        new HashSet<>(trie.names()));
+    assertEquals(6, trie.names().size());
+  }
+
+  @Test
+  void test_growth() {
+    BinaryNameTrie trie = new BinaryNameTrie(1);
+    int n = 21_000;
+    int[] ids = new int[n];
+    for (int i = 0; i < n; i++) {
+      ids[i] = trie.add("com.acme.pkg" + (i % 50) + ".sub" + (i % 7) + ".Class" + i);
+    }
+    assertEquals(n, trie.size());
+    for (int i = 0; i < n; i++) {
+      String name = "com.acme.pkg" + (i % 50) + ".sub" + (i % 7) + ".Class" + i;
+      assertEquals(ids[i], trie.lookup(name));
+      assertEquals(name, trie.name(ids[i]));
+    }
+    assertEquals(350, trie.packages().size());
+    assertEquals(n / 350, trie.namesInPackage("com.acme.pkg0.sub0").size());
+  }
+}
@@ -0,0 +1,250 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/** Test code for the BoundedCache class. */
+public final class TestBoundedCache {
+
+  /**
+   * Returns a new cache with the given capacity.
+   *
+   * @param capacity the capacity
+   * @return a new cache
+   */
+  static BoundedCache<String, Integer> newCache(int capacity) {
+    // Any name will do; the statistics of the library's caches are only incremented.
+    return BoundedCache.builder(Metrics.Cache.ARGUMENT_LISTS).capacity(capacity).build();
+  }
+
+  @Test
+  void test_getAndPut() {
+    BoundedCache<String, Integer> cache = newCache(4);
+    assertNull(cache.get("a"));
+    assertFalse(cache.containsKey("a"));
+    assertEquals(Integer.valueOf(1), cache.putIfAbsent("a", 1));
+    // An existing value is kept.
+    assertEquals(Integer.valueOf(1), cache.putIfAbsent("a", 2));
+    assertEquals(Integer.valueOf(1), cache.get("a"));
+    assertTrue(cache.containsKey("a"));
+    assertEquals(Set.of("a"), cache.keys());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BoundedCache.builder(Metrics.Cache.ARGUMENT_LISTS).capacity(0));
+  }
+
+  @Test
+  void test_eviction() {
+    long evictionsBefore = Metrics.snapshot().cache(Metrics.Cache.ARGUMENT_LISTS).evictions();
+    BoundedCache<String, Integer> cache = newCache(8);
+    for (int i = 0; i < 8; i++) {
+      cache.putIfAbsent("hot" + i, i);
+    }
+    // Use half of the entries often.
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 4; i++) {
+        cache.get("hot" + i);
+      }
+    }
+    // A stream of entries that are used once displaces the unused entries, not the used ones.
+    for (int i = 0; i < 20; i++) {
+      cache.putIfAbsent("cold" + i, i);
+      assertTrue(cache.size() <= 8);
+    }
+    for (int i = 0; i < 4; i++) {
+      assertEquals(Integer.valueOf(i), cache.get("hot" + i));
+    }
+    for (int i = 4; i < 8; i++) {
+      assertNull(cache.get("hot" + i));
+    }
+    long evictionsAfter = Metrics.snapshot().cache(Metrics.Cache.ARGUMENT_LISTS).evictions();
+    assertEquals(20, evictionsAfter - evictionsBefore);
+  }
+
+  @Test
+  void test_clear() {
+    BoundedCache<String, Integer> cache = newCache(4);
+    for (int i = 0; i < 6; i++) {
+      cache.putIfAbsent("old" + i, i);
+    }
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(Set.of(), cache.keys());
+    assertNull(cache.get("old5"));
+    // The cleared slots are reused without evicting anything.
+    long evictionsBefore = Metrics.snapshot().cache(Metrics.Cache.ARGUMENT_LISTS).evictions();
+    for (int i = 0; i < 4; i++) {
+      cache.putIfAbsent("new" + i, i);
+    }
+    assertEquals(Set.of("new0", "new1", "new2", "new3"), cache.keys());
+    long evictionsAfter = Metrics.snapshot().cache(Metrics.Cache.ARGUMENT_LISTS).evictions();
+    assertEquals(0, evictionsAfter - evictionsBefore);
+  }
+
+  @Test
+  void test_capacityProperty() {
+    String property = "org.plumelib.reflection.cache.argumentLists.capacity";
+    System.setProperty(property, "3");
+    try {
+      assertEquals(3, newCache(100).capacity());
+    } finally {
+      System.clearProperty(property);
+    }
+    assertEquals(100, newCache(100).capacity());
+  }
+
+  /**
+   * Runs the garbage collector until an object that nothing refers to has been collected, and
+   * skips the calling test if it is not, because then the test cannot observe collection.
+   */
+  static void collectGarbage() {
+    WeakReference<Object> probe = new WeakReference<>(new Object());
+    for (int i = 0; i < 10 && probe.get() != null; i++) {
+      System.gc();
+    }
+    assumeTrue(probe.get() == null, "System.gc() did not collect an unreachable object");
+  }
+
+  /**
+   * Adds an entry whose key nothing else refers to, and uses it once.
+   *
+   * @param cache a cache with weak keys
+   * @return a reference to the key of the new entry
+   */
+  static WeakReference<Object> putUnreachableKey(BoundedCache<Object, String> cache) {
+    Object key = new Object();
+    cache.putIfAbsent(key, "unreachable");
+    assertEquals("unreachable", cache.get(key));
+    return new WeakReference<>(key);
+  }
+
+  @Test
+  void test_weakKeys() {
+    BoundedCache<Object, String> cache =
+        BoundedCache.builder(Metrics.Cache.ARGUMENT_LISTS).capacity(4).weakKeys().build();
+    // Weak keys are compared by identity.
+    String key = new String("key");
+    cache.putIfAbsent(key, "value");
+    assertEquals("value", cache.get(key));
+    assertNull(cache.get(new String("key")));
+    assertFalse(cache.containsKey(new String("key")));
+
+    // Fill the cache with an unreachable key between live ones, and use every entry once.
+    Object live2 = new Object();
+    Object live3 = new Object();
+    WeakReference<Object> unreachable = putUnreachableKey(cache);
+    cache.putIfAbsent(live2, "live2");
+    cache.putIfAbsent(live3, "live3");
+    assertEquals("live2", cache.get(live2));
+    assertEquals("live3", cache.get(live3));
+    assertEquals(4, cache.size());
+
+    collectGarbage();
+    // The cache does not keep its key from being collected.
+    assertNull(unreachable.get());
+    // The entry whose key was collected is evicted first, although it was used as often as the
+    // live entries and the clock reaches a live entry first.
+    Object added = new Object();
+    cache.putIfAbsent(added, "added");
+    assertEquals(4, cache.size());
+    assertEquals(Set.of(key, live2, live3, added), cache.keys());
+    assertEquals("value", cache.get(key));
+  }
+
+  @Test
+  void test_weakValues() {
+    BoundedCache<String, Object> cache =
+        BoundedCache.builder(Metrics.Cache.ARGUMENT_LISTS).capacity(4).weakValues().build();
+    Object value = new Object();
+    cache.putIfAbsent("kept", value);
+    cache.putIfAbsent("dropped", new Object());
+    collectGarbage();
+    assertFalse(cache.containsKey("dropped"));
+    assertNull(cache.get("dropped"));
+    assertTrue(cache.get("kept") == value);
+    assertEquals(Set.of("kept"), cache.keys());
+    // A collected value is replaced.
+    Object replacement = new Object();
+    assertTrue(cache.putIfAbsent("dropped", replacement) == replacement);
+  }
+
+  /**
+   * Adds an entry whose value is collected, and then replaces that value by the given one. The key
+   * of the entry is unreachable once this method returns.
+   *
+   * @param cache a cache with weak keys and weak values
+   * @param value the replacement value
+   */
+  static void putReplacedValue(BoundedCache<Object, Object> cache, Object value) {
+    Object key = new Object();
+    cache.putIfAbsent(key, new Object());
+    collectGarbage();
+    assertFalse(cache.containsKey(key));
+    assertTrue(cache.putIfAbsent(key, value) == value);
+    assertTrue(cache.get(key) == value);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void test_weakKeysAndValues() {
+    BoundedCache<Object, Object> cache =
+        BoundedCache.builder(Metrics.Cache.ARGUMENT_LISTS)
+            .capacity(2)
+            .weakKeys()
+            .weakValues()
+            .build();
+    Object value = new Object();
+    putReplacedValue(cache, value);
+    collectGarbage();
+    // Evicting the entry whose key was collected removes it from the map.
+    Object a = new Object();
+    Object b = new Object();
+    cache.putIfAbsent(a, a);
+    cache.putIfAbsent(b, b);
+    assertEquals(2, cache.size());
+    assertEquals(Set.of(a, b), cache.keys());
+  }
+
+  @Test
+  void test_concurrent() throws Exception {
+    BoundedCache<String, Integer> cache = newCache(64);
+    int numThreads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 10_000; i++) {
+                    String key = "k" + (i % 100);
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                      value = cache.putIfAbsent(key, i % 100);
+                    }
+                    assertEquals(Integer.valueOf(i % 100), value);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      assertTrue(cache.size() <= 64);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test code for the ClassIndex class. */
+public final class TestClassIndex {
+
+  /**
+   * Writes a jar file that contains empty entries with the given names.
+   *
+   * @param jar the jar file to write
+   * @param entryNames the names of the entries
+   * @throws IOException if there is trouble writing the file
+   */
+  static void writeJar(Path jar, String... entryNames) throws IOException {
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (String entryName : entryNames) {
+        out.putNextEntry(new JarEntry(entryName));
+      }
+    }
+  }
+
+  /**
+   * Creates an empty file, and any missing parent directories.
+   *
+   * @param file the file to create
+   * @throws IOException if there is trouble creating the file
+   */
+  static void touch(Path file) throws IOException {
+    Path parent = file.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(file, new byte[0]);
+  }
+
+  @Test
+  void test_build(@TempDir Path tmp) throws Exception {
+    Path jar1 = tmp.resolve("one.jar");
+    writeJar(jar1, "a/b/C.class", "a/b/C$Inner.class", "a/D.class", "META-INF/MANIFEST.MF", "x/");
+    Path jar2 = tmp.resolve("two.jar");
+    writeJar(jar2, "a/b/C.class", "a/b/E.class", "module-info.class");
+    Path dir = tmp.resolve("classes");
+    touch(dir.resolve("Top.class"));
+    touch(dir.resolve("a/b/F.class"));
+    touch(dir.resolve("p/q/r/G.class"));
+    touch(dir.resolve("p/q/r/README"));
+
+    List<String> classpath =
+        Arrays.asList(
+            jar1.toString(), jar2.toString(), dir.toString(), tmp.resolve("missing").toString());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      ClassIndex index = ClassIndex.build(classpath, executor);
+      assertEquals(7, index.size());
+      assertTrue(index.contains("a.b.C$Inner"));
+      assertFalse(index.contains("a.b.Missing"));
+      assertEquals(jar1.toString(), index.locate("a.b.C"));
+      assertEquals(jar2.toString(), index.locate("a.b.E"));
+      assertEquals(dir.toString(), index.locate("p.q.r.G"));
+      assertNull(index.locate("a.b.Missing"));
+      assertEquals(
+          Arrays.asList("a.b.C", "a.b.C$Inner", "a.b.E", "a.b.F"), index.classesInPackage("a.b"));
+      assertEquals(Collections.singletonList("Top"), index.classesInPackage(""));
+      assertEquals(Collections.emptyList(), index.classesInPackage("a.b.c"));
+      assertEquals(4, index.packages().size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_load(@TempDir Path tmp) throws Exception {
+    Path jar1 = tmp.resolve("one.jar");
+    writeJar(jar1, "a/C.class");
+    Path jar2 = tmp.resolve("two.jar");
+    writeJar(jar2, "b/D.class");
+    Path dir = tmp.resolve("classes");
+    touch(dir.resolve("c/E.class"));
+    List<String> classpath = Arrays.asList(jar1.toString(), jar2.toString(), dir.toString());
+    Path indexFile = tmp.resolve("classes.idx");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      ClassIndex index = ClassIndex.load(classpath, indexFile, executor);
+      assertEquals(0, index.numReused());
+      assertTrue(Files.exists(indexFile));
+      FileTime written = Files.getLastModifiedTime(indexFile);
+
+      // Nothing changed: both jars are reused, and the index file is not rewritten.
+      index = ClassIndex.load(classpath, indexFile, executor);
+      assertEquals(2, index.numReused());
+      assertEquals(3, index.size());
+      assertTrue(index.contains("a.C"));
+      assertTrue(index.contains("c.E"));
+      assertEquals(written, Files.getLastModifiedTime(indexFile));
+
+      // A changed jar is rescanned, and a directory is always rescanned.
+      writeJar(jar2, "b/D.class", "b/D2.class");
+      touch(dir.resolve("c/E2.class"));
+      index = ClassIndex.load(classpath, indexFile, executor);
+      assertEquals(1, index.numReused());
+      assertEquals(Arrays.asList("b.D", "b.D2"), index.classesInPackage("b"));
+      assertEquals(Arrays.asList("c.E", "c.E2"), index.classesInPackage("c"));
+
+      // A corrupt index file is rebuilt.
+      Files.write(indexFile, new byte[] {1, 2, 3});
+      index = ClassIndex.load(classpath, indexFile, executor);
+      assertEquals(0, index.numReused());
+      assertEquals(5, index.size());
+      assertEquals(2, ClassIndex.load(classpath, indexFile, executor).numReused());
+
+      // An index file whose counts are corrupt is rebuilt, rather than causing a huge allocation.
+      byte[] valid = Files.readAllBytes(indexFile);
+      int numNamesOffset = 12 + 2 + jar1.toString().getBytes(StandardCharsets.UTF_8).length + 17;
+      int[][] corruptions = {
+        {8, Integer.MAX_VALUE}, {8, -1}, {numNamesOffset, Integer.MAX_VALUE}, {numNamesOffset, -1}
+      };
+      for (int[] corruption : corruptions) {
+        byte[] corrupt = valid.clone();
+        ByteBuffer.wrap(corrupt).putInt(corruption[0], corruption[1]);
+        Files.write(indexFile, corrupt);
+        index = ClassIndex.load(classpath, indexFile, executor);
+        assertEquals(0, index.numReused());
+        assertEquals(5, index.size());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_oddClasspaths(@TempDir Path tmp) throws Exception {
+    Path jar = tmp.resolve("one.jar");
+    writeJar(jar, "a/C.class");
+    Path resource = tmp.resolve("resource.properties");
+    Files.write(resource, "key=value".getBytes(StandardCharsets.UTF_8));
+    Path truncated = tmp.resolve("truncated.jar");
+    byte[] contents = Files.readAllBytes(jar);
+    Files.write(truncated, Arrays.copyOf(contents, contents.length / 2));
+    // The jar is listed twice.
+    List<String> classpath =
+        Arrays.asList(jar.toString(), resource.toString(), truncated.toString(), jar.toString());
+    Path indexFile = tmp.resolve("classes.idx");
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      // A file that is not a jar file contains no classes.
+      ClassIndex index = ClassIndex.build(classpath, executor);
+      assertEquals(1, index.size());
+      assertEquals(jar.toString(), index.locate("a.C"));
+
+      index = ClassIndex.load(classpath, indexFile, executor);
+      assertEquals(1, index.size());
+      FileTime old = FileTime.fromMillis(0);
+      Files.setLastModifiedTime(indexFile, old);
+      // Nothing changed, so the index file is not rewritten, although the jar is listed twice.
+      index = ClassIndex.load(classpath, indexFile, executor);
+      assertEquals(4, index.numReused());
+      assertEquals(jar.toString(), index.locate("a.C"));
+      assertEquals(old, Files.getLastModifiedTime(indexFile));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_singleThread(@TempDir Path tmp) throws Exception {
+    // More nested subdirectories than threads, in several classpath directories.
+    Path dir1 = tmp.resolve("classes1");
+    touch(dir1.resolve("a/b/c/d/A.class"));
+    touch(dir1.resolve("e/B.class"));
+    touch(dir1.resolve("f/g/C.class"));
+    Path dir2 = tmp.resolve("classes2");
+    touch(dir2.resolve("h/i/D.class"));
+    List<String> classpath = Arrays.asList(dir1.toString(), dir2.toString());
+
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    ExecutorService caller = Executors.newSingleThreadExecutor();
+    try {
+      // Build on another thread, so that a deadlock fails the test rather than hanging it.
+      Future<ClassIndex> future = caller.submit(() -> ClassIndex.build(classpath, executor));
+      ClassIndex index = future.get(1, TimeUnit.MINUTES);
+      assertEquals(4, index.size());
+      assertEquals(dir1.toString(), index.locate("a.b.c.d.A"));
+      assertEquals(dir2.toString(), index.locate("h.i.D"));
+    } finally {
+      caller.shutdownNow();
+      executor.shutdownNow();
+    }
+  }
+}
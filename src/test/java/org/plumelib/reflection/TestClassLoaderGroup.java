@@ -0,0 +1,67 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/** Test code for the ClassLoaderGroup class. */
+public final class TestClassLoaderGroup {
+
+  /**
+   * Defines, in the given loader, an empty class that extends Object.
+   *
+   * @param loader the loader
+   * @param internalName the internal form of the name of the class
+   * @return the class
+   */
+  private static Class<?> define(ScopedClassLoader loader, String internalName) {
+    return loader.defineClassFromBuffer(
+        null, ByteBuffer.wrap(TestReflectionP.classFileBytes(internalName, "java/lang/Object")));
+  }
+
+  @Test
+  void test_packageName() {
+    assertEquals("java.lang", ClassLoaderGroup.packageName("java.lang.String"));
+    assertEquals("java.util", ClassLoaderGroup.packageName("java.util.Map$Entry"));
+    assertEquals("", ClassLoaderGroup.packageName("Foo"));
+    assertEquals("com.x", ClassLoaderGroup.packageName("[[Lcom.x.Y;"));
+    assertEquals("", ClassLoaderGroup.packageName("[LY;"));
+    assertEquals("", ClassLoaderGroup.packageName("[I"));
+  }
+
+  @Test
+  void test_forName() throws Exception {
+    try (ScopedClassLoader loaderA = new ScopedClassLoader();
+        ScopedClassLoader loaderB = new ScopedClassLoader()) {
+      Class<?> x = define(loaderA, "pluga/X");
+      Class<?> y = define(loaderB, "plugb/Y");
+      Class<?> inner = define(loaderB, "plugb/Outer$Inner");
+      ClassLoaderGroup group = new ClassLoaderGroup(Arrays.asList(loaderA, loaderB));
+
+      // The index is seeded from the packages that the loaders have defined.
+      assertTrue(group.lookup("pluga") == loaderA);
+      assertTrue(group.lookup("plugb") == loaderB);
+      assertTrue(group.lookup("plugb.sub") == loaderB);
+      assertNull(group.lookup("plugc"));
+
+      assertTrue(group.forName("pluga.X") == x);
+      assertTrue(group.forName("plugb.Y") == y);
+      assertTrue(group.forName("[Lplugb.Y;").getComponentType() == y);
+      assertTrue(group.forName("java.lang.String") == String.class);
+      assertThrows(ClassNotFoundException.class, () -> group.forName("plugc.Z"));
+
+      // A class in a new package is found, and the package is added to the index.
+      Class<?> z = define(loaderB, "plugc/Z");
+      assertTrue(group.forName("plugc.Z") == z);
+      assertTrue(group.lookup("plugc") == loaderB);
+
+      assertTrue(ReflectionP.classForName("plugb.Outer.Inner", group) == inner);
+      assertTrue(ReflectionP.classForName("int", group) == int.class);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Test code for the Classpath class. */
+public final class TestClasspath {
+
+  @Test
+  void test_addFirst() {
+    Classpath cp = new Classpath("x:y::z", ":");
+    assertTrue(cp.contains("y"));
+    assertFalse(cp.contains("w"));
+    assertTrue(cp.addFirst("a"));
+    assertTrue(cp.addFirst("b"));
+    assertFalse(cp.addFirst("a"));
+    assertFalse(cp.addFirst("x"));
+    assertEquals("b:a:x:y::z", cp.toString());
+    assertEquals(Arrays.asList("b", "a", "x", "y", "z"), cp.entries());
+
+    assertEquals(1, cp.addAllFirst(Arrays.asList("c", "b", "z")));
+    assertEquals("c:b:a:x:y::z", cp.toString());
+
+    Classpath empty = new Classpath("", ":");
+    assertEquals("", empty.toString());
+    empty.addAllFirst(Arrays.asList("a", "b"));
+    assertEquals("b:a", empty.toString());
+  }
+
+  @Test
+  void test_separators() {
+    Classpath cp = new Classpath("C:\\lib\\x.jar;C:\\classes", ";");
+    // Entries are compared without regard to the file separator.
+    assertTrue(cp.contains("C:/lib/x.jar"));
+    assertFalse(cp.addFirst("C:/classes"));
+    assertTrue(cp.addFirst("D:\\more"));
+    assertEquals("D:\\more;C:\\lib\\x.jar;C:\\classes", cp.toString());
+  }
+
+  @Test
+  void test_addToClasspath() {
+    String saved = System.getProperty("java.class.path");
+    try {
+      System.setProperty("java.class.path", "orig1" + File.pathSeparator + "orig2");
+      ReflectionP.addToClasspath("dir1");
+      ReflectionP.addToClasspath("orig2");
+      List<String> dirs = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        dirs.add("many" + i);
+      }
+      dirs.add("dir1");
+      ReflectionP.addToClasspath(dirs);
+      String cp = System.getProperty("java.class.path");
+      assertTrue(cp.startsWith(String.join(File.pathSeparator, "many999", "many998", "")));
+      assertTrue(cp.endsWith(String.join(File.pathSeparator, "many0", "dir1", "orig1", "orig2")));
+      assertEquals(1003, new Classpath(cp).entries().size());
+
+      // A change to the property by other code is noticed.
+      System.setProperty("java.class.path", "other");
+      ReflectionP.addToClasspath("dir1");
+      assertEquals("dir1" + File.pathSeparator + "other", System.getProperty("java.class.path"));
+
+      // The existing entries are written back with "/" as the file separator.
+      System.setProperty("java.class.path", "lib\\x.jar");
+      ReflectionP.addToClasspath("lib/x.jar");
+      assertEquals("lib\\x.jar", System.getProperty("java.class.path"));
+      ReflectionP.addToClasspath("dir\\2");
+      assertEquals(
+          "dir\\2" + File.pathSeparator + "lib/x.jar", System.getProperty("java.class.path"));
+    } finally {
+      if (saved != null) {
+        System.setProperty("java.class.path", saved);
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.Test;
+
+/** The counters are global, so each test compares two snapshots rather than resetting them. */
+public final class TestMetrics {
+
+  @Test
+  void test_operations() throws Exception {
+    Metrics.OperationSnapshot before =
+        Metrics.snapshot().operation(Metrics.Operation.CLASS_FOR_NAME);
+    ReflectionP.classForName("java.lang.String");
+    ReflectionP.classForName("java.util.Map.Entry");
+    assertThrows(ClassNotFoundException.class, () -> ReflectionP.classForName("a.b.Missing"));
+    ReflectionP.classForName("int"); // not counted
+    Metrics.OperationSnapshot after =
+        Metrics.snapshot().operation(Metrics.Operation.CLASS_FOR_NAME);
+    assertEquals(3, after.count() - before.count());
+    assertEquals(1, after.failures() - before.failures());
+    assertTrue(after.totalNanos() > before.totalNanos());
+    assertTrue(after.percentileNanos(50) > 0);
+    assertTrue(after.percentileNanos(50) <= after.percentileNanos(99));
+    assertThrows(IllegalArgumentException.class, () -> after.percentileNanos(101));
+  }
+
+  @Test
+  void test_caches() throws Exception {
+    String signature = "java.lang.Integer.compare(int, int)";
+    ReflectionP.methodForName(signature);
+    Metrics.CacheSnapshot before = Metrics.snapshot().cache(Metrics.Cache.ARGUMENT_LISTS);
+    ReflectionP.methodForName(signature);
+    ReflectionP.methodForName("java.lang.Integer.valueOf(java.lang.String, int)");
+    Metrics.CacheSnapshot after = Metrics.snapshot().cache(Metrics.Cache.ARGUMENT_LISTS);
+    assertTrue(after.hits() - before.hits() >= 1);
+    assertEquals(2, after.hits() + after.misses() - before.hits() - before.misses());
+    assertTrue(after.hitRate() > 0);
+  }
+
+  @Test
+  void test_maxExceptionsAvoided() throws Exception {
+    try (ScopedClassLoader loaderA = new ScopedClassLoader();
+        ScopedClassLoader loaderB = new ScopedClassLoader()) {
+      loaderB.defineClassFromBuffer(
+          null,
+          ByteBuffer.wrap(TestReflectionP.classFileBytes("metrics/Counted", "java/lang/Object")));
+      ClassLoaderGroup group = new ClassLoaderGroup(Arrays.asList(loaderA, loaderB));
+      long before = Metrics.snapshot().maxExceptionsAvoided();
+      group.forName("metrics.Counted");
+      // Without the index, loaderA would have been tried first, and might have thrown.
+      assertEquals(1, Metrics.snapshot().maxExceptionsAvoided() - before);
+    }
+  }
+
+  @Test
+  void test_mbean() throws Exception {
+    ObjectName name = Metrics.registerMBean();
+    assertEquals(name, Metrics.registerMBean());
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    assertTrue(server.isRegistered(name));
+    ReflectionP.classForName("java.lang.Object");
+    TabularData counters = (TabularData) server.getAttribute(name, "Counters");
+    CompositeData count = counters.get(new Object[] {"classForName.count"});
+    assertTrue((Long) count.get("value") > 0);
+    assertTrue(Metrics.snapshot().toString().contains("argumentLists.hits = "));
+  }
+}
@@ -0,0 +1,137 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.module.Configuration;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/** Test code for the ModuleLayerIndex class. */
+public final class TestModuleLayerIndex {
+
+  @Test
+  void test_forName() throws Exception {
+    ModuleLayerIndex index = ModuleLayerIndex.ofBoot();
+    Module base = String.class.getModule();
+    assertTrue(index.moduleOf("java.lang") == base);
+    assertNull(index.moduleOf("no.such.pkg"));
+
+    assertTrue(index.forName("java.lang.String") == String.class);
+    assertTrue(index.forName("java.util.Map$Entry") == Map.Entry.class);
+    assertTrue(index.forName("[Ljava.lang.String;") == String[].class);
+    assertTrue(index.forName("[[I") == int[][].class);
+    assertThrows(ClassNotFoundException.class, () -> index.forName("java.lang.NoSuchClass"));
+    assertThrows(ClassNotFoundException.class, () -> index.forName("no.such.pkg.C"));
+
+    assertTrue(ReflectionP.classForName("java.util.Map.Entry", index) == Map.Entry.class);
+    assertTrue(ReflectionP.classForName("int", index) == int.class);
+  }
+
+  @Test
+  void test_parentLayers() throws Exception {
+    ModuleLayer boot = ModuleLayer.boot();
+    Configuration cf =
+        boot.configuration().resolve(ModuleFinder.of(), ModuleFinder.of(), Collections.emptySet());
+    ModuleLayer child = boot.defineModulesWithOneLoader(cf, ClassLoader.getSystemClassLoader());
+
+    // The boot layer is indexed once, as the parent of the child layer.
+    ModuleLayerIndex index = new ModuleLayerIndex(Arrays.asList(child, boot));
+    assertEquals(boot.modules().size(), index.modules().size());
+    assertTrue(index.forName("java.lang.String") == String.class);
+  }
+
+  /**
+   * Returns a new child layer of the boot layer, with one module that contains the given packages
+   * and no classes.
+   *
+   * @param moduleName the name of the module
+   * @param packages the packages of the module
+   * @return a new layer that contains the module
+   */
+  static ModuleLayer layerWithModule(String moduleName, String... packages) {
+    ModuleDescriptor descriptor =
+        ModuleDescriptor.newModule(moduleName).packages(Set.of(packages)).build();
+    ModuleReference reference =
+        new ModuleReference(descriptor, null) {
+          @Override
+          public ModuleReader open() {
+            return new ModuleReader() {
+              @Override
+              public Optional<URI> find(String name) {
+                return Optional.empty();
+              }
+
+              @Override
+              public Stream<String> list() {
+                return Stream.empty();
+              }
+
+              @Override
+              public void close() {}
+            };
+          }
+        };
+    ModuleFinder finder =
+        new ModuleFinder() {
+          @Override
+          public Optional<ModuleReference> find(String name) {
+            return name.equals(moduleName) ? Optional.of(reference) : Optional.empty();
+          }
+
+          @Override
+          public Set<ModuleReference> findAll() {
+            return Set.of(reference);
+          }
+        };
+    ModuleLayer boot = ModuleLayer.boot();
+    Configuration cf = boot.configuration().resolve(finder, ModuleFinder.of(), Set.of(moduleName));
+    return boot.defineModulesWithOneLoader(cf, ClassLoader.getSystemClassLoader());
+  }
+
+  @Test
+  void test_report() {
+    ModuleLayerIndex index = ModuleLayerIndex.ofBoot();
+    Map<Module, SortedSet<String>> packages = index.packagesByModule();
+    Module base = String.class.getModule();
+    assertTrue(packages.get(base).contains("java.lang"));
+    assertTrue(packages.get(base).contains("java.util.concurrent"));
+    assertTrue(index.toString().contains("java.base (layer 0)" + System.lineSeparator()));
+    assertTrue(index.toString().contains(System.lineSeparator() + "  java.lang"));
+  }
+
+  @Test
+  void test_sameNameInTwoLayers() {
+    ModuleLayer first = layerWithModule("m", "p.shared", "p.first");
+    ModuleLayer second = layerWithModule("m", "p.shared", "p.second");
+    Module firstM = first.findModule("m").orElseThrow();
+    Module secondM = second.findModule("m").orElseThrow();
+
+    ModuleLayerIndex index = new ModuleLayerIndex(Arrays.asList(first, second));
+    assertTrue(index.moduleOf("p.shared") == firstM);
+    assertTrue(index.moduleOf("p.first") == firstM);
+    assertTrue(index.moduleOf("p.second") == secondM);
+
+    Map<Module, SortedSet<String>> packages = index.packagesByModule();
+    assertEquals(Set.of("p.first", "p.shared"), packages.get(firstM));
+    assertEquals(Set.of("p.second"), packages.get(secondM));
+    // The boot layer is indexed once, after the first layer.
+    assertEquals(ModuleLayer.boot().modules().size() + 2, packages.size());
+    String report = index.toString();
+    assertTrue(report.contains("m (layer 0)" + System.lineSeparator() + "  p.first"));
+    assertTrue(report.contains("m (layer 2)" + System.lineSeparator() + "  p.second"));
+  }
+}
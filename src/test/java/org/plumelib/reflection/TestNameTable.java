@@ -0,0 +1,154 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test code for the NameTable class. */
+public final class TestNameTable {
+
+  @Test
+  void test_writeAndOpen(@TempDir Path tmp) throws Exception {
+    NameTable.Writer writer = new NameTable.Writer();
+    assertEquals(0, writer.add("java.lang.String"));
+    assertEquals(1, writer.add("(ILjava/lang/String;)V"));
+    assertEquals(2, writer.add("[Ljava/util/Map$Entry;"));
+    assertEquals(0, writer.add("java.lang.String"));
+    assertEquals(3, writer.add("caf\u00e9"));
+    assertEquals(4, writer.add(""));
+    assertEquals(5, writer.size());
+
+    Path file = tmp.resolve("names.ntbl");
+    writer.write(file);
+    NameTable table = NameTable.open(file);
+    assertEquals(5, table.size());
+    assertEquals("java.lang.String", table.get(0));
+    assertEquals("(ILjava/lang/String;)V", table.get(1));
+    assertEquals("caf\u00e9", table.get(3));
+    assertEquals("", table.get(4));
+    assertEquals(5, table.length(3));
+    assertEquals(0, table.length(4));
+
+    assertEquals(0, table.lookup("java.lang.String"));
+    assertEquals(2, table.lookup("[Ljava/util/Map$Entry;"));
+    assertEquals(3, table.lookup("caf\u00e9"));
+    assertEquals(4, table.lookup(""));
+    assertEquals(-1, table.lookup("java.lang.Strin"));
+    assertEquals(-1, table.lookup("caf\u00e8"));
+
+    // The bytes of a name are read in place.
+    ByteBuffer bytes = table.bytes();
+    byte[] expected = "[Ljava/util/Map$Entry;".getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], bytes.get(table.offset(2) + i));
+    }
+    assertTrue(bytes.isReadOnly());
+    byte[] key = "xx(ILjava/lang/String;)Vxx".getBytes(StandardCharsets.UTF_8);
+    assertEquals(1, table.lookup(ByteBuffer.wrap(key), 2, key.length - 4));
+    assertEquals(-1, table.lookup(ByteBuffer.wrap(key), 0, key.length));
+
+    assertTrue(table.isBinaryName(0));
+    assertFalse(table.isFieldDescriptor(0));
+    assertTrue(table.isMethodDescriptor(1));
+    assertFalse(table.isBinaryName(1));
+    assertTrue(table.isFieldDescriptor(2));
+    assertFalse(table.isBinaryName(3));
+
+    assertThrows(IndexOutOfBoundsException.class, () -> table.get(5));
+    assertThrows(IndexOutOfBoundsException.class, () -> table.offset(-1));
+  }
+
+  @Test
+  void test_large(@TempDir Path tmp) throws Exception {
+    NameTable.Writer writer = new NameTable.Writer();
+    int n = 50_000;
+    for (int i = 0; i < n; i++) {
+      assertEquals(i, writer.add("com.example.pkg" + (i % 100) + ".Class" + i));
+    }
+    Path file = tmp.resolve("names.ntbl");
+    writer.write(file);
+    NameTable table = NameTable.open(file);
+    assertEquals(n, table.size());
+    for (int i = 0; i < n; i++) {
+      String name = "com.example.pkg" + (i % 100) + ".Class" + i;
+      assertEquals(i, table.lookup(name));
+      assertEquals(name, table.get(i));
+      assertTrue(table.isBinaryName(i));
+    }
+    assertEquals(-1, table.lookup("com.example.pkg0.Class1"));
+  }
+
+  @Test
+  void test_malformed(@TempDir Path dir) throws Exception {
+    Path notATable = dir.resolve("not-a-table");
+    Files.write(notATable, "not a name table file".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, () -> NameTable.open(notATable));
+
+    Path truncated = dir.resolve("truncated");
+    new NameTable.Writer().write(truncated);
+    assertEquals(0, NameTable.open(truncated).size());
+    NameTable.Writer writer = new NameTable.Writer();
+    writer.add("java.lang.Object");
+    writer.write(truncated);
+    byte[] contents = Files.readAllBytes(truncated);
+    Files.write(truncated, Arrays.copyOf(contents, contents.length - 1));
+    assertThrows(IOException.class, () -> NameTable.open(truncated));
+
+    assertThrows(IOException.class, () -> NameTable.open(dir.resolve("missing")));
+
+    // Two strings: the offsets start at byte 20, the hashes at 32, and the 128 slots at 40.
+    Path valid = dir.resolve("valid");
+    writer.add("int");
+    writer.write(valid);
+    byte[] good = Files.readAllBytes(valid);
+    assertEquals(2, NameTable.open(valid).size());
+    Path corrupt = dir.resolve("corrupt");
+
+    // Every slot of the hash index is used, so a failed lookup would never end.
+    ByteBuffer allSlotsUsed = ByteBuffer.wrap(good.clone());
+    for (int slot = 0; slot < 128; slot++) {
+      allSlotsUsed.putInt(40 + 4 * slot, 1);
+    }
+    Files.write(corrupt, allSlotsUsed.array());
+    assertThrows(IOException.class, () -> NameTable.open(corrupt));
+
+    // A slot holds an ID that is not in the table.
+    writeWithInt(corrupt, good, 40 + 4 * 7, 3);
+    assertThrows(IOException.class, () -> NameTable.open(corrupt));
+    writeWithInt(corrupt, good, 40 + 4 * 7, -1);
+    assertThrows(IOException.class, () -> NameTable.open(corrupt));
+
+    // The first offset is not 0.
+    writeWithInt(corrupt, good, 20, 1);
+    assertThrows(IOException.class, () -> NameTable.open(corrupt));
+    // The offsets decrease.
+    writeWithInt(corrupt, good, 24, 1000);
+    assertThrows(IOException.class, () -> NameTable.open(corrupt));
+    // The last offset is not the length of the strings section.
+    writeWithInt(corrupt, good, 28, 5);
+    assertThrows(IOException.class, () -> NameTable.open(corrupt));
+  }
+
+  /**
+   * Writes a copy of the given contents, with one int replaced, to a file.
+   *
+   * @param file the file to write
+   * @param contents the contents of a name table file
+   * @param index the index of the int to replace
+   * @param value the new value of the int
+   * @throws IOException if there is trouble writing the file
+   */
+  static void writeWithInt(Path file, byte[] contents, int index, int value) throws IOException {
+    Files.write(file, ByteBuffer.wrap(contents.clone()).putInt(index, value).array());
+  }
+}
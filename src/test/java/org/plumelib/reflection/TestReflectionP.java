@@ -6,12 +6,33 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /** Test code for the ReflectionP class. */
 public final class TestReflectionP {
@@ -20,6 +41,113 @@ public final class TestReflectionP {
     static class InnerInner {}
   }
 
+  /** A class that tests define from its class file. */
+  static class ToDefine {}
+
+  /** A class that tests define from a memory-mapped class file. */
+  static class ToDefineMapped {}
+
+  /** A class that tests define from a buffer. */
+  static class ToDefineFromBuffer {}
+
+  /** A class whose constant pool contains long and double entries. */
+  static class WithWideConstants {
+    /** A long constant. */
+    static final long LONG = 1L << 40;
+
+    /** A double constant. */
+    static final double DOUBLE = Math.PI;
+  }
+
+  /**
+   * Returns the pathname of the class file of the given class, which must have been loaded from a
+   * directory.
+   *
+   * @param c a class
+   * @return the pathname of the class file of {@code c}
+   */
+  static String classFilePathname(Class<?> c) {
+    String simpleFilename = c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class";
+    URL url = c.getResource(simpleFilename);
+    if (url == null) {
+      throw new Error("No class file for " + c);
+    }
+    try {
+      return Path.of(url.toURI()).toString();
+    } catch (URISyntaxException e) {
+      throw new Error(e);
+    }
+  }
+
+  /** An interface with a default method and a static method, used by {@link #test_findMethod}. */
+  interface Greeter {
+    default String greet() {
+      return "hello";
+    }
+
+    static Greeter create() {
+      return new Derived();
+    }
+  }
+
+  /** A superclass, used by {@link #test_findMethod}. */
+  static class Base implements Greeter {
+    private int secret(int x) {
+      return x;
+    }
+
+    String describe(Object o) {
+      return "Base" + o + secret(1);
+    }
+  }
+
+  /** A subclass, used by {@link #test_findMethod}. */
+  static class Derived extends Base {
+    @Override
+    String describe(Object o) {
+      return "Derived" + o;
+    }
+  }
+
+  /** A subinterface that overrides a default method, used by {@link #test_findMethod}. */
+  interface LoudGreeter extends Greeter {
+    @Override
+    default String greet() {
+      return "HELLO";
+    }
+  }
+
+  /**
+   * A class that inherits a default method from its superclass and a more specific one from an
+   * interface, used by {@link #test_findMethod}.
+   */
+  static class LoudDerived extends Base implements LoudGreeter {}
+
+  /**
+   * A class whose direct superinterfaces are an interface and its subinterface, used by {@link
+   * #test_findMethod}.
+   */
+  static class Diamond implements Greeter, LoudGreeter {}
+
+  /** Overloaded methods, used by {@link #test_findMethodForArguments}. */
+  static class Overloads {
+    void m(long x) {}
+
+    void m(double x) {}
+
+    void m(Integer x) {}
+
+    void m(Object x) {}
+
+    void m(String x) {}
+
+    void m(int... xs) {}
+
+    void n(Number x, Integer y) {}
+
+    void n(Integer x, Number y) {}
+  }
+
   @Test
   void test_classForName() {
     try {
@@ -56,6 +184,29 @@ public final class TestReflectionP {
     assertEquals("TestReflectionP.Inner", ReflectionP.nameWithoutPackage(Inner.class));
     assertEquals(
         "TestReflectionP.Inner.InnerInner", ReflectionP.nameWithoutPackage(Inner.InnerInner.class));
+    // The result is memoized.
+    assertTrue(
+        ReflectionP.nameWithoutPackage(Inner.InnerInner.class)
+            == ReflectionP.nameWithoutPackage(Inner.InnerInner.class));
+  }
+
+  @Test
+  void test_fqBinaryName() {
+    assertEquals("int", ReflectionP.fqBinaryName(int.class));
+    assertEquals("java.lang.String", ReflectionP.fqBinaryName(String.class));
+    assertEquals(
+        "java.util.Map$Entry[][]", ReflectionP.fqBinaryName(java.util.Map.Entry[][].class));
+  }
+
+  @Test
+  void test_fieldDescriptor() {
+    assertEquals("I", ReflectionP.fieldDescriptor(int.class));
+    assertEquals("Ljava/lang/String;", ReflectionP.fieldDescriptor(String.class));
+    assertEquals(
+        "[Ljava/util/Map$Entry;", ReflectionP.fieldDescriptor(java.util.Map.Entry[].class));
+    assertEquals(
+        Signatures.binaryNameToFieldDescriptor(ReflectionP.fqBinaryName(Inner[].class)),
+        ReflectionP.fieldDescriptor(Inner[].class));
   }
 
   @Test
@@ -173,6 +324,68 @@ public final class TestReflectionP {
         Error.class, () -> ReflectionP.leastUpperBound(List.of(Integer.valueOf(1), "a string")));
   }
 
+  /** A class with a private field, used by {@link #test_getPrivateField}. */
+  @SuppressWarnings({"UnusedVariable", "FieldCanBeFinal"}) // read reflectively
+  private static class WithSecret {
+    /** A private field. */
+    private int secret;
+
+    /**
+     * Creates a WithSecret.
+     *
+     * @param secret the value of the field
+     */
+    WithSecret(int secret) {
+      this.secret = secret;
+    }
+  }
+
+  /** A subclass, so that getPrivateField searches the superclass. */
+  private static class InheritsSecret extends WithSecret {
+    /**
+     * Creates an InheritsSecret.
+     *
+     * @param secret the value of the field
+     */
+    InheritsSecret(int secret) {
+      super(secret);
+    }
+  }
+
+  @Test
+  void test_getPrivateField() throws Exception {
+    assertEquals(1, ReflectionP.getPrivateField(new WithSecret(1), "secret"));
+    assertEquals(2, ReflectionP.getPrivateField(new InheritsSecret(2), "secret"));
+    // The second lookup uses the cached field, and reads the value of the new object.
+    assertEquals(3, ReflectionP.getPrivateField(new InheritsSecret(3), "secret"));
+    assertThrows(
+        NoSuchFieldException.class, () -> ReflectionP.getPrivateField(new WithSecret(1), "none"));
+    assertThrows(
+        NoSuchFieldException.class, () -> ReflectionP.getPrivateField(new Object(), "secret"));
+
+    int numThreads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<@Nullable Object>> futures = new ArrayList<>();
+      for (int i = 0; i < numThreads; i++) {
+        Object o = (i % 2 == 0) ? new WithSecret(i) : new InheritsSecret(i);
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return ReflectionP.getPrivateField(o, "secret");
+                }));
+      }
+      start.countDown();
+      for (int i = 0; i < numThreads; i++) {
+        assertEquals(i, futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   void test_methodForName() {
     // public static Method methodForName(String methodname) throws ClassNotFoundException
@@ -188,6 +401,13 @@ public final class TestReflectionP {
               "org.plumelib.reflection.ReflectionP.methodForName"
                   + "(java.lang.String,java.lang.String,java.lang.Class[])"));
       assertNotNull(ReflectionP.methodForName("java.lang.Math.min(int,int)"));
+      // Inherited from a superclass and from an interface, respectively.
+      assertEquals(
+          Object.class,
+          ReflectionP.methodForName("java.lang.Integer.notify()").getDeclaringClass());
+      assertEquals(
+          java.util.Collection.class,
+          ReflectionP.methodForName("java.util.ArrayList.stream()").getDeclaringClass());
     } catch (Exception e) {
       e.printStackTrace();
       throw new Error(e);
@@ -202,4 +422,378 @@ public final class TestReflectionP {
       throw new Error(e);
     }
   }
+
+  @Test
+  void test_findMethod() throws NoSuchMethodException {
+    assertEquals(
+        Derived.class,
+        ReflectionP.findMethod(Derived.class, "describe", Object.class).getDeclaringClass());
+    assertEquals(
+        Base.class,
+        ReflectionP.findMethod(Base.class, "describe", Object.class).getDeclaringClass());
+    // Private methods of a superclass are not inherited.
+    assertEquals(
+        Base.class, ReflectionP.findMethod(Base.class, "secret", int.class).getDeclaringClass());
+    assertThrows(
+        NoSuchMethodException.class,
+        () -> ReflectionP.findMethod(Derived.class, "secret", int.class));
+    // A default method of an interface.
+    assertEquals(
+        Greeter.class, ReflectionP.findMethod(Derived.class, "greet").getDeclaringClass());
+    assertEquals(
+        Object.class, ReflectionP.findMethod(Derived.class, "hashCode").getDeclaringClass());
+    // The default method of a subinterface overrides that of its superinterface, whatever the
+    // order in which they are inherited.
+    assertEquals(
+        LoudGreeter.class,
+        ReflectionP.findMethod(LoudDerived.class, "greet").getDeclaringClass());
+    assertEquals(
+        LoudGreeter.class, ReflectionP.findMethod(Diamond.class, "greet").getDeclaringClass());
+    // Static methods of interfaces are not inherited.
+    assertNotNull(ReflectionP.findMethod(Greeter.class, "create"));
+    assertThrows(
+        NoSuchMethodException.class, () -> ReflectionP.findMethod(Derived.class, "create"));
+    // The parameter types must match exactly.
+    assertThrows(
+        NoSuchMethodException.class,
+        () -> ReflectionP.findMethod(Derived.class, "describe", String.class));
+    assertThrows(
+        NoSuchMethodException.class, () -> ReflectionP.findMethod(Derived.class, "describe"));
+    // Each call returns a new Method object.
+    assertTrue(
+        ReflectionP.findMethod(Derived.class, "greet")
+            != ReflectionP.findMethod(Derived.class, "greet"));
+  }
+
+  @Test
+  void test_isMethodInvocationConvertible() {
+    // Identity and widening primitive conversions.
+    assertTrue(ReflectionP.isMethodInvocationConvertible(int.class, int.class));
+    assertTrue(ReflectionP.isMethodInvocationConvertible(byte.class, double.class));
+    assertTrue(ReflectionP.isMethodInvocationConvertible(char.class, int.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(char.class, short.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(long.class, int.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(boolean.class, int.class));
+    // Boxing, optionally followed by widening reference conversion.
+    assertTrue(ReflectionP.isMethodInvocationConvertible(int.class, Integer.class));
+    assertTrue(ReflectionP.isMethodInvocationConvertible(int.class, Number.class));
+    assertTrue(ReflectionP.isMethodInvocationConvertible(int.class, Comparable.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(int.class, Long.class));
+    // Unboxing, optionally followed by widening primitive conversion.
+    assertTrue(ReflectionP.isMethodInvocationConvertible(Integer.class, int.class));
+    assertTrue(ReflectionP.isMethodInvocationConvertible(Integer.class, long.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(Integer.class, short.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(Number.class, int.class));
+    // Reference types.  Repeated, to exercise memoization.
+    for (int i = 0; i < 2; i++) {
+      assertTrue(ReflectionP.isMethodInvocationConvertible(ArrayList.class, List.class));
+      assertTrue(!ReflectionP.isMethodInvocationConvertible(List.class, ArrayList.class));
+      assertTrue(ReflectionP.isMethodInvocationConvertible(String[].class, Object[].class));
+    }
+    // The null type.
+    assertTrue(ReflectionP.isMethodInvocationConvertible(null, String.class));
+    assertTrue(!ReflectionP.isMethodInvocationConvertible(null, int.class));
+  }
+
+  /**
+   * Returns the parameter types of the method that {@link ReflectionP#findMethodForArguments}
+   * chooses for a call to {@code Overloads.m} with arguments of the given types.
+   *
+   * @param argTypes the types of the arguments
+   * @return the parameter types of the chosen method, separated by commas
+   */
+  private static String chooseM(@Nullable Class<?>... argTypes) {
+    try {
+      Method m = ReflectionP.findMethodForArguments(Overloads.class, "m", argTypes);
+      StringJoiner result = new StringJoiner(",");
+      for (Class<?> paramType : m.getParameterTypes()) {
+        result.add(paramType.getSimpleName());
+      }
+      return result.toString();
+    } catch (NoSuchMethodException e) {
+      throw new Error(e);
+    }
+  }
+
+  @Test
+  void test_findMethodForArguments() {
+    // Phase 1: no boxing.
+    assertEquals("long", chooseM(int.class));
+    assertEquals("long", chooseM(long.class));
+    assertEquals("double", chooseM(float.class));
+    assertEquals("Integer", chooseM(Integer.class));
+    assertEquals("String", chooseM(String.class));
+    assertEquals("Object", chooseM(List.class));
+    // The null literal: String is more specific than Object and Integer is unrelated to String.
+    assertThrows(
+        NoSuchMethodException.class,
+        () -> ReflectionP.findMethodForArguments(Overloads.class, "m", (Class<?>) null));
+    // Phase 2: boxing and unboxing.
+    assertEquals("Object", chooseM(boolean.class));
+    // Phase 3: variable arity.
+    assertEquals("int[]", chooseM());
+    assertEquals("int[]", chooseM(int.class, int.class));
+    assertEquals("int[]", chooseM(Integer.class, short.class, int.class));
+    assertThrows(
+        NoSuchMethodException.class,
+        () -> ReflectionP.findMethodForArguments(Overloads.class, "m", int.class, long.class));
+    // Ambiguity.
+    assertThrows(
+        NoSuchMethodException.class,
+        () ->
+            ReflectionP.findMethodForArguments(Overloads.class, "n", Integer.class, Integer.class));
+    assertThrows(
+        NoSuchMethodException.class,
+        () -> ReflectionP.findMethodForArguments(Overloads.class, "nonexistent"));
+  }
+
+  /**
+   * Returns the value for the given key, which must be present in the map.
+   *
+   * @param <T> the type of the resolved values
+   * @param map a map from names to resolutions
+   * @param key a name
+   * @return the resolution of the given name
+   */
+  private static <T> Resolution<T> getResolution(Map<String, Resolution<T>> map, String key) {
+    Resolution<T> result = map.get(key);
+    if (result == null) {
+      throw new Error("No resolution for " + key);
+    }
+    return result;
+  }
+
+  @Test
+  void test_methodsForNames() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Map<String, Resolution<Method>> result =
+          ReflectionP.methodsForNames(
+              List.of(
+                  "java.lang.Math.min(int,int)",
+                  "java.lang.Math.max(int, int)",
+                  "java.lang.Math.min(int,int)",
+                  "java.util.ArrayList.stream()",
+                  "java.lang.Math.nonexistent(int,int)",
+                  "com.example.Nonexistent.m()",
+                  "java.lang.Math.min(com.example.Nonexistent)",
+                  "malformed"),
+              executor);
+      // Duplicates are removed.
+      assertEquals(7, result.size());
+      assertEquals("min", getResolution(result, "java.lang.Math.min(int,int)").get().getName());
+      assertEquals("max", getResolution(result, "java.lang.Math.max(int, int)").get().getName());
+      assertEquals(
+          java.util.Collection.class,
+          getResolution(result, "java.util.ArrayList.stream()").get().getDeclaringClass());
+      assertTrue(
+          getResolution(result, "java.lang.Math.nonexistent(int,int)").failure()
+              instanceof NoSuchMethodException);
+      assertTrue(
+          getResolution(result, "com.example.Nonexistent.m()").failure()
+              instanceof ClassNotFoundException);
+      assertTrue(
+          getResolution(result, "java.lang.Math.min(com.example.Nonexistent)").failure()
+              instanceof ClassNotFoundException);
+      assertTrue(getResolution(result, "malformed").failure() instanceof IllegalArgumentException);
+      assertThrows(IllegalStateException.class, () -> getResolution(result, "malformed").get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_defineClassFromFile_concurrent() throws Exception {
+    String pathname = classFilePathname(ToDefine.class);
+    int numThreads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Class<?>>> futures = new ArrayList<>();
+      for (int i = 0; i < numThreads; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return ReflectionP.defineClassFromFile(ToDefine.class.getName(), pathname);
+                }));
+      }
+      start.countDown();
+      Class<?> first = futures.get(0).get();
+      assertEquals(ToDefine.class.getName(), first.getName());
+      // The class was defined by a different loader than the one that loaded this test.
+      assertTrue(first != ToDefine.class);
+      for (Future<Class<?>> future : futures) {
+        assertTrue(future.get() == first);
+      }
+      // A later call returns the same class, without reading the file.
+      Class<?> again = ReflectionP.defineClassFromFile(ToDefine.class.getName(), "/nonexistent");
+      assertTrue(again == first);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_defineClassFromMappedFile() throws Exception {
+    String pathname = classFilePathname(ToDefineMapped.class);
+    Class<?> c = ReflectionP.defineClassFromMappedFile(ToDefineMapped.class.getName(), pathname);
+    assertEquals(ToDefineMapped.class.getName(), c.getName());
+    assertTrue(c != ToDefineMapped.class);
+    String name = ToDefineMapped.class.getName();
+    assertTrue(ReflectionP.defineClassFromMappedFile(name, pathname) == c);
+    assertThrows(
+        FileNotFoundException.class,
+        () -> ReflectionP.defineClassFromMappedFile(null, "/nonexistent/Nonexistent.class"));
+  }
+
+  @Test
+  void test_defineClassFromBuffer() throws Exception {
+    byte[] bytes = Files.readAllBytes(Path.of(classFilePathname(ToDefineFromBuffer.class)));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    Class<?> c = ReflectionP.defineClassFromBuffer(ToDefineFromBuffer.class.getName(), buffer);
+    assertEquals(ToDefineFromBuffer.class.getName(), c.getName());
+    assertEquals(buffer.limit(), buffer.position());
+
+    ByteBuffer second = ByteBuffer.wrap(bytes);
+    assertTrue(ReflectionP.defineClassFromBuffer(ToDefineFromBuffer.class.getName(), second) == c);
+    assertEquals(0, second.position());
+  }
+
+  /**
+   * Returns the contents of a minimal class file that declares a public class with no members.
+   *
+   * @param internalName the internal form of the name of the class, such as "a/b/C"
+   * @param superName the internal form of the name of the superclass
+   * @return the contents of the class file
+   */
+  static byte[] classFileBytes(String internalName, String superName) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0); // minor version
+      out.writeShort(52); // major version: Java 8
+      out.writeShort(5); // constant pool count, plus 1
+      out.writeByte(1); // #1: Utf8
+      out.writeUTF(internalName);
+      out.writeByte(7); // #2: Class #1
+      out.writeShort(1);
+      out.writeByte(1); // #3: Utf8
+      out.writeUTF(superName);
+      out.writeByte(7); // #4: Class #3
+      out.writeShort(3);
+      out.writeShort(0x0021); // ACC_PUBLIC | ACC_SUPER
+      out.writeShort(2); // this_class
+      out.writeShort(4); // super_class
+      out.writeShort(0); // interfaces
+      out.writeShort(0); // fields
+      out.writeShort(0); // methods
+      out.writeShort(0); // attributes
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Test
+  void test_defineClasses_directory(@TempDir Path dir) throws Exception {
+    Path pkg = Files.createDirectories(dir.resolve("batchdir"));
+    // In order of binary name, each class precedes its superclass, so defining it must be retried.
+    Files.write(pkg.resolve("A.class"), classFileBytes("batchdir/A", "batchdir/B"));
+    Files.write(pkg.resolve("B.class"), classFileBytes("batchdir/B", "batchdir/C"));
+    Files.write(pkg.resolve("C.class"), classFileBytes("batchdir/C", "java/lang/Object"));
+    Files.write(pkg.resolve("Orphan.class"), classFileBytes("batchdir/Orphan", "batchdir/None"));
+    Files.write(pkg.resolve("Bad.class"), new byte[] {1, 2, 3});
+    Files.write(dir.resolve("module-info.class"), new byte[] {1, 2, 3});
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Map<String, Resolution<Class<?>>> result =
+          ReflectionP.defineClasses(dir.toString(), executor);
+      assertEquals(
+          Arrays.asList(
+              "batchdir.A", "batchdir.B", "batchdir.Bad", "batchdir.C", "batchdir.Orphan"),
+          new ArrayList<>(result.keySet()));
+      Class<?> a = getResolution(result, "batchdir.A").get();
+      Class<?> b = getResolution(result, "batchdir.B").get();
+      Class<?> c = getResolution(result, "batchdir.C").get();
+      assertTrue(a.getSuperclass() == b);
+      assertTrue(b.getSuperclass() == c);
+      assertTrue(c.getSuperclass() == Object.class);
+      assertTrue(
+          getResolution(result, "batchdir.Orphan").failure() instanceof NoClassDefFoundError);
+      assertTrue(getResolution(result, "batchdir.Bad").failure() instanceof ClassFormatError);
+
+      // Defining the same classes again returns the classes already defined.
+      result = ReflectionP.defineClasses(dir.toString(), executor);
+      assertTrue(getResolution(result, "batchdir.A").get() == a);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_defineClasses_jar(@TempDir Path tmp) throws Exception {
+    Path jar = tmp.resolve("defineClasses.jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new JarEntry("batchjar/Sub.class"));
+      out.write(classFileBytes("batchjar/Sub", "batchjar/Super"));
+      out.putNextEntry(new JarEntry("batchjar/Super.class"));
+      out.write(classFileBytes("batchjar/Super", "java/lang/Object"));
+      out.putNextEntry(new JarEntry("META-INF/versions/11/batchjar/Super.class"));
+      out.write(new byte[] {1, 2, 3});
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Map<String, Resolution<Class<?>>> result =
+          ReflectionP.defineClasses(jar.toString(), executor);
+      assertEquals(
+          Arrays.asList("batchjar.Sub", "batchjar.Super"), new ArrayList<>(result.keySet()));
+      assertTrue(
+          getResolution(result, "batchjar.Sub").get().getSuperclass()
+              == getResolution(result, "batchjar.Super").get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_defineClassFromFile_derivedName(@TempDir Path dir) throws Exception {
+    // The file name need not match the class name.
+    Path file = dir.resolve("Anything.class");
+    Files.write(file, classFileBytes("derivedname/Caf\u00e9", "java/lang/Object"));
+    Class<?> c = ReflectionP.defineClassFromFile(file.toString());
+    assertEquals("derivedname.Caf\u00e9", c.getName());
+    assertTrue(ReflectionP.defineClassFromFile(file.toString()) == c);
+    assertTrue(ReflectionP.defineClassFromFile(null, file.toString()) == c);
+
+    Path truncated = dir.resolve("Truncated.class");
+    byte[] bytes = classFileBytes("derivedname/Truncated", "java/lang/Object");
+    Files.write(truncated, Arrays.copyOf(bytes, 20));
+    assertThrows(
+        ClassFormatError.class, () -> ReflectionP.defineClassFromFile(truncated.toString()));
+
+    // The constant pool of a compiled class contains long and double entries, among others.
+    ByteBuffer buffer =
+        ByteBuffer.wrap(Files.readAllBytes(Path.of(classFilePathname(WithWideConstants.class))));
+    assertEquals(WithWideConstants.class.getName(), ClassFiles.thisClassName(buffer));
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  void test_defineHiddenClassFromFile(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("Hidden.class");
+    Files.write(file, classFileBytes("org/plumelib/reflection/Hidden", "java/lang/Object"));
+    Class<?> c1 = ReflectionP.defineHiddenClassFromFile(MethodHandles.lookup(), file.toString());
+    Class<?> c2 = ReflectionP.defineHiddenClassFromFile(MethodHandles.lookup(), file.toString());
+    assertTrue(c1.isHidden());
+    assertTrue(c1.getName().startsWith("org.plumelib.reflection.Hidden/"));
+    // Each call defines a new class.
+    assertTrue(c1 != c2);
+    assertThrows(ClassNotFoundException.class, () -> Class.forName(c1.getName()));
+  }
 }
@@ -0,0 +1,128 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test code for the ResolutionEvents class. */
+public final class TestResolutionEvents {
+
+  /** An operation that may throw any exception. */
+  @FunctionalInterface
+  interface Action {
+    /**
+     * Performs the operation.
+     *
+     * @throws Exception if the operation fails
+     */
+    void run() throws Exception;
+  }
+
+  /**
+   * Performs an action while recording the given event, and returns the events recorded.
+   *
+   * @param eventName the name of the event to record
+   * @param action the action to perform
+   * @return the events named {@code eventName} that the current thread committed
+   * @throws Exception if the action or the recording fails
+   */
+  static List<RecordedEvent> record(String eventName, Action action) throws Exception {
+    Path file = Files.createTempFile("events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(eventName).withoutThreshold();
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(file);
+    }
+    List<RecordedEvent> result = new ArrayList<>();
+    long threadId = Thread.currentThread().getId();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      RecordedThread thread = event.getThread();
+      if (thread != null && thread.getJavaThreadId() == threadId) {
+        result.add(event);
+      }
+    }
+    Files.delete(file);
+    return result;
+  }
+
+  @Test
+  void test_classForName() throws Exception {
+    List<RecordedEvent> events =
+        record(
+            "org.plumelib.reflection.ClassForName",
+            () -> {
+              ReflectionP.classForName("java.lang.String");
+              ReflectionP.classForName("java.util.Map.Entry");
+              assertThrows(
+                  ClassNotFoundException.class, () -> ReflectionP.classForName("a.b.Missing"));
+              // A primitive type is not recorded.
+              ReflectionP.classForName("int");
+            });
+    assertEquals(3, events.size());
+
+    assertEquals("java.lang.String", events.get(0).getString("className"));
+    assertTrue(events.get(0).getBoolean("found"));
+    assertEquals(0, events.get(0).getInt("nestedClassRetries"));
+
+    assertEquals("java.util.Map.Entry", events.get(1).getString("className"));
+    assertTrue(events.get(1).getBoolean("found"));
+    assertEquals(1, events.get(1).getInt("nestedClassRetries"));
+
+    assertEquals("a.b.Missing", events.get(2).getString("className"));
+    assertFalse(events.get(2).getBoolean("found"));
+    assertEquals(2, events.get(2).getInt("nestedClassRetries"));
+  }
+
+  @Test
+  void test_methodForName() throws Exception {
+    String signature = "java.lang.Integer.toString(int, int)";
+    List<RecordedEvent> events =
+        record(
+            "org.plumelib.reflection.MethodForName",
+            () -> {
+              ReflectionP.methodForName(signature);
+              ReflectionP.methodForName(signature);
+              assertThrows(
+                  NoSuchMethodException.class,
+                  () -> ReflectionP.methodForName("java.lang.Integer.noSuchMethod()"));
+            });
+    assertEquals(3, events.size());
+    assertEquals(signature, events.get(0).getString("method"));
+    assertTrue(events.get(0).getBoolean("found"));
+    // The argument list was resolved by the first call, if not by an earlier test.
+    assertTrue(events.get(1).getBoolean("argumentCacheHit"));
+    assertFalse(events.get(2).getBoolean("found"));
+  }
+
+  @Test
+  void test_defineClass(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("Recorded.class");
+    Files.write(file, TestReflectionP.classFileBytes("recorded/Recorded", "java/lang/Object"));
+    List<RecordedEvent> events =
+        record(
+            "org.plumelib.reflection.DefineClass",
+            () -> {
+              ReflectionP.defineClassFromFile(file.toString());
+              ReflectionP.defineClassFromFile("recorded.Recorded", "/nonexistent");
+            });
+    assertEquals(2, events.size());
+    assertEquals("recorded.Recorded", events.get(0).getString("className"));
+    assertFalse(events.get(0).getBoolean("alreadyDefined"));
+    assertEquals("recorded.Recorded", events.get(1).getString("className"));
+    assertTrue(events.get(1).getBoolean("alreadyDefined"));
+  }
+}
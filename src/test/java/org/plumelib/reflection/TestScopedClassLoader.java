@@ -0,0 +1,138 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test code for the ScopedClassLoader class. */
+public final class TestScopedClassLoader {
+
+  /** The number of classes that the unloading test defines. */
+  private static final int NUM_CLASSES = 100;
+
+  /**
+   * Writes, to the given directory, class files for classes {@code pkg.C0} through {@code
+   * pkg.C}<em>n-1</em>. Each class extends the next one, and the last one extends Object.
+   *
+   * @param dir the directory to write the class files in
+   * @param pkg the package of the classes
+   * @param n the number of classes
+   * @return the directory
+   * @throws IOException if there is trouble writing the files
+   */
+  static Path writeClassFiles(Path dir, String pkg, int n) throws IOException {
+    Path pkgDir = Files.createDirectories(dir.resolve(pkg));
+    for (int i = 0; i < n; i++) {
+      String superName = (i == n - 1) ? "java/lang/Object" : pkg + "/C" + (i + 1);
+      Files.write(
+          pkgDir.resolve("C" + i + ".class"),
+          TestReflectionP.classFileBytes(pkg + "/C" + i, superName));
+    }
+    return dir;
+  }
+
+  @Test
+  void test_defineClasses(@TempDir Path tmp) throws Exception {
+    Path dir = writeClassFiles(tmp, "scoped1", 3);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (ScopedClassLoader loader = new ScopedClassLoader()) {
+      Map<String, Resolution<Class<?>>> result = loader.defineClasses(dir.toString(), executor);
+      assertEquals(3, result.size());
+      for (Resolution<Class<?>> r : result.values()) {
+        assertTrue(r.get().getClassLoader() == loader);
+      }
+      Class<?> c0 = loader.loadClass("scoped1.C0");
+      assertTrue(c0.getSuperclass() == loader.loadClass("scoped1.C1"));
+
+      // Another loader defines a distinct class with the same name.
+      try (ScopedClassLoader other = new ScopedClassLoader()) {
+        Class<?> otherC2 = other.defineClassFromFile(dir.resolve("scoped1/C2.class").toString());
+        assertEquals("scoped1.C2", otherC2.getName());
+        assertTrue(otherC2 != loader.loadClass("scoped1.C2"));
+      }
+
+      // The global loader is not affected.
+      assertThrows(ClassNotFoundException.class, () -> Class.forName("scoped1.C0"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_close(@TempDir Path tmp) throws Exception {
+    Path dir = writeClassFiles(tmp, "scoped3", 2);
+    String c0File = dir.resolve("scoped3/C0.class").toString();
+    String c1File = dir.resolve("scoped3/C1.class").toString();
+    ScopedClassLoader loader = new ScopedClassLoader();
+    Class<?> c1 = loader.defineClassFromFile(c1File);
+    assertFalse(loader.isClosed());
+    loader.close();
+    assertTrue(loader.isClosed());
+    assertTrue(loader.loadClass("scoped3.C1") == c1);
+    // A class that the loader already defined is still returned.
+    assertTrue(loader.defineClassFromFile(c1File) == c1);
+    byte[] c1Bytes = Files.readAllBytes(Path.of(c1File));
+    assertTrue(loader.defineClassFromBuffer(null, ByteBuffer.wrap(c1Bytes)) == c1);
+    assertThrows(IllegalStateException.class, () -> loader.defineClassFromFile(c0File));
+    byte[] bytes = Files.readAllBytes(Path.of(c0File));
+    assertThrows(
+        IllegalStateException.class,
+        () -> loader.defineClassFromBuffer(null, ByteBuffer.wrap(bytes)));
+  }
+
+  /**
+   * Defines a batch of classes in a new ScopedClassLoader, and returns weak references to the
+   * loader and one of its classes. No strong reference to either escapes this method.
+   *
+   * @param dir a directory of class files
+   * @return weak references to the loader and to one of its classes
+   * @throws Exception if the classes cannot be defined
+   */
+  private static WeakReference<?>[] defineBatch(Path dir) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (ScopedClassLoader loader = new ScopedClassLoader()) {
+      Map<String, Resolution<Class<?>>> result = loader.defineClasses(dir.toString(), executor);
+      for (Resolution<Class<?>> r : result.values()) {
+        assertTrue(r.isSuccess());
+      }
+      Class<?> c0 = loader.loadClass("scoped2.C0");
+      return new WeakReference<?>[] {new WeakReference<>(loader), new WeakReference<>(c0)};
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_unloading(@TempDir Path tmp) throws Exception {
+    Path dir = writeClassFiles(tmp, "scoped2", NUM_CLASSES);
+    ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    long unloadedBefore = classLoading.getUnloadedClassCount();
+
+    WeakReference<?>[] refs = defineBatch(dir);
+    for (int i = 0; i < 100 && (refs[0].get() != null || refs[1].get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertNull(refs[0].get(), "loader was not garbage-collected");
+    assertNull(refs[1].get(), "class was not garbage-collected");
+    // The classes' metadata has been freed from metaspace.
+    long unloaded = classLoading.getUnloadedClassCount() - unloadedBefore;
+    assertTrue(unloaded >= NUM_CLASSES, "only " + unloaded + " classes were unloaded");
+  }
+}
@@ -2,9 +2,15 @@ package org.plumelib.reflection;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.BinaryName;
@@ -200,6 +206,174 @@ public final class TestSignatures {
     assertTrue(!Signatures.isFieldDescriptorWithoutPackage("MyClass"));
   }
 
+  @Test
+  void test_isMethodDescriptor() {
+    assertTrue(Signatures.isMethodDescriptor("()V"));
+    assertTrue(Signatures.isMethodDescriptor("(I)I"));
+    assertTrue(Signatures.isMethodDescriptor("(ILjava/lang/String;[[J)[Ljava/util/Map$Entry;"));
+    assertTrue(Signatures.isMethodDescriptor("(LMyClass;)Z"));
+    assertTrue(!Signatures.isMethodDescriptor(""));
+    assertTrue(!Signatures.isMethodDescriptor("()"));
+    assertTrue(!Signatures.isMethodDescriptor("(V)V"));
+    assertTrue(!Signatures.isMethodDescriptor("(I)VV"));
+    assertTrue(!Signatures.isMethodDescriptor("(I"));
+    assertTrue(!Signatures.isMethodDescriptor("(Ljava/lang/String)V"));
+    assertTrue(!Signatures.isMethodDescriptor("(Ljava.lang.String;)V"));
+    assertTrue(!Signatures.isMethodDescriptor("(int)void"));
+  }
+
+  /** The byte predicates agree with the String predicates. */
+  @Test
+  void test_bytePredicates() {
+    String[] strings = {
+      "", "I", "V", "int", "int[]", "int[][]", "[I", "[[J", "java.lang.String", "java/lang/String",
+      "java.lang.String[]", "Ljava/lang/String;", "[Ljava/lang/String;", "Ljava.lang.String;",
+      "MyClass$22", "pkg.Outer$Inner[]", "pkg.Outer$Inner[", "java..lang", "java.lang.",
+      "java.class.Foo", "java.class$1.Foo", "(I)V", "()V", "(Ljava/lang/String;[I)[J", "(I", "(V)V",
+      "hello world", "caf\u00e9", "[]", "Foo[]x[]"
+    };
+    for (String s : strings) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      // Surround the name by other bytes, to check that only the given part is tested.
+      byte[] padded = new byte[bytes.length + 4];
+      Arrays.fill(padded, (byte) 'x');
+      System.arraycopy(bytes, 0, padded, 2, bytes.length);
+      for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.wrap(padded), direct(padded)}) {
+        int len = bytes.length;
+        assertEquals(Signatures.isBinaryName(s), Signatures.isBinaryName(buffer, 2, len), s);
+        assertEquals(
+            Signatures.isFieldDescriptor(s), Signatures.isFieldDescriptor(buffer, 2, len), s);
+        assertEquals(Signatures.isFqBinaryName(s), Signatures.isFqBinaryName(buffer, 2, len), s);
+        assertEquals(Signatures.isInternalForm(s), Signatures.isInternalForm(buffer, 2, len), s);
+        assertEquals(
+            Signatures.isMethodDescriptor(s), Signatures.isMethodDescriptor(buffer, 2, len), s);
+        assertEquals(0, buffer.position());
+      }
+    }
+  }
+
+  @Test
+  void test_bulkConversions() {
+    byte[] names =
+        "java/lang/Object[Ljava/util/Map$Entry;a/b/C$1_x.yint".getBytes(StandardCharsets.UTF_8);
+    String converted = "java.lang.Object[Ljava.util.Map$Entry;a.b.C$1_x.yint";
+    assertEquals(-1, Signatures.internalFormToBinaryName(names, 0, names.length));
+    assertEquals(converted, new String(names, StandardCharsets.UTF_8));
+    assertEquals(-1, Signatures.binaryNameToInternalForm(names, 0, names.length));
+    assertEquals(converted.replace('.', '/'), new String(names, StandardCharsets.UTF_8));
+
+    // Only the given region is converted.
+    byte[] region = "a/b/c/d/e/f/g/h/i/j/k".getBytes(StandardCharsets.UTF_8);
+    assertEquals(-1, Signatures.internalFormToBinaryName(region, 3, 13));
+    assertEquals("a/b.c.d.e.f.g.h.i/j/k", new String(region, StandardCharsets.UTF_8));
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> Signatures.internalFormToBinaryName(region, 10, region.length));
+
+    ByteBuffer readOnly = ByteBuffer.wrap(region).asReadOnlyBuffer();
+    assertThrows(
+        ReadOnlyBufferException.class, () -> Signatures.internalFormToBinaryName(readOnly, 0, 1));
+
+    // Indexes into a slice are relative to the slice, not to its backing array.
+    ByteBuffer slice = ByteBuffer.wrap("xxa/b c/d".getBytes(StandardCharsets.UTF_8), 2, 7).slice();
+    assertEquals(3, Signatures.internalFormToBinaryName(slice, 0, 7));
+    assertEquals("a.b c.d", StandardCharsets.UTF_8.decode(slice).toString());
+
+    // A region longer than the blocks in which it is converted, whose invalid byte is late.
+    byte[] large = new byte[10_000];
+    Arrays.fill(large, (byte) '/');
+    large[9_000] = ' ';
+    large[9_500] = '-';
+    for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.wrap(large.clone()), direct(large)}) {
+      assertEquals(9_000, Signatures.internalFormToBinaryName(buffer, 0, large.length));
+      assertEquals('.', buffer.get(9_999));
+    }
+    assertEquals(9_000, Signatures.internalFormToBinaryName(large, 0, large.length));
+    assertEquals(9_500, Signatures.binaryNameToInternalForm(large, 9_001, 999));
+    assertEquals('.', large[9_000 - 1]);
+    assertEquals('/', large[9_999]);
+  }
+
+  /** The bulk conversions agree with a byte-at-a-time conversion, at every alignment. */
+  @Test
+  void test_bulkConversionsRandom() {
+    Random random = new Random(42);
+    String alphabet = "./abcXYZ09_$[;-< \u00e9\n";
+    for (int trial = 0; trial < 2000; trial++) {
+      int length = random.nextInt(40);
+      byte[] original = new byte[length + 6];
+      for (int i = 0; i < original.length; i++) {
+        // Mostly name bytes, so that an invalid byte often comes late.
+        original[i] =
+            random.nextInt(20) == 0
+                ? (byte) random.nextInt(256)
+                : (byte) alphabet.charAt(random.nextInt(12));
+      }
+      int offset = random.nextInt(6);
+      boolean toBinary = random.nextBoolean();
+      byte from = (byte) (toBinary ? '/' : '.');
+      byte[] expected = original.clone();
+      int expectedInvalid = -1;
+      for (int i = offset; i < offset + length; i++) {
+        byte b = expected[i];
+        if (expectedInvalid == -1 && !isNameByte(b)) {
+          expectedInvalid = i;
+        }
+        if (b == from) {
+          expected[i] = (byte) (b ^ 1);
+        }
+      }
+
+      byte[] array = original.clone();
+      int invalid =
+          toBinary
+              ? Signatures.internalFormToBinaryName(array, offset, length)
+              : Signatures.binaryNameToInternalForm(array, offset, length);
+      assertArrayEquals(expected, array);
+      assertEquals(expectedInvalid, invalid);
+
+      ByteBuffer[] buffers = {ByteBuffer.wrap(original.clone()), direct(original)};
+      for (ByteBuffer buffer : buffers) {
+        invalid =
+            toBinary
+                ? Signatures.internalFormToBinaryName(buffer, offset, length)
+                : Signatures.binaryNameToInternalForm(buffer, offset, length);
+        byte[] actual = new byte[original.length];
+        buffer.get(0, actual);
+        assertArrayEquals(expected, actual);
+        assertEquals(expectedInvalid, invalid);
+        assertEquals(0, buffer.position());
+      }
+    }
+  }
+
+  /**
+   * Returns true if the given byte can occur in an internal form, binary name, or Class.getName
+   * name.
+   *
+   * @param b a byte
+   * @return true if {@code b} is an ASCII letter or digit, or one of "_$./[;"
+   */
+  private static boolean isNameByte(byte b) {
+    return (b >= 'a' && b <= 'z')
+        || (b >= 'A' && b <= 'Z')
+        || (b >= '0' && b <= '9')
+        || "_$./[;".indexOf(b) != -1;
+  }
+
+  /**
+   * Returns a direct buffer with the given contents.
+   *
+   * @param bytes the contents
+   * @return a direct buffer with the given contents
+   */
+  private static ByteBuffer direct(byte[] bytes) {
+    ByteBuffer result = ByteBuffer.allocateDirect(bytes.length);
+    result.put(bytes);
+    result.clear();
+    return result;
+  }
+
   /**
    * Returns true if the argument has the format of an Identifier. The type it refers to might or
    * might not exist.
@@ -0,0 +1,110 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Test code for the TypeNameDictionary class. */
+public final class TestTypeNameDictionary {
+
+  @Test
+  void test_intern() {
+    TypeNameDictionary dict = new TypeNameDictionary();
+    assertEquals(0, dict.intern("java.lang.String"));
+    assertEquals(1, dict.intern("java.util.Map$Entry[]"));
+    assertEquals(0, dict.intern("java.lang.String"));
+    assertEquals(2, dict.intern("int"));
+    assertEquals(3, dict.intern("java.lang.Strings"));
+    assertEquals(-1, dict.lookup("java.lang.Str\u00efng"));
+    assertEquals(-1, dict.lookup("java.lang.Strin"));
+    assertEquals(-1, dict.lookup("java.lang.StringX"));
+    assertEquals(4, dict.size());
+    assertArrayEquals(new int[] {2, 0, 4}, dict.internAll("int", "java.lang.String", "long[][]"));
+
+    assertThrows(IllegalArgumentException.class, () -> dict.intern("java/lang/String"));
+    assertThrows(IllegalArgumentException.class, () -> dict.intern("[I"));
+    assertThrows(IllegalArgumentException.class, () -> dict.intern(""));
+    assertThrows(IllegalArgumentException.class, () -> dict.intern("caf\u00e9.Caf\u00e9"));
+    assertEquals(5, dict.size());
+  }
+
+  @Test
+  void test_otherFormats() {
+    TypeNameDictionary dict = new TypeNameDictionary();
+    int entries = dict.internFieldDescriptor("[Ljava/util/Map$Entry;");
+    assertEquals(entries, dict.intern("java.util.Map$Entry[]"));
+    assertEquals(entries, dict.internClassGetName("[Ljava.util.Map$Entry;"));
+    int ints = dict.internFieldDescriptor("[[I");
+    assertEquals(ints, dict.intern("int[][]"));
+    assertEquals(dict.intern("int"), dict.internClassGetName("int"));
+    assertEquals(dict.intern("java.lang.Object"), dict.internFieldDescriptor("Ljava/lang/Object;"));
+    assertThrows(IllegalArgumentException.class, () -> dict.internFieldDescriptor("int"));
+    assertThrows(IllegalArgumentException.class, () -> dict.internClassGetName("int[]"));
+
+    // The dictionary does not retain the interned String.
+    String fd = new String("Ljava/lang/Runnable;");
+    int runnable = dict.internFieldDescriptor(fd);
+    assertEquals(fd, dict.fieldDescriptor(runnable));
+    assertFalse(dict.fieldDescriptor(runnable) == fd);
+    String name = new String("[Ljava.lang.Runnable;");
+    int runnables = dict.internClassGetName(name);
+    assertEquals(name, dict.classGetName(runnables));
+    assertFalse(dict.classGetName(runnables) == name);
+  }
+
+  @Test
+  void test_conversions() {
+    TypeNameDictionary dict = new TypeNameDictionary();
+    int entry = dict.intern("java.util.Map$Entry");
+    int array = dict.intern("java.util.Map$Entry[][]");
+    int primitive = dict.intern("int");
+    int primitiveArray = dict.intern("int[]");
+
+    assertEquals("java.util.Map$Entry", dict.fqBinaryName(entry));
+    assertEquals("Ljava/util/Map$Entry;", dict.fieldDescriptor(entry));
+    assertEquals("java.util.Map$Entry", dict.classGetName(entry));
+    assertEquals("java/util/Map$Entry", dict.internalForm(entry));
+
+    assertEquals("java.util.Map$Entry[][]", dict.fqBinaryName(array));
+    assertEquals("[[Ljava/util/Map$Entry;", dict.fieldDescriptor(array));
+    assertEquals("[[Ljava.util.Map$Entry;", dict.classGetName(array));
+    assertEquals("[[Ljava/util/Map$Entry;", dict.internalForm(array));
+
+    assertEquals("I", dict.fieldDescriptor(primitive));
+    assertEquals("int", dict.classGetName(primitive));
+    assertThrows(IllegalArgumentException.class, () -> dict.internalForm(primitive));
+    assertEquals("[I", dict.internalForm(primitiveArray));
+
+    // Conversions are cached.
+    assertTrue(dict.fieldDescriptor(array) == dict.fieldDescriptor(array));
+    assertTrue(dict.fqBinaryName(entry) == dict.fqBinaryName(entry));
+    String cached = dict.fieldDescriptor(array);
+    dict.clearConversionCaches();
+    assertEquals(cached, dict.fieldDescriptor(array));
+    assertFalse(dict.fieldDescriptor(array) == cached);
+    assertEquals(4, dict.size());
+    assertEquals(array, dict.lookup("java.util.Map$Entry[][]"));
+
+    assertThrows(IndexOutOfBoundsException.class, () -> dict.fqBinaryName(4));
+    assertThrows(IndexOutOfBoundsException.class, () -> dict.fieldDescriptor(-1));
+  }
+
+  @Test
+  void test_growth() {
+    TypeNameDictionary dict = new TypeNameDictionary(1);
+    int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      assertEquals(i, dict.intern("com.example.pkg" + (i % 37) + ".Class" + i));
+    }
+    assertEquals(n, dict.size());
+    for (int i = 0; i < n; i++) {
+      String name = "com.example.pkg" + (i % 37) + ".Class" + i;
+      assertEquals(i, dict.lookup(name));
+      assertEquals(name, dict.fqBinaryName(i));
+    }
+  }
+}
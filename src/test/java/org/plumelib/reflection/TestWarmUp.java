@@ -0,0 +1,151 @@
+package org.plumelib.reflection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Test code for the WarmUp class. */
+public final class TestWarmUp {
+
+  /**
+   * Records whether {@link Initialized} has been initialized. Reading the flag does not initialize
+   * {@link Initialized}.
+   */
+  static class InitializationLog {
+    /** True once {@link Initialized} has been initialized. */
+    static volatile boolean initialized;
+  }
+
+  /** A class whose initialization is observable, used by {@link #test_preload}. */
+  static class Initialized {
+    static {
+      InitializationLog.initialized = true;
+    }
+  }
+
+  /**
+   * Returns the value for the given key, which must be present in the map.
+   *
+   * @param <T> the type of the result of a successful resolution
+   * @param map a map from names to resolutions
+   * @param key a name
+   * @return the resolution of the given name
+   */
+  static <T> Resolution<T> get(Map<String, Resolution<T>> map, String key) {
+    Resolution<T> result = map.get(key);
+    if (result == null) {
+      throw new Error("No resolution for " + key);
+    }
+    return result;
+  }
+
+  @Test
+  void test_preload() {
+    assertFalse(InitializationLog.initialized);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      WarmUp.Report report =
+          WarmUp.preload(
+                  List.of(
+                      "org.plumelib.reflection.TestWarmUp$Initialized",
+                      "java.util.Map.Entry",
+                      "int",
+                      "com.example.Nonexistent"),
+                  List.of(
+                      "java.lang.Math.min(int,int)",
+                      "java.lang.Math.nonexistent()",
+                      "java.lang.Math.min"),
+                  executor)
+              .join();
+      assertTrue(InitializationLog.initialized);
+      assertEquals(4, report.classes().size());
+      assertEquals(3, report.methods().size());
+      assertEquals(3, report.failures());
+      assertEquals(
+          java.util.Map.Entry.class, get(report.classes(), "java.util.Map.Entry").value());
+      assertTrue(
+          get(report.classes(), "com.example.Nonexistent").failure()
+              instanceof ClassNotFoundException);
+      // A malformed signature is reported, and does not affect the other names.
+      assertTrue(
+          get(report.methods(), "java.lang.Math.min").failure()
+              instanceof IllegalArgumentException);
+      assertTrue(get(report.methods(), "java.lang.Math.min(int,int)").isSuccess());
+      assertTrue(get(report.methods(), "java.lang.Math.min(int,int)").nanos() >= 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void test_preloadWithParallelism() {
+    WarmUp.Report report =
+        WarmUp.preload(List.of("java.lang.String"), List.of("java.lang.Math.abs(int)"), 2).join();
+    assertEquals(0, report.failures());
+    assertEquals(String.class, get(report.classes(), "java.lang.String").value());
+  }
+
+  @Test
+  void test_snapshot(@TempDir Path dir) throws Exception {
+    Path snapshot = dir.resolve("warmup.snapshot");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // No snapshot yet.
+      WarmUp.Report empty = WarmUp.replaySnapshot(snapshot, executor).join();
+      assertTrue(empty.classes().isEmpty());
+      assertTrue(empty.methods().isEmpty());
+
+      WarmUp.startRecording();
+      ReflectionP.classForName("java.util.Map.Entry");
+      ReflectionP.methodForName("java.lang.Math.max(long, long)");
+      WarmUp.writeSnapshot(snapshot);
+      assertTrue(Files.exists(snapshot));
+
+      WarmUp.Report report = WarmUp.replaySnapshot(snapshot, executor).join();
+      assertEquals(0, report.failures());
+      assertEquals(
+          java.util.Map.Entry.class, get(report.classes(), "java.util.Map.Entry").value());
+      assertTrue(get(report.argLists(), "long, long").isSuccess());
+      assertTrue(get(report.methods(), "java.lang.Math.max(long, long)").isSuccess());
+
+      // After recording stops, the recorded names are discarded and no more are recorded.
+      WarmUp.stopRecording();
+      ReflectionP.classForName("java.util.Map");
+      WarmUp.writeSnapshot(snapshot);
+      WarmUp.Report stopped = WarmUp.replaySnapshot(snapshot, executor).join();
+      assertTrue(stopped.classes().isEmpty());
+      assertTrue(stopped.methods().isEmpty());
+      assertTrue(get(stopped.argLists(), "long, long").isSuccess());
+
+      // A file that is not compressed.
+      Files.write(snapshot, List.of("not a snapshot"));
+      assertThrows(IOException.class, () -> WarmUp.replaySnapshot(snapshot, executor));
+      // A compressed file whose first line is not the snapshot header.
+      try (Writer w =
+          new OutputStreamWriter(
+              new GZIPOutputStream(Files.newOutputStream(snapshot)), StandardCharsets.UTF_8)) {
+        w.write("# some other file, version 1\nC java.lang.String\n");
+      }
+      IOException e =
+          assertThrows(IOException.class, () -> WarmUp.replaySnapshot(snapshot, executor));
+      assertEquals("Not a warm-up snapshot: " + snapshot, e.getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}